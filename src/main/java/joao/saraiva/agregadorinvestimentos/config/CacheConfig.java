@@ -0,0 +1,67 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.NullValue;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(UserCacheProperties.class)
+public class CacheConfig {
+
+    public static final String USERS_CACHE = "users";
+
+    // Uma virtual thread por load: a query bloqueia no JDBC sem ocupar uma thread de plataforma
+    private static final Executor LOAD_EXECUTOR = task -> Thread.ofVirtual().name("users-cache-load").start(task);
+
+    @Bean
+    public CacheManager cacheManager(UserCacheProperties properties) {
+
+        var cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfter(new UserExpiry(properties.ttl().toNanos(), properties.negativeTtl().toNanos()))
+                .executor(LOAD_EXECUTOR)
+                .recordStats()); // hits, misses e evictions vão para o /actuator/metrics (cache.*)
+
+        // Modo assíncrono: no @Cacheable(sync = true) o compute do mapa só guarda um
+        // CompletableFuture e a ida ao banco roda no LOAD_EXECUTOR. Quem espera (inclusive
+        // as chamadas concorrentes para o mesmo ID) fica num join(), que com virtual threads
+        // libera a carrier; no modo síncrono o load rodava dentro do compute (synchronized)
+        // e prendia a carrier durante toda a query no JDK 21.
+        cacheManager.setAsyncCacheMode(true);
+
+        // Cria o cache já na subida para as métricas serem registradas
+        cacheManager.setCacheNames(List.of(USERS_CACHE));
+
+        return cacheManager;
+    }
+
+    // Usuário encontrado vive "ttl"; busca negativa (Optional vazio vira NullValue) vive "negativeTtl"
+    private record UserExpiry(long ttlNanos, long negativeTtlNanos) implements Expiry<Object, Object> {
+
+        @Override
+        public long expireAfterCreate(Object key, Object value, long currentTime) {
+            return value instanceof NullValue ? negativeTtlNanos : ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
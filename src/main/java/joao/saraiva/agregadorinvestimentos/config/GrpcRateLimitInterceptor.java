@@ -0,0 +1,159 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Grpc;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import joao.saraiva.agregadorinvestimentos.grpc.UserServiceGrpc;
+import org.springframework.lang.Nullable;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// O RateLimitInterceptor do gRPC: com o banco saturado recusa tudo (UNAVAILABLE), senão
+// cobra do balde do cliente (o IP de origem da conexão) o mesmo custo do endpoint REST
+// equivalente (RESOURCE_EXHAUSTED se faltar). O grpc-retry-pushback-ms diz quando vale
+// tentar de novo, como o Retry-After.
+//
+// Além disso limita quantos streams (ListUsers, CreateUsers) ficam abertos ao mesmo
+// tempo: cada um segura uma conexão do Hikari e uma transação enquanto o cliente lê ou
+// escreve, então alguns clientes lentos bastariam para esgotar o pool.
+public class GrpcRateLimitInterceptor implements ServerInterceptor {
+
+    static final Metadata.Key<String> RETRY_PUSHBACK = Metadata.Key.of("grpc-retry-pushback-ms", Metadata.ASCII_STRING_MARSHALLER);
+
+    // Os mesmos @RateLimitCost do UserController e do UserBatchController; o resto custa 1
+    private static final Map<String, Integer> COSTS = Map.of(
+            UserServiceGrpc.getCreateUserMethod().getFullMethodName(), 5, // BCrypt
+            UserServiceGrpc.getUpdateUserMethod().getFullMethodName(), 5, // BCrypt
+            UserServiceGrpc.getListUsersMethod().getFullMethodName(), 50, // a tabela inteira
+            UserServiceGrpc.getCreateUsersMethod().getFullMethodName(), 50);
+
+    // Os dois são null quando app.rate-limit.enabled=false
+    private final TokenBucketRateLimiter rateLimiter;
+
+    private final LoadShedder loadShedder;
+
+    private final Semaphore streams;
+
+    private final Counter rateLimited;
+
+    private final Counter shed;
+
+    private final Counter tooManyStreams;
+
+    public GrpcRateLimitInterceptor(@Nullable TokenBucketRateLimiter rateLimiter,
+                                    @Nullable LoadShedder loadShedder,
+                                    int maxConcurrentStreams,
+                                    MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.loadShedder = loadShedder;
+        this.streams = new Semaphore(maxConcurrentStreams);
+        this.rateLimited = rejected(meterRegistry, "rate-limit");
+        this.shed = rejected(meterRegistry, "overload");
+        this.tooManyStreams = rejected(meterRegistry, "streams");
+    }
+
+    private static Counter rejected(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("grpc.server.requests.rejected")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call,
+                                                                 Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+
+        if (loadShedder != null && loadShedder.isOverloaded()) {
+            shed.increment();
+            return reject(call, Status.UNAVAILABLE.withDescription("Server overloaded"), TimeUnit.SECONDS.toNanos(1));
+        }
+
+        var method = call.getMethodDescriptor();
+        if (rateLimiter != null) {
+            var waitNanos = rateLimiter.tryAcquire(clientOf(call), COSTS.getOrDefault(method.getFullMethodName(), 1));
+            if (waitNanos > 0) {
+                rateLimited.increment();
+                return reject(call, Status.RESOURCE_EXHAUSTED.withDescription("Rate limit exceeded"), waitNanos);
+            }
+        }
+
+        if (method.getType() == MethodDescriptor.MethodType.UNARY) {
+            return next.startCall(call, headers);
+        }
+
+        if (!streams.tryAcquire()) {
+            tooManyStreams.increment();
+            return reject(call, Status.RESOURCE_EXHAUSTED.withDescription("Too many concurrent streams"),
+                    TimeUnit.SECONDS.toNanos(1));
+        }
+        var permit = new StreamPermit(streams);
+        try {
+            return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(next.startCall(call, headers)) {
+                @Override
+                public void onComplete() {
+                    try {
+                        super.onComplete();
+                    } finally {
+                        permit.release();
+                    }
+                }
+
+                @Override
+                public void onCancel() {
+                    try {
+                        super.onCancel();
+                    } finally {
+                        permit.release();
+                    }
+                }
+            };
+        } catch (RuntimeException e) {
+            permit.release();
+            throw e;
+        }
+    }
+
+    private static String clientOf(ServerCall<?, ?> call) {
+        var address = call.getAttributes().get(Grpc.TRANSPORT_ATTR_REMOTE_ADDR);
+        return address instanceof InetSocketAddress inet && inet.getAddress() != null
+                ? inet.getAddress().getHostAddress()
+                : String.valueOf(address);
+    }
+
+    private static <ReqT> ServerCall.Listener<ReqT> reject(ServerCall<ReqT, ?> call, Status status, long retryAfterNanos) {
+        var trailers = new Metadata();
+        trailers.put(RETRY_PUSHBACK, Long.toString(Math.max(1, TimeUnit.NANOSECONDS.toMillis(retryAfterNanos))));
+        call.close(status, trailers);
+        return new ServerCall.Listener<>() {
+        };
+    }
+
+    // onComplete e onCancel podem vir os dois; a vaga volta uma vez só
+    private static final class StreamPermit {
+
+        private final Semaphore streams;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        StreamPermit(Semaphore streams) {
+            this.streams = streams;
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                streams.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.grpc.MetricCollectingServerInterceptor;
+import joao.saraiva.agregadorinvestimentos.controller.UserGrpcService;
+import joao.saraiva.agregadorinvestimentos.service.UserBatchService;
+import joao.saraiva.agregadorinvestimentos.service.UserService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+// API gRPC (user_service.proto) no mesmo processo do REST, em outra porta (app.grpc.port).
+// Só sobe com app.grpc.enabled=true. Métricas por método em grpc.server.*; rate limit e
+// descarte de carga iguais aos do REST (GrpcRateLimitInterceptor)
+@Configuration
+@Profile("!reactive") // o UserGrpcService usa os services do stack servlet
+@ConditionalOnProperty(name = "app.grpc.enabled", havingValue = "true")
+@EnableConfigurationProperties(GrpcServerProperties.class)
+public class GrpcServerConfig {
+
+    @Bean
+    public UserGrpcService userGrpcService(UserService userService, UserBatchService userBatchService) {
+        return new UserGrpcService(userService, userBatchService);
+    }
+
+    @Bean
+    public GrpcServerLifecycle grpcServer(GrpcServerProperties properties,
+                                          UserGrpcService userGrpcService,
+                                          @Nullable TokenBucketRateLimiter rateLimiter,
+                                          @Nullable LoadShedder loadShedder,
+                                          MeterRegistry meterRegistry) {
+        var rateLimit = new GrpcRateLimitInterceptor(rateLimiter, loadShedder,
+                properties.maxConcurrentStreams(), meterRegistry);
+        return new GrpcServerLifecycle(
+                properties.port(),
+                properties.threads(),
+                properties.shutdownGracePeriod(),
+                // O último da lista roda primeiro: as métricas também contam as chamadas recusadas
+                List.of(rateLimit, new MetricCollectingServerInterceptor(meterRegistry)),
+                userGrpcService);
+    }
+}
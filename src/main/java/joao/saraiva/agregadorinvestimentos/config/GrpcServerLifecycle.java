@@ -0,0 +1,122 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import io.grpc.BindableService;
+import io.grpc.Grpc;
+import io.grpc.InsecureServerCredentials;
+import io.grpc.Server;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Sobe o servidor gRPC (Netty) junto com o contexto e o desliga como o Tomcat:
+// para de aceitar chamadas novas e espera as em andamento por até shutdownGracePeriod.
+// Mesma fase do servidor web, então só abre a porta com todos os beans prontos.
+public class GrpcServerLifecycle implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(GrpcServerLifecycle.class);
+
+    private final int port;
+
+    private final int threads;
+
+    private final Duration shutdownGracePeriod;
+
+    private final List<ServerInterceptor> interceptors;
+
+    private final BindableService service;
+
+    private volatile Server server;
+
+    private ExecutorService executor;
+
+    public GrpcServerLifecycle(int port,
+                               int threads,
+                               Duration shutdownGracePeriod,
+                               List<ServerInterceptor> interceptors,
+                               BindableService service) {
+        this.port = port;
+        this.threads = threads;
+        this.shutdownGracePeriod = shutdownGracePeriod;
+        this.interceptors = interceptors;
+        this.service = service;
+    }
+
+    @Override
+    public void start() {
+
+        // Threads de plataforma: uma chamada pode esperar o lote do UserBatchLoader dentro
+        // do @Cacheable(sync), que no JDK 21 prende a carrier de uma virtual thread
+        var counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            var thread = new Thread(runnable, "grpc-server-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            server = Grpc.newServerBuilderForPort(port, InsecureServerCredentials.create())
+                    .executor(executor)
+                    .addService(ServerInterceptors.intercept(service, interceptors))
+                    .build()
+                    .start();
+        } catch (IOException e) {
+            executor.shutdownNow();
+            throw new UncheckedIOException("Could not start gRPC server on port " + port, e);
+        }
+
+        log.info("gRPC server started on port {}", server.getPort());
+    }
+
+    @Override
+    public void stop() {
+
+        var current = server;
+        if (current == null) {
+            return;
+        }
+
+        current.shutdown();
+        try {
+            if (!current.awaitTermination(shutdownGracePeriod.toMillis(), TimeUnit.MILLISECONDS)) {
+                current.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            current.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    // A do WebServerStartStopLifecycle (o Tomcat)
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 2048;
+    }
+
+    // Porta de fato (útil com port=0)
+    public int getPort() {
+        var current = server;
+        if (current == null) {
+            throw new IllegalStateException("gRPC server is not running");
+        }
+        return current.getPort();
+    }
+}
@@ -0,0 +1,22 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Servidor gRPC da API de usuários (prefixo app.grpc)
+@ConfigurationProperties(prefix = "app.grpc")
+public record GrpcServerProperties(
+        // Desligado por padrão: sem TLS, só faz sentido ligar numa rede interna
+        @DefaultValue("false") boolean enabled,
+        // 0 = porta livre qualquer (testes e benchmarks)
+        @DefaultValue("9090") int port,
+        // Threads que executam as chamadas (bloqueiam no banco e no BCrypt, como as do Tomcat)
+        @DefaultValue("200") int threads,
+        // ListUsers e CreateUsers abertos ao mesmo tempo. Cada um segura uma conexão do
+        // Hikari enquanto o cliente lê ou escreve: fica abaixo do tamanho do pool (10)
+        @DefaultValue("4") int maxConcurrentStreams,
+        // No desligamento, quanto as chamadas em andamento têm para terminar
+        @DefaultValue("30s") Duration shutdownGracePeriod) {
+}
@@ -0,0 +1,91 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Diz se o banco está saturado, pelas métricas que o Hikari já publica (todos os pools,
+// inclusive as réplicas): a espera média por conexão desde a última leitura
+// (hikaricp.connections.acquire) e quantas threads estão esperando agora
+// (hikaricp.connections.pending). Saturado, é melhor recusar na hora do que deixar
+// a requisição na fila até o connection-timeout.
+public class LoadShedder implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadShedder.class);
+
+    private final MeterRegistry meterRegistry;
+
+    private final long maxAcquireWaitNanos;
+
+    private final int maxPending;
+
+    private final ScheduledExecutorService sampler;
+
+    private double lastTotalNanos;
+
+    private long lastCount;
+
+    private volatile boolean overloaded;
+
+    public LoadShedder(MeterRegistry meterRegistry, Duration maxAcquireWait, int maxPending, Duration sampleInterval) {
+        this.meterRegistry = meterRegistry;
+        this.maxAcquireWaitNanos = maxAcquireWait.toNanos();
+        this.maxPending = maxPending;
+
+        Gauge.builder("hikaricp.overloaded", this, shedder -> shedder.overloaded ? 1 : 0)
+                .description("1 while requests are being shed because the connection pools are saturated")
+                .register(meterRegistry);
+
+        this.sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "load-shedder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleWithFixedDelay(this::sample,
+                sampleInterval.toMillis(), sampleInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isOverloaded() {
+        return overloaded;
+    }
+
+    void sample() {
+        double totalNanos = 0;
+        long count = 0;
+        for (Timer timer : meterRegistry.find("hikaricp.connections.acquire").timers()) {
+            totalNanos += timer.totalTime(TimeUnit.NANOSECONDS);
+            count += timer.count();
+        }
+        double pending = 0;
+        for (Gauge gauge : meterRegistry.find("hikaricp.connections.pending").gauges()) {
+            pending += gauge.value();
+        }
+
+        var acquired = count - lastCount;
+        var meanWait = acquired > 0 ? (totalNanos - lastTotalNanos) / acquired : 0;
+        lastTotalNanos = totalNanos;
+        lastCount = count;
+
+        var now = meanWait > maxAcquireWaitNanos || pending > maxPending;
+        if (now != overloaded) {
+            log.warn(now
+                    ? "Connection pools saturated (mean acquire wait {} ms, {} pending): shedding load"
+                    : "Connection pools recovered (mean acquire wait {} ms, {} pending)",
+                    Math.round(meanWait / 1_000_000), Math.round(pending));
+        }
+        overloaded = now;
+    }
+
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+    }
+}
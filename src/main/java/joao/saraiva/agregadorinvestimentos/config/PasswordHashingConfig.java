@@ -0,0 +1,28 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import joao.saraiva.agregadorinvestimentos.service.PasswordHasher;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+@Configuration
+@EnableConfigurationProperties(PasswordHashingProperties.class)
+public class PasswordHashingConfig {
+
+    @Bean(destroyMethod = "close")
+    public PasswordHasher passwordHasher(PasswordHashingProperties properties, MeterRegistry meterRegistry) {
+
+        var workers = properties.workers() > 0
+                ? properties.workers()
+                : Runtime.getRuntime().availableProcessors();
+
+        return new PasswordHasher(
+                new BCryptPasswordEncoder(properties.bcryptStrength()),
+                workers,
+                properties.queueCapacity(),
+                properties.acquireTimeout(),
+                meterRegistry);
+    }
+}
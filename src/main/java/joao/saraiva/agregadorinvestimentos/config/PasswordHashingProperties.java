@@ -0,0 +1,18 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Custo do BCrypt e tamanho do pool de hash de senha (prefixo app.password)
+@ConfigurationProperties(prefix = "app.password")
+public record PasswordHashingProperties(
+        @DefaultValue("12") int bcryptStrength,
+        // 0 = um worker por núcleo
+        @DefaultValue("0") int workers,
+        // Hashes esperando na fila além dos que estão rodando
+        @DefaultValue("256") int queueCapacity,
+        // Quanto uma requisição espera por vaga antes de receber 503
+        @DefaultValue("2s") Duration acquireTimeout) {
+}
@@ -0,0 +1,47 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// Só com app.rate-limit.enabled=true (rate limit e descarte de carga)
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET) // interceptor do Spring MVC
+@ConditionalOnProperty(name = "app.rate-limit.enabled", havingValue = "true")
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig {
+
+    @Bean
+    public TokenBucketRateLimiter tokenBucketRateLimiter(RateLimitProperties properties) {
+        return new TokenBucketRateLimiter(properties.capacity(), properties.refillPerSecond(),
+                properties.maxClients(), System::nanoTime);
+    }
+
+    @Bean(destroyMethod = "close")
+    public LoadShedder loadShedder(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        return new LoadShedder(meterRegistry, properties.shedAcquireWait(),
+                properties.shedPendingConnections(), properties.shedSampleInterval());
+    }
+
+    // Bean em vez de a classe implementar WebMvcConfigurer, para os @WebMvcTest dos
+    // controllers não carregarem o rate limit sem pedir
+    @Bean
+    public WebMvcConfigurer rateLimitWebMvcConfigurer(TokenBucketRateLimiter rateLimiter,
+                                                      LoadShedder loadShedder,
+                                                      RateLimitProperties properties,
+                                                      MeterRegistry meterRegistry) {
+        var interceptor = new RateLimitInterceptor(rateLimiter, loadShedder, properties.clientHeader(),
+                properties.trustedProxies(), meterRegistry);
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(interceptor).addPathPatterns("/v1/users", "/v1/users/**", "/v1/users:batch");
+            }
+        };
+    }
+}
@@ -0,0 +1,17 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Quantos tokens do rate limit uma chamada ao endpoint consome. Sem a anotação, 1.
+// Endpoints que pesam mais no banco (listagem, exportação) custam mais.
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface RateLimitCost {
+
+    int value();
+}
@@ -0,0 +1,102 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Roda antes dos endpoints de usuário. Com o banco saturado, recusa tudo com 503;
+// senão cobra o custo do endpoint do balde do cliente e recusa com 429 se faltar.
+// Nos dois casos o Retry-After diz quando vale tentar de novo.
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final TokenBucketRateLimiter rateLimiter;
+
+    private final LoadShedder loadShedder;
+
+    private final String clientHeader;
+
+    private final Set<String> trustedProxies;
+
+    private final Counter rateLimited;
+
+    private final Counter shed;
+
+    public RateLimitInterceptor(TokenBucketRateLimiter rateLimiter,
+                                LoadShedder loadShedder,
+                                String clientHeader,
+                                Collection<String> trustedProxies,
+                                MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.loadShedder = loadShedder;
+        this.clientHeader = clientHeader;
+        this.trustedProxies = Set.copyOf(trustedProxies);
+        this.rateLimited = Counter.builder("http.server.requests.rejected")
+                .tag("reason", "rate-limit")
+                .register(meterRegistry);
+        this.shed = Counter.builder("http.server.requests.rejected")
+                .tag("reason", "overload")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+
+        // Streams (NDJSON) voltam pelo interceptor no dispatch assíncrono; já foram cobrados
+        if (request.getDispatcherType() == DispatcherType.ASYNC || !(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+
+        if (loadShedder.isOverloaded()) {
+            shed.increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1);
+            return false;
+        }
+
+        var cost = method.hasMethodAnnotation(RateLimitCost.class)
+                ? method.getMethodAnnotation(RateLimitCost.class).value()
+                : 1;
+        var waitNanos = rateLimiter.tryAcquire(clientOf(request), cost);
+        if (waitNanos > 0) {
+            rateLimited.increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, Math.max(1, divideRoundingUp(waitNanos, TimeUnit.SECONDS.toNanos(1))));
+            return false;
+        }
+
+        return true;
+    }
+
+    // O header só conta vindo de um proxy confiável. Direto do cliente, bastaria trocar o
+    // valor a cada requisição para ganhar um balde cheio e, de quebra, encher o cache de
+    // baldes até expulsar os clientes legítimos
+    private String clientOf(HttpServletRequest request) {
+        var remoteAddr = request.getRemoteAddr();
+        if (!trustedProxies.contains(remoteAddr)) {
+            return remoteAddr;
+        }
+        var client = request.getHeader(clientHeader);
+        if (client == null || client.isBlank()) {
+            return remoteAddr;
+        }
+        // X-Forwarded-For ("cliente, proxy1, ..."): só o último foi posto pelo proxy confiável
+        return client.substring(client.lastIndexOf(',') + 1).trim();
+    }
+
+    private static long divideRoundingUp(long value, long divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds) {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+    }
+}
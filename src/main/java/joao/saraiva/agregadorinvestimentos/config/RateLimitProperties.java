@@ -0,0 +1,32 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+// Rate limit por cliente e descarte de carga da API de usuários (prefixo app.rate-limit)
+@ConfigurationProperties(prefix = "app.rate-limit")
+public record RateLimitProperties(
+        // Desligado por padrão: sem trusted-proxies, atrás de um balanceador todos os
+        // clientes chegam com o IP dele e dividiriam um balde só
+        @DefaultValue("false") boolean enabled,
+        // Tokens no balde cheio (rajada máxima). Cada endpoint custa @RateLimitCost tokens.
+        @DefaultValue("100") int capacity,
+        // Tokens devolvidos ao balde por segundo
+        @DefaultValue("50") int refillPerSecond,
+        // Identifica o cliente atrás de um proxy. Só vale vindo de trusted-proxies: de
+        // qualquer outro lugar o balde é o do IP de origem
+        @DefaultValue("X-Client-Id") String clientHeader,
+        // IPs dos proxies/gateways que põem o client-header (e sobrescrevem o do cliente)
+        @DefaultValue List<String> trustedProxies,
+        // Clientes acompanhados ao mesmo tempo (os mais antigos saem com o balde cheio)
+        @DefaultValue("100000") long maxClients,
+        // Descarta (503) quando a espera média por conexão do Hikari passa disso...
+        @DefaultValue("200ms") Duration shedAcquireWait,
+        // ...ou quando há mais threads que isso esperando conexão
+        @DefaultValue("50") int shedPendingConnections,
+        // De quanto em quanto tempo o estado do pool é lido
+        @DefaultValue("100ms") Duration shedSampleInterval) {
+}
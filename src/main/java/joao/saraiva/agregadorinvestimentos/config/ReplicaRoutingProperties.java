@@ -0,0 +1,26 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+// Réplicas de leitura (prefixo app.datasource.routing). O primário continua sendo spring.datasource.*
+@ConfigurationProperties(prefix = "app.datasource.routing")
+public record ReplicaRoutingProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue List<Replica> replicas,
+        // Depois de escrever um usuário, as leituras dele vão ao primário por esse tempo
+        // (cobre o atraso da replicação). 0 desliga.
+        @DefaultValue("0ms") Duration stickyWindow,
+        // De quanto em quanto tempo as réplicas são testadas para sair ou voltar ao rodízio
+        @DefaultValue("5s") Duration healthCheckInterval) {
+
+    // username/password vazios = os mesmos do primário
+    public record Replica(String url,
+                          String username,
+                          String password,
+                          @DefaultValue("10") int maximumPoolSize) {
+    }
+}
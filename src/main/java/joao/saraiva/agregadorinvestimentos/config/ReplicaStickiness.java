@@ -0,0 +1,43 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+// Lembra quais usuários foram escritos nos últimos "window" e manda as leituras
+// deles para o primário, para ninguém ler da réplica um dado mais velho do que
+// acabou de gravar
+public class ReplicaStickiness {
+
+    private final Cache<UUID, Boolean> recentWrites;
+
+    private final boolean enabled;
+
+    public ReplicaStickiness(Duration window) {
+        this.enabled = !window.isZero();
+        this.recentWrites = Caffeine.newBuilder()
+                .expireAfterWrite(enabled ? window : Duration.ofMillis(1))
+                .maximumSize(100_000)
+                .build();
+    }
+
+    public void markWritten(UUID userId) {
+        if (enabled) {
+            recentWrites.put(userId, Boolean.TRUE);
+        }
+    }
+
+    public boolean isSticky(UUID userId) {
+        return enabled && recentWrites.getIfPresent(userId) != null;
+    }
+
+    public <T> T read(UUID userId, Supplier<T> work) {
+        if (isSticky(userId)) {
+            return ReplicaRoutingDataSource.onPrimary(work);
+        }
+        return work.get();
+    }
+}
@@ -0,0 +1,61 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Token bucket por cliente, sem lock. Em vez de guardar tokens e horário do último refill,
+// cada cliente tem um único AtomicLong com o instante em que o balde estaria cheio de novo
+// (GCRA, "theoretical arrival time"): consumir n tokens é empurrar esse instante n intervalos
+// para frente com um compareAndSet, e o pedido passa se ele não ficar mais de "capacity"
+// intervalos à frente de agora.
+//
+// Um cliente parado por mais tempo que o necessário para encher o balde está igual a um
+// cliente novo, então o cache pode esquecê-lo sem mudar nada (expireAfterAccess).
+public class TokenBucketRateLimiter {
+
+    private final int capacity;
+
+    private final long nanosPerToken;
+
+    private final long burstNanos;
+
+    private final LongSupplier nanoClock;
+
+    private final Cache<String, AtomicLong> buckets;
+
+    public TokenBucketRateLimiter(int capacity, int refillPerSecond, long maxClients, LongSupplier nanoClock) {
+        this.capacity = capacity;
+        this.nanosPerToken = TimeUnit.SECONDS.toNanos(1) / refillPerSecond;
+        this.burstNanos = capacity * nanosPerToken;
+        this.nanoClock = nanoClock;
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofNanos(burstNanos))
+                .maximumSize(maxClients)
+                .build();
+    }
+
+    // 0 = liberado; senão, quantos nanos faltam para o cliente ter "cost" tokens.
+    // Um custo maior que a capacidade é tratado como a capacidade (balde cheio).
+    public long tryAcquire(String client, int cost) {
+        var now = nanoClock.getAsLong();
+        var bucket = buckets.get(client, key -> new AtomicLong(now));
+        var increment = Math.min(cost, capacity) * nanosPerToken;
+
+        while (true) {
+            var full = bucket.get();
+            var next = Math.max(full, now) + increment;
+            var wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(full, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import joao.saraiva.agregadorinvestimentos.repository.UserRepository;
+import joao.saraiva.agregadorinvestimentos.service.UserBatchLoader;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.PlatformTransactionManager;
+
+// Só com app.users.batch-loader.enabled=true; desligado, cada getUserById faz o seu próprio
+// findById e o GET /v1/users?ids= uma query só com todos os IDs
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "app.users.batch-loader.enabled", havingValue = "true")
+@EnableConfigurationProperties(UserBatchLoaderProperties.class)
+public class UserBatchLoaderConfig {
+
+    @Bean
+    public UserBatchLoader userBatchLoader(UserBatchLoaderProperties properties,
+                                           UserRepository userRepository,
+                                           PlatformTransactionManager transactionManager,
+                                           MeterRegistry meterRegistry) {
+        return new UserBatchLoader(
+                userRepository,
+                transactionManager,
+                properties.window(),
+                properties.maxBatchSize(),
+                properties.maxConcurrentBatches(),
+                meterRegistry);
+    }
+}
@@ -0,0 +1,20 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Lotes de buscas por ID do getUserById (prefixo app.users.batch-loader)
+@ConfigurationProperties(prefix = "app.users.batch-loader")
+public record UserBatchLoaderProperties(
+        // Desligado por padrão: a janela atrasa toda busca que vai ao banco, e só compensa
+        // com muitas buscas concorrentes por IDs diferentes (medir antes de ligar)
+        @DefaultValue("false") boolean enabled,
+        // Quanto o primeiro ID de um lote espera por outros
+        @DefaultValue("2ms") Duration window,
+        // Lote cheio vai para o banco na hora, sem esperar a janela
+        @DefaultValue("100") int maxBatchSize,
+        // Queries de lote ao mesmo tempo; com tudo ocupado, os lotes seguintes esperam
+        @DefaultValue("10") int maxConcurrentBatches) {
+}
@@ -0,0 +1,15 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Tamanho e expiração do cache de usuários (prefixo app.cache.users)
+@ConfigurationProperties(prefix = "app.cache.users")
+public record UserCacheProperties(
+        @DefaultValue("10000") long maximumSize,
+        @DefaultValue("5m") Duration ttl,
+        // IDs que não existem ficam menos tempo no cache
+        @DefaultValue("30s") Duration negativeTtl) {
+}
@@ -0,0 +1,37 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import joao.saraiva.agregadorinvestimentos.service.UserCsvExporter;
+import joao.saraiva.agregadorinvestimentos.service.UserCursor;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.io.BufferedOutputStream;
+import java.nio.file.Files;
+
+// Perfil export: grava o CSV de tb_users em app.users.export.file e sai
+// (ver application-export.properties)
+@Configuration
+@Profile("export")
+@EnableConfigurationProperties(UserExportProperties.class)
+public class UserExportConfig {
+
+    @Bean
+    public ApplicationRunner userExportRunner(UserCsvExporter userCsvExporter, UserExportProperties properties) {
+        return args -> {
+            if ((properties.afterCreationTimestamp() == null) != (properties.afterUserId() == null)) {
+                throw new IllegalArgumentException(
+                        "app.users.export.after-creation-timestamp and after-user-id must be set together");
+            }
+            var after = properties.afterUserId() == null
+                    ? null
+                    : new UserCursor(properties.afterCreationTimestamp(), properties.afterUserId());
+
+            try (var out = new BufferedOutputStream(Files.newOutputStream(properties.file()), 64 * 1024)) {
+                userCsvExporter.export(out, properties.compression(), after);
+            }
+        };
+    }
+}
@@ -0,0 +1,20 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import joao.saraiva.agregadorinvestimentos.service.UserExportCompression;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+
+// Exportação de usuários pela linha de comando (perfil export, prefixo app.users.export)
+@ConfigurationProperties(prefix = "app.users.export")
+public record UserExportProperties(
+        // Arquivo de saída; é sobrescrito
+        @DefaultValue("users.csv.gz") Path file,
+        @DefaultValue("gzip") UserExportCompression compression,
+        // Os dois juntos, da última linha de uma exportação interrompida: continua dali
+        Instant afterCreationTimestamp,
+        UUID afterUserId) {
+}
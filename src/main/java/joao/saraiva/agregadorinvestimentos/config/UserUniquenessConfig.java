@@ -0,0 +1,64 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import joao.saraiva.agregadorinvestimentos.repository.UserRepository;
+import joao.saraiva.agregadorinvestimentos.service.UserUniquenessFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Com app.users.uniqueness-filter.enabled=false o cadastro não faz checagem prévia e
+// um duplicado só é pego pelo índice único no INSERT
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "app.users.uniqueness-filter.enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(UserUniquenessProperties.class)
+public class UserUniquenessConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(UserUniquenessConfig.class);
+
+    private UserRepository userRepository;
+
+    private TransactionTemplate transactionTemplate;
+
+    public UserUniquenessConfig(UserRepository userRepository, PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Bean
+    public UserUniquenessFilter userUniquenessFilter(UserUniquenessProperties properties, MeterRegistry meterRegistry) {
+        return new UserUniquenessFilter(properties.expectedInsertions(), properties.falsePositiveRate(), meterRegistry);
+    }
+
+    // Carrega o filtro em segundo plano para não atrasar a subida; até terminar,
+    // toda checagem de unicidade vai ao banco
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildUniquenessFilter(ApplicationReadyEvent event) {
+
+        var filter = event.getApplicationContext().getBean(UserUniquenessFilter.class);
+
+        Thread.ofVirtual().name("user-uniqueness-rebuild").start(() -> {
+            try {
+                var start = System.nanoTime();
+                transactionTemplate.executeWithoutResult(status -> {
+                    try (var keys = userRepository.streamUniqueKeys()) {
+                        filter.rebuild(keys);
+                    }
+                });
+                log.info("User uniqueness filter ready in {} ms", (System.nanoTime() - start) / 1_000_000);
+            } catch (RuntimeException e) {
+                log.warn("Could not load the user uniqueness filter; every check will hit the database", e);
+            }
+        });
+    }
+}
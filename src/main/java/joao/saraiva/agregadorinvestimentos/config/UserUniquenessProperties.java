@@ -0,0 +1,14 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Filtro de unicidade de username/email do cadastro (prefixo app.users.uniqueness-filter)
+@ConfigurationProperties(prefix = "app.users.uniqueness-filter")
+public record UserUniquenessProperties(
+        @DefaultValue("true") boolean enabled,
+        // Usuários esperados; passar disso aumenta a taxa de falsos positivos
+        @DefaultValue("1000000") long expectedInsertions,
+        // Fração das checagens de username/email novos que ainda vai ao banco
+        @DefaultValue("0.01") double falsePositiveRate) {
+}
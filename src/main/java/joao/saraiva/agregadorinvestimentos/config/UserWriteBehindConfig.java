@@ -0,0 +1,38 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import joao.saraiva.agregadorinvestimentos.service.UserUpdateJournal;
+import joao.saraiva.agregadorinvestimentos.service.UserWriteBehindBuffer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+
+// Só existe com app.users.write-behind.enabled=true; sem isso o
+// UserService grava cada update direto no banco, como sempre
+@Configuration
+@ConditionalOnProperty(name = "app.users.write-behind.enabled", havingValue = "true")
+@EnableConfigurationProperties(UserWriteBehindProperties.class)
+public class UserWriteBehindConfig {
+
+    @Bean
+    public UserWriteBehindBuffer userWriteBehindBuffer(UserWriteBehindProperties properties,
+                                                       JdbcTemplate jdbcTemplate,
+                                                       PlatformTransactionManager transactionManager,
+                                                       EntityManagerFactory entityManagerFactory,
+                                                       CacheManager cacheManager) throws IOException {
+        return new UserWriteBehindBuffer(
+                new UserUpdateJournal(properties.journal()),
+                jdbcTemplate,
+                transactionManager,
+                entityManagerFactory,
+                cacheManager,
+                properties.flushInterval(),
+                properties.batchSize());
+    }
+}
@@ -0,0 +1,19 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+// Write-behind dos updates de usuário (prefixo app.users.write-behind)
+@ConfigurationProperties(prefix = "app.users.write-behind")
+public record UserWriteBehindProperties(
+        @DefaultValue("false") boolean enabled,
+        // De quanto em quanto tempo os updates acumulados vão para o banco
+        @DefaultValue("500ms") Duration flushInterval,
+        // UPDATEs por lote JDBC
+        @DefaultValue("500") int batchSize,
+        // Journal local (append-only) com os updates confirmados e ainda não gravados
+        @DefaultValue("data/user-updates.journal") Path journal) {
+}
@@ -0,0 +1,15 @@
+package joao.saraiva.agregadorinvestimentos.controller;
+
+import java.util.UUID;
+
+// Resultado de cada linha do import em lote: userId quando criou, error quando falhou
+public record BatchUserResultDto(int index, UUID userId, String error) {
+
+    public static BatchUserResultDto created(int index, UUID userId) {
+        return new BatchUserResultDto(index, userId, null);
+    }
+
+    public static BatchUserResultDto failed(int index, String error) {
+        return new BatchUserResultDto(index, null, error);
+    }
+}
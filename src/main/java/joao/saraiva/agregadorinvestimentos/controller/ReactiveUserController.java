@@ -0,0 +1,134 @@
+package joao.saraiva.agregadorinvestimentos.controller;
+
+import joao.saraiva.agregadorinvestimentos.service.ReactiveUserService;
+import joao.saraiva.agregadorinvestimentos.service.UserService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+
+// O mesmo contrato do UserController em WebFlux (perfil reactive). Nenhum endpoint
+// segura uma thread enquanto espera o banco: a resposta sai quando o Mono/Flux emite.
+// Diferenças em relação ao stack servlet: ver application-reactive.properties
+@RestController
+@Profile("reactive")
+@RequestMapping("/v1/users")
+public class ReactiveUserController {
+
+    private final ReactiveUserService userService;
+
+    public ReactiveUserController(ReactiveUserService userService) {
+        this.userService = userService;
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<Void>> createUser(@RequestBody CreateUserDto createUserDto) {
+
+        return userService.createUser(createUserDto)
+                .map(userId -> ResponseEntity.created(URI.create("/v1/users/" + userId)).build());
+    }
+
+    // Com ETag: se o If-None-Match bate, o WebFlux responde 304 sem serializar o corpo
+    @GetMapping("/{userId}")
+    public Mono<ResponseEntity<UserDto>> getUserById(@PathVariable("userId") String userId) {
+
+        return userService.getUserById(userId)
+                .map(user -> ResponseEntity.ok()
+                        .eTag(UserETag.of(user))
+                        .body(user))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<UserPageDto>> listUsers(@RequestParam(value = "cursor", required = false) String cursor,
+                                                       @RequestParam(value = "limit", defaultValue = "" + UserService.DEFAULT_PAGE_SIZE) int limit) {
+
+        return userService.listUsers(cursor, limit)
+                .map(ResponseEntity::ok)
+                // cursor inválido ou adulterado
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+
+    // Vários usuários por ID numa requisição (?ids=a,b,c), numa única query IN
+    @GetMapping(params = "ids")
+    public Mono<ResponseEntity<List<UserDto>>> getUsersByIds(@RequestParam("ids") List<String> ids) {
+
+        return userService.getUsersByIds(ids)
+                .map(ResponseEntity::ok)
+                // ID que não é UUID ou IDs demais
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+
+    @GetMapping(params = "username")
+    public Mono<ResponseEntity<UserDto>> getUserByUsername(@RequestParam("username") String username) {
+
+        return userService.getUserByUsername(username)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(params = "email")
+    public Mono<ResponseEntity<UserDto>> getUserByEmail(@RequestParam("email") String email) {
+
+        return userService.getUserByEmail(email)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(params = "usernamePrefix")
+    public Mono<ResponseEntity<List<UserDto>>> searchByUsernamePrefix(@RequestParam("usernamePrefix") String usernamePrefix,
+                                                                      @RequestParam(value = "limit", defaultValue = "" + UserService.DEFAULT_PAGE_SIZE) int limit) {
+
+        return userService.searchByUsernamePrefix(usernamePrefix, limit)
+                .collectList()
+                .map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+
+    // NDJSON com backpressure: o WebFlux só pede a próxima linha ao banco quando a
+    // anterior foi escrita na conexão, então um cliente lento não enche a memória
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<UserDto> streamUsers() {
+
+        return userService.streamUsers();
+    }
+
+    // Com If-Match, só atualiza se ninguém mudou o usuário desde o GET; senão 412
+    @PutMapping("/{userId}")
+    public Mono<ResponseEntity<Void>> updateUserById(@PathVariable("userId") String userId,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                     @RequestBody UpdateUserDto updateUserDto) {
+
+        Mono<Boolean> updated;
+        if (ifMatch == null || ifMatch.equals("*")) {
+            updated = userService.updateUserById(userId, updateUserDto);
+        } else {
+            var expectedVersion = UserETag.parseVersion(ifMatch.trim(), UUID.fromString(userId));
+            if (expectedVersion.isEmpty()) {
+                return Mono.just(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build());
+            }
+            updated = userService.updateUserById(userId, updateUserDto, expectedVersion.get());
+        }
+
+        return updated.map(found -> found
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{userId}")
+    public Mono<ResponseEntity<Void>> deleteById(@PathVariable("userId") String userId) {
+
+        return userService.deleteById(userId)
+                .map(deleted -> deleted
+                        ? ResponseEntity.noContent().build()
+                        : ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,92 @@
+package joao.saraiva.agregadorinvestimentos.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import joao.saraiva.agregadorinvestimentos.config.RateLimitCost;
+import joao.saraiva.agregadorinvestimentos.service.UserBatchService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+// Fica fora do UserController porque o @RequestMapping("/v1/users") da classe
+// transformaria ":batch" em "/v1/users/:batch"
+@RestController
+@Profile("!reactive") // importação em lote só existe no stack servlet
+public class UserBatchController {
+
+    private UserBatchService userBatchService;
+
+    private ObjectMapper objectMapper;
+
+    public UserBatchController(UserBatchService userBatchService, ObjectMapper objectMapper) {
+        this.userBatchService = userBatchService;
+        this.objectMapper = objectMapper;
+    }
+
+    // Aceita um array JSON ou NDJSON (um CreateUserDto por linha). O corpo é lido
+    // aos poucos, sem carregar a requisição inteira na memória, e a resposta (um array
+    // JSON com um resultado por linha) sai bloco a bloco, conforme cada um é gravado.
+    // Se algo falhar antes do primeiro bloco, a resposta é o erro normal (503, 500...);
+    // depois disso o status 200 já foi enviado e o array fica sem o "]" final, para o
+    // cliente não confundir uma importação interrompida com uma completa.
+    @PostMapping(path = "/v1/users:batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @RateLimitCost(50)
+    public void createUsers(InputStream body, HttpServletResponse response) throws IOException {
+
+        try (var users = objectMapper.readerFor(CreateUserDto.class).<CreateUserDto>readValues(body)) {
+            var output = new ResultWriter(response);
+            userBatchService.createUsers(users, output::write);
+            output.finish();
+        }
+    }
+
+    // O "[" só é escrito com o primeiro bloco, para um erro antes dele ainda poder virar
+    // uma resposta de erro
+    private final class ResultWriter {
+
+        private final HttpServletResponse response;
+
+        private JsonGenerator generator;
+
+        ResultWriter(HttpServletResponse response) {
+            this.response = response;
+        }
+
+        void write(List<BatchUserResultDto> results) {
+            try {
+                start();
+                for (var result : results) {
+                    generator.writeObject(result);
+                }
+                generator.flush();
+            } catch (IOException e) {
+                // Cliente desconectou: para de ler e gravar o resto da entrada
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() throws IOException {
+            start();
+            generator.writeEndArray();
+            generator.close();
+        }
+
+        private void start() throws IOException {
+            if (generator != null) {
+                return;
+            }
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            generator = objectMapper.createGenerator(response.getOutputStream())
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            generator.writeStartArray();
+        }
+    }
+}
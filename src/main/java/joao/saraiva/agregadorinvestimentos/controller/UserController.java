@@ -1,24 +1,41 @@
 package joao.saraiva.agregadorinvestimentos.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import joao.saraiva.agregadorinvestimentos.config.RateLimitCost;
 import joao.saraiva.agregadorinvestimentos.entity.User;
 import joao.saraiva.agregadorinvestimentos.service.UserService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.List;
+import java.util.UUID;
 
 @RestController
+@Profile("!reactive") // no perfil reactive quem atende é o ReactiveUserController
 @RequestMapping("/v1/users")
 public class UserController {
 
     private UserService userService;
 
-    public UserController(UserService userService) {
+    private ObjectMapper objectMapper;
+
+    public UserController(UserService userService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
+    @RateLimitCost(5) // BCrypt
     public ResponseEntity<User> createUser(@RequestBody CreateUserDto createUserDto){
 
         var userId = userService.createUser(createUserDto);
@@ -26,36 +43,128 @@ public class UserController {
         return ResponseEntity.created(URI.create("/v1/users" + userId.toString())).build();
     }
 
+    // Com ETag: se o If-None-Match bate, o Spring responde 304 sem serializar o corpo.
+    // O UserDto normalmente vem do cache "users", então o 304 nem vai ao banco.
     @GetMapping("/{userId}")
-    public ResponseEntity<User> getUserById(@PathVariable("userId") String userId) {
+    public ResponseEntity<UserDto> getUserById(@PathVariable("userId") String userId) {
         // Implement logic to retrieve user by userId
         var user = userService.getUserById(userId);
         if (user.isPresent()){
-            return ResponseEntity.ok(user.get());
+            return ResponseEntity.ok()
+                    .eTag(UserETag.of(user.get()))
+                    .body(user.get());
         } else {
             return ResponseEntity.notFound().build();
         }
     }
 
     @GetMapping
-    public ResponseEntity<List<User>> listUsers(){
-        var users = userService.listUsers();
+    @RateLimitCost(5)
+    public ResponseEntity<UserPageDto> listUsers(@RequestParam(value = "cursor", required = false) String cursor,
+                                                 @RequestParam(value = "limit", defaultValue = "" + UserService.DEFAULT_PAGE_SIZE) int limit){
+        try {
+            var users = userService.listUsers(cursor, limit);
+
+            return ResponseEntity.ok(users);
+        } catch (IllegalArgumentException e) {
+            // cursor inválido ou adulterado
+            return ResponseEntity.badRequest().build();
+        }
+    }
 
-        return ResponseEntity.ok(users);
+    // Vários usuários por ID numa requisição (?ids=a,b,c), numa única query IN.
+    // IDs que não existem ficam de fora da resposta
+    @GetMapping(params = "ids")
+    @RateLimitCost(5)
+    public ResponseEntity<List<UserDto>> getUsersByIds(@RequestParam("ids") List<String> ids) {
+        try {
+            return ResponseEntity.ok(userService.getUsersByIds(ids));
+        } catch (IllegalArgumentException e) {
+            // ID que não é UUID ou IDs demais
+            return ResponseEntity.badRequest().build();
+        }
     }
 
+    // Busca exata (case-insensitive) pelos índices únicos, sem precisar listar tudo
+    @GetMapping(params = "username")
+    public ResponseEntity<UserDto> getUserByUsername(@RequestParam("username") String username) {
+
+        return ResponseEntity.of(userService.getUserByUsername(username));
+    }
+
+    @GetMapping(params = "email")
+    public ResponseEntity<UserDto> getUserByEmail(@RequestParam("email") String email) {
+
+        return ResponseEntity.of(userService.getUserByEmail(email));
+    }
+
+    @GetMapping(params = "usernamePrefix")
+    @RateLimitCost(2)
+    public ResponseEntity<List<UserDto>> searchByUsernamePrefix(@RequestParam("usernamePrefix") String usernamePrefix,
+                                                                @RequestParam(value = "limit", defaultValue = "" + UserService.DEFAULT_PAGE_SIZE) int limit) {
+        try {
+            return ResponseEntity.ok(userService.searchByUsernamePrefix(usernamePrefix, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Exporta todos os usuários em NDJSON (um JSON por linha), escrevendo
+    // cada linha assim que ela sai do banco. A memória fica constante.
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @RateLimitCost(50) // a tabela inteira
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+
+        // Não fecha nem dá flush no stream a cada linha; o buffer do servlet cuida disso
+        var writer = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        StreamingResponseBody body = outputStream -> userService.streamUsers(user -> {
+            try {
+                writer.writeValue(outputStream, user);
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    // Com If-Match (ETag de um GET anterior), só atualiza se ninguém mudou o usuário
+    // desde então; senão 412 (UserVersionConflictException). Sem If-Match, a última escrita vence.
     @PutMapping("/{userId}")
+    @RateLimitCost(5) // BCrypt
     public ResponseEntity<Void> updateUserById(@PathVariable("userId") String userId,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
                                                @RequestBody UpdateUserDto updateUserDto) {
 
-        userService.updateUserById(userId, updateUserDto);
+        boolean updated;
+        if (ifMatch == null || ifMatch.equals("*")) {
+            updated = userService.updateUserById(userId, updateUserDto);
+        } else {
+            var expectedVersion = UserETag.parseVersion(ifMatch.trim(), UUID.fromString(userId));
+            if (expectedVersion.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            updated = userService.updateUserById(userId, updateUserDto, expectedVersion.get());
+        }
+        if (!updated) {
+            return ResponseEntity.notFound().build();
+        }
         return ResponseEntity.noContent().build();
 
     }
 
     @DeleteMapping("/{userId}")
     public ResponseEntity<Void> deleteById(@PathVariable("userId") String userId) {
-        userService.deleteById(userId);
+        var deleted = userService.deleteById(userId);
+        if (!deleted) {
+            return ResponseEntity.notFound().build();
+        }
 
         return ResponseEntity.noContent().build();
     }
@@ -0,0 +1,23 @@
+package joao.saraiva.agregadorinvestimentos.controller;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import joao.saraiva.agregadorinvestimentos.entity.User;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// O que a API devolve de um usuário (sem a senha). Nas listagens é montado
+// direto pela query (projeção), sem hidratar a entidade.
+// version é a coluna do lock otimista (+1 a cada UPDATE): vai no ETag, não no JSON
+public record UserDto(UUID userId,
+                      String username,
+                      String email,
+                      Instant creationTimestamp,
+                      Instant updateTimestamp,
+                      @JsonIgnore Long version) {
+
+    public static UserDto from(User user) {
+        return new UserDto(user.getUserId(), user.getUsername(), user.getEmail(),
+                user.getCreationTimestamp(), user.getUpdateTimestamp(), user.getVersion());
+    }
+}
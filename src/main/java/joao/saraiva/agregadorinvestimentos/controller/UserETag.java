@@ -0,0 +1,30 @@
+package joao.saraiva.agregadorinvestimentos.controller;
+
+import java.util.Optional;
+import java.util.UUID;
+
+// ETag forte de um usuário: "<userId>.<version>". Muda a cada update, porque todo
+// UPDATE incrementa a coluna version (mesmo dois no mesmo microssegundo).
+public final class UserETag {
+
+    private UserETag() {
+    }
+
+    public static String of(UserDto user) {
+        return "\"" + user.userId() + "." + user.version() + "\"";
+    }
+
+    // Versão esperada por um If-Match. Vazio quando o ETag não pode ser deste usuário
+    // (outro userId, ETag fraco, lista ou formato desconhecido): o update deve falhar com 412.
+    public static Optional<Long> parseVersion(String eTag, UUID userId) {
+        var prefix = "\"" + userId + ".";
+        if (!eTag.startsWith(prefix) || !eTag.endsWith("\"") || eTag.length() <= prefix.length() + 1) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Long.parseLong(eTag.substring(prefix.length(), eTag.length() - 1)));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package joao.saraiva.agregadorinvestimentos.controller;
+
+import joao.saraiva.agregadorinvestimentos.config.RateLimitCost;
+import joao.saraiva.agregadorinvestimentos.service.UserCsvExporter;
+import joao.saraiva.agregadorinvestimentos.service.UserCursor;
+import joao.saraiva.agregadorinvestimentos.service.UserExportCompression;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.UUID;
+
+// Snapshot de tb_users em CSV para o analytics (ver UserCsvExporter).
+// ?compression=none|gzip|zstd. Para continuar uma exportação interrompida, mande
+// afterCreationTimestamp e afterUserId com os valores da última linha recebida.
+@RestController
+@Profile("!reactive") // o stack reativo não tem JPA
+public class UserExportController {
+
+    private UserCsvExporter userCsvExporter;
+
+    public UserExportController(UserCsvExporter userCsvExporter) {
+        this.userCsvExporter = userCsvExporter;
+    }
+
+    @GetMapping("/v1/users/export")
+    @RateLimitCost(50) // a tabela inteira
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(value = "compression", defaultValue = "none") String compression,
+                                                             @RequestParam(value = "afterCreationTimestamp", required = false) String afterCreationTimestamp,
+                                                             @RequestParam(value = "afterUserId", required = false) String afterUserId) {
+
+        UserExportCompression format;
+        UserCursor after = null;
+        try {
+            format = UserExportCompression.valueOf(compression.toUpperCase(Locale.ROOT));
+            if (afterCreationTimestamp != null || afterUserId != null) {
+                if (afterCreationTimestamp == null || afterUserId == null) {
+                    return ResponseEntity.badRequest().build();
+                }
+                after = new UserCursor(Instant.parse(afterCreationTimestamp), UUID.fromString(afterUserId));
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        var cursor = after;
+        StreamingResponseBody body = outputStream -> userCsvExporter.export(outputStream, format, cursor);
+
+        var contentType = format == UserExportCompression.NONE
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : MediaType.parseMediaType(format.contentType());
+
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("users" + format.fileExtension())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+}
@@ -0,0 +1,358 @@
+package joao.saraiva.agregadorinvestimentos.controller;
+
+import com.google.protobuf.Empty;
+import com.google.protobuf.Timestamp;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import joao.saraiva.agregadorinvestimentos.grpc.CreateUserRequest;
+import joao.saraiva.agregadorinvestimentos.grpc.CreateUserResponse;
+import joao.saraiva.agregadorinvestimentos.grpc.CreateUserResult;
+import joao.saraiva.agregadorinvestimentos.grpc.CreateUsersResponse;
+import joao.saraiva.agregadorinvestimentos.grpc.DeleteUserRequest;
+import joao.saraiva.agregadorinvestimentos.grpc.GetUserRequest;
+import joao.saraiva.agregadorinvestimentos.grpc.ListUsersRequest;
+import joao.saraiva.agregadorinvestimentos.grpc.UpdateUserRequest;
+import joao.saraiva.agregadorinvestimentos.grpc.User;
+import joao.saraiva.agregadorinvestimentos.grpc.UserServiceGrpc;
+import joao.saraiva.agregadorinvestimentos.service.PasswordHashingBusyException;
+import joao.saraiva.agregadorinvestimentos.service.UserAlreadyExistsException;
+import joao.saraiva.agregadorinvestimentos.service.UserBatchService;
+import joao.saraiva.agregadorinvestimentos.service.UserService;
+import joao.saraiva.agregadorinvestimentos.service.UserVersionConflictException;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// As operações do UserController e do UserBatchController em gRPC (user_service.proto),
+// chamando os mesmos services: cache, loader em lote, filtro de unicidade e write-behind
+// valem igual. Registrado no servidor do GrpcServerConfig, não no Spring MVC.
+public class UserGrpcService extends UserServiceGrpc.UserServiceImplBase {
+
+    // Quantos usuários do CreateUsers podem estar recebidos e ainda não lidos pelo
+    // UserBatchService; o cliente só manda mais quando o serviço consome
+    static final int CREATE_USERS_PREFETCH = 100;
+
+    private UserService userService;
+
+    private UserBatchService userBatchService;
+
+    public UserGrpcService(UserService userService, UserBatchService userBatchService) {
+        this.userService = userService;
+        this.userBatchService = userBatchService;
+    }
+
+    @Override
+    public void createUser(CreateUserRequest request, StreamObserver<CreateUserResponse> responseObserver) {
+        try {
+            var userId = userService.createUser(toDto(request));
+
+            responseObserver.onNext(CreateUserResponse.newBuilder().setUserId(userId.toString()).build());
+            responseObserver.onCompleted();
+        } catch (RuntimeException e) {
+            responseObserver.onError(toStatus(e));
+        }
+    }
+
+    @Override
+    public void getUser(GetUserRequest request, StreamObserver<User> responseObserver) {
+        try {
+            var user = userService.getUserById(request.getUserId())
+                    .orElseThrow(() -> Status.NOT_FOUND.withDescription("User not found").asRuntimeException());
+
+            responseObserver.onNext(toMessage(user));
+            responseObserver.onCompleted();
+        } catch (RuntimeException e) {
+            responseObserver.onError(toStatus(e));
+        }
+    }
+
+    // Sem expected_version a última escrita vence, como o PUT sem If-Match
+    @Override
+    public void updateUser(UpdateUserRequest request, StreamObserver<Empty> responseObserver) {
+        try {
+            var updateUserDto = new UpdateUserDto(emptyToNull(request.getUsername()), emptyToNull(request.getPassword()));
+
+            var updated = request.hasExpectedVersion()
+                    ? userService.updateUserById(request.getUserId(), updateUserDto, request.getExpectedVersion())
+                    : userService.updateUserById(request.getUserId(), updateUserDto);
+            if (!updated) {
+                throw Status.NOT_FOUND.withDescription("User not found").asRuntimeException();
+            }
+
+            responseObserver.onNext(Empty.getDefaultInstance());
+            responseObserver.onCompleted();
+        } catch (RuntimeException e) {
+            responseObserver.onError(toStatus(e));
+        }
+    }
+
+    @Override
+    public void deleteUser(DeleteUserRequest request, StreamObserver<Empty> responseObserver) {
+        try {
+            if (!userService.deleteById(request.getUserId())) {
+                throw Status.NOT_FOUND.withDescription("User not found").asRuntimeException();
+            }
+
+            responseObserver.onNext(Empty.getDefaultInstance());
+            responseObserver.onCompleted();
+        } catch (RuntimeException e) {
+            responseObserver.onError(toStatus(e));
+        }
+    }
+
+    // Lê do banco com o mesmo cursor do NDJSON (streamUsers) e só manda a próxima linha
+    // quando o transporte aceita (isReady): cliente lento segura a leitura do banco em vez
+    // de acumular mensagens na memória. Roda numa thread própria, porque os avisos de
+    // onReady chegam pelo mesmo executor que chamou este método.
+    @Override
+    public void listUsers(ListUsersRequest request, StreamObserver<User> responseObserver) {
+
+        var call = (ServerCallStreamObserver<User>) responseObserver;
+        var ready = new ReadySignal(call);
+
+        Thread.ofVirtual().name("grpc-list-users").start(() -> {
+            try {
+                userService.streamUsers(user -> {
+                    ready.await();
+                    call.onNext(toMessage(user));
+                });
+                call.onCompleted();
+            } catch (RuntimeException e) {
+                if (!call.isCancelled()) {
+                    call.onError(toStatus(e));
+                }
+            }
+        });
+    }
+
+    // O UserBatchService lê os usuários de um Iterator, em blocos; aqui o Iterator é
+    // alimentado pelas mensagens do cliente. Com o auto request desligado, cada mensagem
+    // lida pelo serviço libera a próxima, então a memória fica em CREATE_USERS_PREFETCH.
+    // Na volta, um CreateUsersResponse por bloco gravado, enviado quando o transporte
+    // aceita: cliente que não lê as respostas segura a importação, como no ListUsers.
+    @Override
+    public StreamObserver<CreateUserRequest> createUsers(StreamObserver<CreateUsersResponse> responseObserver) {
+
+        var call = (ServerCallStreamObserver<CreateUsersResponse>) responseObserver;
+        call.disableAutoRequest();
+        var requests = new RequestQueue(call);
+        var ready = new ReadySignal(call);
+        call.request(CREATE_USERS_PREFETCH);
+
+        Thread.ofVirtual().name("grpc-create-users").start(() -> {
+            try {
+                userBatchService.createUsers(requests, results -> {
+                    ready.await();
+                    call.onNext(toMessage(results));
+                });
+                if (requests.failed()) {
+                    // O cliente desistiu ou falhou; não há para quem responder
+                    return;
+                }
+                call.onCompleted();
+            } catch (RuntimeException e) {
+                if (!call.isCancelled()) {
+                    call.onError(toStatus(e));
+                }
+            }
+        });
+
+        return requests;
+    }
+
+    static User toMessage(UserDto user) {
+        // Os setters do protobuf não aceitam null: campo null fica ausente (string vazia)
+        var message = User.newBuilder().setUserId(user.userId().toString());
+        if (user.username() != null) {
+            message.setUsername(user.username());
+        }
+        if (user.email() != null) {
+            message.setEmail(user.email());
+        }
+        if (user.creationTimestamp() != null) {
+            message.setCreationTimestamp(toTimestamp(user.creationTimestamp()));
+        }
+        if (user.updateTimestamp() != null) {
+            message.setUpdateTimestamp(toTimestamp(user.updateTimestamp()));
+        }
+        if (user.version() != null) {
+            message.setVersion(user.version());
+        }
+        return message.build();
+    }
+
+    static CreateUsersResponse toMessage(List<BatchUserResultDto> results) {
+        var response = CreateUsersResponse.newBuilder();
+        for (var result : results) {
+            var message = CreateUserResult.newBuilder().setIndex(result.index());
+            if (result.userId() != null) {
+                message.setUserId(result.userId().toString());
+            }
+            if (result.error() != null) {
+                message.setError(result.error());
+            }
+            response.addResults(message);
+        }
+        return response.build();
+    }
+
+    static Timestamp toTimestamp(Instant instant) {
+        return Timestamp.newBuilder().setSeconds(instant.getEpochSecond()).setNanos(instant.getNano()).build();
+    }
+
+    static Instant toInstant(Timestamp timestamp) {
+        return Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos());
+    }
+
+    private static CreateUserDto toDto(CreateUserRequest request) {
+        return new CreateUserDto(emptyToNull(request.getUsername()), emptyToNull(request.getEmail()),
+                emptyToNull(request.getPassword()));
+    }
+
+    // Em proto3 campo não enviado e string vazia são a mesma coisa; no REST seria null
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    // Os mesmos casos que viram 400/404/409/412/503 no REST
+    static StatusRuntimeException toStatus(RuntimeException e) {
+        if (e instanceof StatusRuntimeException status) {
+            return status;
+        }
+        if (e instanceof UserAlreadyExistsException) {
+            return Status.ALREADY_EXISTS.withDescription(e.getMessage()).asRuntimeException();
+        }
+        if (e instanceof UserVersionConflictException) {
+            // Test-and-set que falhou: o cliente relê e tenta de novo
+            return Status.ABORTED.withDescription(e.getMessage()).asRuntimeException();
+        }
+        if (e instanceof PasswordHashingBusyException) {
+            return Status.UNAVAILABLE.withDescription(e.getMessage()).asRuntimeException();
+        }
+        if (e instanceof IllegalArgumentException) {
+            // ID que não é UUID, senha longa demais para o BCrypt
+            return Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException();
+        }
+        return Status.INTERNAL.withDescription("Internal error").withCause(e).asRuntimeException();
+    }
+
+    // Espera o transporte aceitar mais uma mensagem, ou o cliente cancelar
+    private static final class ReadySignal {
+
+        private final ServerCallStreamObserver<?> call;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Condition changed = lock.newCondition();
+
+        ReadySignal(ServerCallStreamObserver<?> call) {
+            this.call = call;
+            call.setOnReadyHandler(this::signal);
+            call.setOnCancelHandler(this::signal);
+        }
+
+        void await() {
+            lock.lock();
+            try {
+                while (!call.isReady()) {
+                    if (call.isCancelled()) {
+                        throw Status.CANCELLED.withDescription("Client cancelled").asRuntimeException();
+                    }
+                    changed.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw Status.CANCELLED.withDescription("Interrupted").asRuntimeException();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void signal() {
+            lock.lock();
+            try {
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Mensagens do cliente como Iterator do UserBatchService. Erro do cliente vira uma
+    // exceção no next(), que o serviço trata como entrada inválida e encerra.
+    private static final class RequestQueue implements Iterator<CreateUserDto>, StreamObserver<CreateUserRequest> {
+
+        private static final CreateUserDto END = new CreateUserDto(null, null, null);
+
+        private static final CreateUserDto FAILED = new CreateUserDto(null, null, null);
+
+        private final ServerCallStreamObserver<?> call;
+
+        private final LinkedBlockingQueue<CreateUserDto> queue = new LinkedBlockingQueue<>();
+
+        private CreateUserDto next;
+
+        private volatile boolean failed;
+
+        RequestQueue(ServerCallStreamObserver<?> call) {
+            this.call = call;
+        }
+
+        @Override
+        public void onNext(CreateUserRequest request) {
+            queue.add(toDto(request));
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            failed = true;
+            queue.add(FAILED);
+        }
+
+        @Override
+        public void onCompleted() {
+            queue.add(END);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failed = true;
+                    next = FAILED;
+                }
+                if (next != END && next != FAILED) {
+                    call.request(1);
+                }
+            }
+            return next != END;
+        }
+
+        @Override
+        public CreateUserDto next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (next == FAILED) {
+                throw new IllegalStateException("Client stream failed");
+            }
+            var current = next;
+            next = null;
+            return current;
+        }
+
+        boolean failed() {
+            return failed;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package joao.saraiva.agregadorinvestimentos.controller;
+
+import java.util.List;
+
+// nextCursor é null quando não há mais páginas
+public record UserPageDto(List<UserDto> users, String nextCursor) {
+}
@@ -1,26 +1,47 @@
 package joao.saraiva.agregadorinvestimentos.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.annotations.UuidGenerator;
+import org.hibernate.type.SqlTypes;
 import java.time.Instant;
 import java.util.UUID;
 
 @Entity
-@Table(name = "tb_users")
+@Cacheable // Entra no cache de segundo nível (região "users", ver hibernate-cache.conf)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+// O schema vem das migrations em db/migration (Flyway); o Hibernate só valida.
+// Tamanhos e índices aqui espelham as migrations (são usados quando um teste gera o schema)
+@Table(name = "tb_users", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_users_username", columnNames = "username"),
+        @UniqueConstraint(name = "uk_users_email", columnNames = "email")
+}, indexes = {
+        // Índice da paginação por keyset (ORDER BY creation_timestamp, user_id), com as
+        // outras colunas do UserDto para as listagens não precisarem ler a linha
+        @Index(name = "idx_users_keyset", columnList = "creation_timestamp, user_id, username, email, update_timestamp, version")
+})
 public class User {
 
+    public static final String CACHE_REGION = "users";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID) // Hibernate vai gerar o UUID
+    @GeneratedValue
+    @UuidGenerator(algorithm = UuidV7Generator.class) // UUID v7, ordenado pelo tempo
+    @JdbcTypeCode(SqlTypes.BINARY) // BINARY(16) em vez de texto: 16 bytes em vez de 36
+    @Column(name = "user_id", length = 16, nullable = false, updatable = false)
     private UUID userId;
 
-    @Column(name = "username", unique = true) // Geralmente username e email são únicos
+    @Column(name = "username", length = 64)
     private String username;
 
-    @Column(name = "email", unique = true) // Geralmente username e email são únicos
+    @Column(name = "email", length = 254) // Tamanho máximo de um email (RFC 5321)
     private String email;
 
-    @Column(name = "password")
+    @Column(name = "password", length = 100) // Hash BCrypt (60 caracteres)
     private String password;
 
     @CreationTimestamp // Hibernate preenche automaticamente na criação
@@ -29,6 +50,13 @@ public class User {
     @UpdateTimestamp // Hibernate preenche automaticamente na atualização
     private Instant updateTimestamp;
 
+    // Lock otimista: todo UPDATE incrementa (inclusive os feitos por JDBC, no
+    // UserWriteRepositoryImpl e no write-behind), e um save de uma entidade com versão
+    // velha falha com OptimisticLockException em vez de sobrescrever o que outro gravou
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     public User() {
         // Construtor padrão necessário para JPA
     }
@@ -101,4 +129,12 @@ public class User {
     public void setUpdateTimestamp(Instant updateTimestamp) {
         this.updateTimestamp = updateTimestamp;
     }
-}
\ No newline at end of file
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
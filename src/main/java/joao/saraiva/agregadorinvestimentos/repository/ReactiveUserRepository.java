@@ -0,0 +1,225 @@
+package joao.saraiva.agregadorinvestimentos.repository;
+
+import io.r2dbc.spi.Readable;
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.UUID;
+
+// Acesso a tb_users do stack reativo (perfil reactive), com SQL direto pelo DatabaseClient
+// do R2DBC: as mesmas consultas do UserRepository, sem entidade gerenciada nem cache de
+// segundo nível. As listagens saem como UserDto, montado direto da linha.
+@Repository
+@Profile("reactive")
+public class ReactiveUserRepository {
+
+    public static final int STREAM_FETCH_SIZE = UserRepository.STREAM_FETCH_SIZE;
+
+    private static final String USER_DTO_COLUMNS = "user_id, username, email, creation_timestamp, update_timestamp, version";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveUserRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Void> insert(UUID userId, String username, String email, String password, Instant creationTimestamp) {
+
+        var spec = databaseClient.sql("""
+                        insert into tb_users (user_id, username, email, password, creation_timestamp, version)
+                        values (:userId, :username, :email, :password, :creationTimestamp, 0)""")
+                .bind("userId", toBytes(userId))
+                .bind("creationTimestamp", creationTimestamp);
+        spec = bindNullable(spec, "username", username);
+        spec = bindNullable(spec, "email", email);
+        spec = bindNullable(spec, "password", password);
+
+        return spec.then();
+    }
+
+    public Mono<UserDto> findById(UUID userId) {
+
+        return databaseClient.sql("select " + USER_DTO_COLUMNS + " from tb_users where user_id = :userId")
+                .bind("userId", toBytes(userId))
+                .map(ReactiveUserRepository::toUserDto)
+                .one();
+    }
+
+    // Multi-get (GET /v1/users?ids=): uma query só, com a lista expandida no IN.
+    // IDs que não existem não voltam; a ordem é a do banco
+    public Flux<UserDto> findAllById(Collection<UUID> userIds) {
+
+        if (userIds.isEmpty()) {
+            return Flux.empty();
+        }
+
+        return databaseClient.sql("select " + USER_DTO_COLUMNS + " from tb_users where user_id in (:userIds)")
+                .bind("userIds", userIds.stream().map(ReactiveUserRepository::toBytes).toList())
+                .map(ReactiveUserRepository::toUserDto)
+                .all();
+    }
+
+    // Mesma comparação case-insensitive do UserRepository, pela collation da coluna
+    public Mono<UserDto> findByUsername(String username) {
+
+        return databaseClient.sql("select " + USER_DTO_COLUMNS + " from tb_users where username = :username")
+                .bind("username", username)
+                .map(ReactiveUserRepository::toUserDto)
+                .one();
+    }
+
+    public Mono<UserDto> findByEmail(String email) {
+
+        return databaseClient.sql("select " + USER_DTO_COLUMNS + " from tb_users where email = :email")
+                .bind("email", email)
+                .map(ReactiveUserRepository::toUserDto)
+                .one();
+    }
+
+    // LIKE 'prefixo%' com % e _ escapados: range scan no índice único de username.
+    // "!" como escape porque "\" precisaria ser escrito diferente no MySQL e no H2
+    public Flux<UserDto> findByUsernameStartingWith(String prefix, int limit) {
+
+        var pattern = prefix.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+
+        return databaseClient.sql("select " + USER_DTO_COLUMNS + """
+                         from tb_users
+                        where username like :pattern escape '!'
+                        order by username
+                        limit :limit""")
+                .bind("pattern", pattern)
+                .bind("limit", limit)
+                .map(ReactiveUserRepository::toUserDto)
+                .all();
+    }
+
+    // Paginação por keyset, igual ao UserRepository (índice idx_users_keyset)
+    public Flux<UserDto> findFirstPage(int limit) {
+
+        return databaseClient.sql("select " + USER_DTO_COLUMNS + """
+                         from tb_users
+                        order by creation_timestamp, user_id
+                        limit :limit""")
+                .bind("limit", limit)
+                .map(ReactiveUserRepository::toUserDto)
+                .all();
+    }
+
+    public Flux<UserDto> findPageAfter(Instant creationTimestamp, UUID userId, int limit) {
+
+        return databaseClient.sql("select " + USER_DTO_COLUMNS + """
+                         from tb_users
+                        where creation_timestamp > :creationTimestamp
+                           or (creation_timestamp = :creationTimestamp and user_id > :userId)
+                        order by creation_timestamp, user_id
+                        limit :limit""")
+                .bind("creationTimestamp", creationTimestamp)
+                .bind("userId", toBytes(userId))
+                .bind("limit", limit)
+                .map(ReactiveUserRepository::toUserDto)
+                .all();
+    }
+
+    // A tabela inteira, com backpressure: o driver só pede mais linhas ao banco
+    // (STREAM_FETCH_SIZE por vez, de um cursor no servidor) conforme quem assina consome.
+    public Flux<UserDto> streamAll() {
+
+        return databaseClient.sql("select " + USER_DTO_COLUMNS + " from tb_users order by creation_timestamp, user_id")
+                .filter(statement -> statement.fetchSize(STREAM_FETCH_SIZE))
+                .map(ReactiveUserRepository::toUserDto)
+                .all();
+    }
+
+    // O mesmo UPDATE do UserWriteRepositoryImpl, numa ida só (sem cache de segundo nível
+    // para invalidar aqui); version + 1 faz o papel do @Version.
+    // Retorna quantas linhas foram afetadas (0 = usuário não existe).
+    public Mono<Long> updateUserById(UUID userId, String username, String password, Instant updateTimestamp) {
+
+        var spec = databaseClient.sql("""
+                        update tb_users
+                           set username = coalesce(:username, username),
+                               password = coalesce(:password, password),
+                               update_timestamp = :updateTimestamp,
+                               version = version + 1
+                         where user_id = :userId""")
+                .bind("userId", toBytes(userId))
+                .bind("updateTimestamp", updateTimestamp);
+        spec = bindNullable(spec, "username", username);
+        spec = bindNullable(spec, "password", password);
+
+        return spec.fetch().rowsUpdated();
+    }
+
+    // Só atualiza se a coluna version ainda for a esperada (If-Match)
+    public Mono<Long> updateUserByIdIfVersion(UUID userId, String username, String password, Instant updateTimestamp,
+                                              long expectedVersion) {
+
+        var spec = databaseClient.sql("""
+                        update tb_users
+                           set username = coalesce(:username, username),
+                               password = coalesce(:password, password),
+                               update_timestamp = :updateTimestamp,
+                               version = version + 1
+                         where user_id = :userId
+                           and version = :expectedVersion""")
+                .bind("userId", toBytes(userId))
+                .bind("updateTimestamp", updateTimestamp)
+                .bind("expectedVersion", expectedVersion);
+        spec = bindNullable(spec, "username", username);
+        spec = bindNullable(spec, "password", password);
+
+        return spec.fetch().rowsUpdated();
+    }
+
+    public Mono<Boolean> existsById(UUID userId) {
+
+        return databaseClient.sql("select 1 from tb_users where user_id = :userId")
+                .bind("userId", toBytes(userId))
+                .map(row -> true)
+                .first()
+                .defaultIfEmpty(false);
+    }
+
+    public Mono<Long> deleteUserById(UUID userId) {
+
+        return databaseClient.sql("delete from tb_users where user_id = :userId")
+                .bind("userId", toBytes(userId))
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec,
+                                                                  String name, String value) {
+        return value == null ? spec.bindNull(name, String.class) : spec.bind(name, value);
+    }
+
+    // BINARY(16) na mesma ordem de bytes que o Hibernate usa (msb depois lsb)
+    static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    static UUID toUuid(byte[] bytes) {
+        var buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static UserDto toUserDto(Readable row) {
+        return new UserDto(
+                toUuid(row.get("user_id", byte[].class)),
+                row.get("username", String.class),
+                row.get("email", String.class),
+                row.get("creation_timestamp", Instant.class),
+                row.get("update_timestamp", Instant.class),
+                row.get("version", Long.class));
+    }
+}
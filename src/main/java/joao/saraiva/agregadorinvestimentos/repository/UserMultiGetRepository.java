@@ -0,0 +1,22 @@
+package joao.saraiva.agregadorinvestimentos.repository;
+
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+// Buscas por vários IDs que, como o findById, passam pelo cache de segundo nível.
+// Fragmento do UserRepository, implementado em UserMultiGetRepositoryImpl
+public interface UserMultiGetRepository {
+
+    // Os usuários que estão no cache de segundo nível saem de lá; o resto vem numa única
+    // query WHERE user_id IN (...) e entra no cache. IDs que não existem não voltam.
+    // Na transação de quem chama, ou numa read-only própria
+    @Transactional(readOnly = true)
+    List<UserDto> findAllUsersById(Collection<UUID> userIds);
+
+    // true quando findById(userId) sairia do cache de segundo nível, sem SQL
+    boolean isCached(UUID userId);
+}
@@ -0,0 +1,44 @@
+package joao.saraiva.agregadorinvestimentos.repository;
+
+import jakarta.persistence.EntityManager;
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
+import joao.saraiva.agregadorinvestimentos.entity.User;
+import org.hibernate.Session;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+class UserMultiGetRepositoryImpl implements UserMultiGetRepository {
+
+    private EntityManager entityManager;
+
+    UserMultiGetRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    // multiLoad do Hibernate: confere o persistence context e o cache de segundo nível
+    // antes de ir ao banco, e busca os que faltam num lote só (withBatchSize)
+    @Override
+    public List<UserDto> findAllUsersById(Collection<UUID> userIds) {
+
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+
+        return entityManager.unwrap(Session.class)
+                .byMultipleIds(User.class)
+                .withBatchSize(userIds.size())
+                .multiLoad(List.copyOf(userIds))
+                .stream()
+                .filter(Objects::nonNull) // não existe
+                .map(UserDto::from)
+                .toList();
+    }
+
+    @Override
+    public boolean isCached(UUID userId) {
+        return entityManager.getEntityManagerFactory().getCache().contains(User.class, userId);
+    }
+}
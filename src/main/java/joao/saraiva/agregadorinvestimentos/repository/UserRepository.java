@@ -1,12 +1,85 @@
 package joao.saraiva.agregadorinvestimentos.repository;
 
+import jakarta.persistence.QueryHint;
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
 import joao.saraiva.agregadorinvestimentos.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, UUID> {
+public interface UserRepository extends JpaRepository<User, UUID>, UserMultiGetRepository, UserWriteRepository {
+
+    int STREAM_FETCH_SIZE = 1000;
+
+    // Listagens da API: seleciona só as colunas do UserDto (sem a senha) e monta
+    // o record direto do ResultSet, sem entidade gerenciada nem snapshot.
+    // Busca por ID fica no findById: o loader por ID do Hibernate é mais barato que
+    // uma query JPQL e ainda usa o cache de segundo nível (ver UserReadModelBenchmark).
+    String USER_DTO = "new joao.saraiva.agregadorinvestimentos.controller.UserDto("
+            + "u.userId, u.username, u.email, u.creationTimestamp, u.updateTimestamp, u.version)";
+
+    // Buscas pelos índices únicos de username e email. A comparação é case-insensitive
+    // pela collation da coluna (utf8mb4_0900_ai_ci), não por lower()/upper(), que
+    // impediriam o MySQL de usar o índice. Ver db/migration/mysql
+    Optional<UserDto> findByUsername(String username);
+
+    Optional<UserDto> findByEmail(String email);
+
+    // Conferências de unicidade do cadastro (quando o UserUniquenessFilter diz "talvez"):
+    // só tocam o índice único, sem ler a linha
+    boolean existsByUsername(String username);
+
+    boolean existsByEmail(String email);
+
+    // No update: o próprio usuário mantendo o username não conta como duplicado
+    boolean existsByUsernameAndUserIdNot(String username, UUID userId);
+
+    // LIKE 'prefixo%' (com % e _ escapados) vira um range scan no mesmo índice
+    List<UserDto> findByUsernameStartingWithOrderByUsername(String prefix, Limit limit);
+
+    // Paginação por keyset: a ordem (creationTimestamp, userId) é estável e usa o índice,
+    // então cada página custa o mesmo, não importa o quão "fundo" o cliente esteja.
+    // As páginas vão para o cache de queries, que é invalidado a cada escrita em tb_users.
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select " + USER_DTO + " from User u order by u.creationTimestamp, u.userId")
+    List<UserDto> findFirstPage(Limit limit);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select " + USER_DTO + """
+             from User u
+            where u.creationTimestamp > :creationTimestamp
+               or (u.creationTimestamp = :creationTimestamp and u.userId > :userId)
+            order by u.creationTimestamp, u.userId""")
+    List<UserDto> findPageAfter(Instant creationTimestamp, UUID userId, Limit limit);
+
+    // Com useCursorFetch=true na URL, o driver do MySQL busca STREAM_FETCH_SIZE linhas
+    // por vez de um cursor no servidor em vez de carregar o ResultSet inteiro na memória.
+    // Como é projeção, nada entra no persistence context nem no cache de segundo nível.
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("select " + USER_DTO + " from User u order by u.creationTimestamp, u.userId")
+    Stream<UserDto> streamAll();
+
+    // Só as colunas únicas de todos os usuários, para o rebuild do UserUniquenessFilter.
+    // Em cursor, como o streamAll, sem carregar a tabela na memória
+    interface UniqueKeys {
+        String getUsername();
+
+        String getEmail();
+    }
 
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("select u.username as username, u.email as email from User u")
+    Stream<UniqueKeys> streamUniqueKeys();
 }
@@ -0,0 +1,36 @@
+package joao.saraiva.agregadorinvestimentos.repository;
+
+import joao.saraiva.agregadorinvestimentos.entity.User;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+import java.util.UUID;
+
+// UPDATE e DELETE de um usuário numa ida só ao banco, por JDBC e não por JPQL em massa:
+// depois de um "update User u ..." o Hibernate limpa a região "users" inteira do cache de
+// segundo nível (não sabe quais IDs mudaram). Aqui só aquele usuário sai do cache, e o
+// resto da região continua valendo (inclusive para o isCached do UserBatchLoader).
+// Fragmento do UserRepository, implementado em UserWriteRepositoryImpl
+public interface UserWriteRepository {
+
+    // Retornam quantas linhas foram afetadas (0 = usuário não existe).
+    // Campos null não são alterados; updateTimestamp e version mudam como no @UpdateTimestamp e no @Version
+    @Transactional
+    int updateUserById(UUID userId, String username, String password);
+
+    // Mesmo update, mas só se a coluna version ainda for a esperada (If-Match), no mesmo
+    // statement ("where version = ?"). 0 = não existe ou já mudou
+    @Transactional
+    int updateUserByIdIfVersion(UUID userId, String username, String password, long expectedVersion);
+
+    @Transactional
+    int deleteUserById(UUID userId);
+
+    // Leituras que decidem uma escrita (404 ou 412?). Numa transação read-write, então vão
+    // ao primário mesmo com réplicas: numa réplica atrasada o usuário pode "não existir"
+    @Transactional
+    boolean existsForWrite(UUID userId);
+
+    @Transactional
+    Optional<User> findForWrite(UUID userId);
+}
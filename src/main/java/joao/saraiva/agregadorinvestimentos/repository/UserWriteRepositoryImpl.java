@@ -0,0 +1,126 @@
+package joao.saraiva.agregadorinvestimentos.repository;
+
+import jakarta.persistence.EntityManager;
+import joao.saraiva.agregadorinvestimentos.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.type.descriptor.ValueBinder;
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.UUID;
+
+class UserWriteRepositoryImpl implements UserWriteRepository {
+
+    // Mesmos nomes de coluna do mapeamento da entidade User; version + 1 faz o papel do
+    // @Version e o update_timestamp o do @UpdateTimestamp
+    private static final String UPDATE_SQL = """
+            update tb_users
+            set username = coalesce(?, username),
+                password = coalesce(?, password),
+                update_timestamp = ?,
+                version = version + 1
+            where user_id = ?""";
+
+    // Compara e grava no mesmo statement: a linha travada pelo UPDATE é a que tem a versão
+    private static final String UPDATE_IF_VERSION_SQL = UPDATE_SQL + " and version = ?";
+
+    private static final String DELETE_SQL = "delete from tb_users where user_id = ?";
+
+    private EntityManager entityManager;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private SessionFactory sessionFactory;
+
+    // user_id (BINARY(16)) e update_timestamp (UTC) ligados como o Hibernate liga na entidade
+    private ValueBinder<Object> userIdBinder;
+
+    private ValueBinder<Object> timestampBinder;
+
+    private WrapperOptions wrapperOptions;
+
+    UserWriteRepositoryImpl(EntityManager entityManager, JdbcTemplate jdbcTemplate) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+
+        var factory = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        var users = factory.getMappingMetamodel().getEntityDescriptor(User.class);
+        this.sessionFactory = factory;
+        this.userIdBinder = users.getIdentifierMapping().getSingleJdbcMapping().getJdbcValueBinder();
+        this.timestampBinder = users.findAttributeMapping("updateTimestamp").getSingleJdbcMapping().getJdbcValueBinder();
+        this.wrapperOptions = factory.getWrapperOptions();
+    }
+
+    // Um UPDATE só, sem carregar a entidade. Sem versão esperada a última escrita vence:
+    // updates concorrentes da mesma linha se enfileiram no lock da própria linha
+    @Override
+    public int updateUserById(UUID userId, String username, String password) {
+
+        return update(UPDATE_SQL, userId, username, password, null);
+    }
+
+    // Também um UPDATE só, direto no banco: a versão nunca é lida do cache de segundo nível,
+    // então um cache atrasado ou adiantado em relação ao banco não muda o resultado
+    @Override
+    public int updateUserByIdIfVersion(UUID userId, String username, String password, long expectedVersion) {
+        return update(UPDATE_IF_VERSION_SQL, userId, username, password, expectedVersion);
+    }
+
+    @Override
+    public int deleteUserById(UUID userId) {
+
+        var deleted = jdbcTemplate.update(DELETE_SQL, ps -> userIdBinder.bind(ps, userId, 1, wrapperOptions));
+
+        evictAfterCompletion(userId);
+        return deleted;
+    }
+
+    @Override
+    public boolean existsForWrite(UUID userId) {
+        return findForWrite(userId).isPresent();
+    }
+
+    // Pode sair do cache de segundo nível, que acompanha as escritas desta instância
+    @Override
+    public Optional<User> findForWrite(UUID userId) {
+        return Optional.ofNullable(entityManager.find(User.class, userId));
+    }
+
+    private int update(String sql, UUID userId, String username, String password, Long expectedVersion) {
+
+        // Na precisão do banco, como o @UpdateTimestamp
+        var now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        var updated = jdbcTemplate.update(sql, ps -> {
+            ps.setString(1, username);
+            ps.setString(2, password);
+            timestampBinder.bind(ps, now, 3, wrapperOptions);
+            userIdBinder.bind(ps, userId, 4, wrapperOptions);
+            if (expectedVersion != null) {
+                ps.setLong(5, expectedVersion);
+            }
+        });
+
+        evictAfterCompletion(userId);
+        return updated;
+    }
+
+    // O Hibernate não viu o UPDATE/DELETE por JDBC: sai do cache de segundo nível só esse
+    // usuário, e as páginas em cache (como no UserWriteBehindBuffer). Depois do commit,
+    // para uma leitura no meio da transação não pôr o valor velho de volta no cache
+    private void evictAfterCompletion(UUID userId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                var cache = sessionFactory.getCache();
+                cache.evict(User.class, userId);
+                cache.evictQueryRegions();
+            }
+        });
+    }
+}
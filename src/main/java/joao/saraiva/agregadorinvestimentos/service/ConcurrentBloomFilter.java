@@ -0,0 +1,90 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bloom filter de strings que várias threads podem consultar e alimentar ao mesmo tempo,
+// sem lock: os bits ficam num AtomicLongArray e cada put liga os seus com CAS.
+// "Não contém" é definitivo; "talvez contenha" erra em ~falsePositiveRate das vezes
+// enquanto o número de chaves não passar de expectedInsertions. Não dá para remover.
+final class ConcurrentBloomFilter {
+
+    private final AtomicLongArray words;
+
+    private final long bitCount;
+
+    private final int hashFunctions;
+
+    ConcurrentBloomFilter(long expectedInsertions, double falsePositiveRate) {
+
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter size");
+        }
+
+        // m = -n ln(p) / ln(2)^2 bits e k = m/n ln(2) funções de hash (tamanhos ótimos)
+        var bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        var wordCount = Math.toIntExact(Math.max(1, (bits + 63) / 64));
+
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = wordCount * 64L;
+        this.hashFunctions = (int) Math.max(1, Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    void put(String key) {
+
+        var bytes = key.getBytes(StandardCharsets.UTF_8);
+        var h1 = hash(bytes, 0x9E3779B97F4A7C15L);
+        var h2 = hash(bytes, 0xC2B2AE3D27D4EB4FL);
+
+        // Double hashing (Kirsch-Mitzenmacher): k posições a partir de dois hashes
+        for (int i = 0; i < hashFunctions; i++) {
+            var bit = Math.floorMod(h1 + i * h2, bitCount);
+            var index = (int) (bit >>> 6);
+            var mask = 1L << bit;
+            while (true) {
+                var current = words.get(index);
+                if ((current & mask) != 0 || words.compareAndSet(index, current, current | mask)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    boolean mightContain(String key) {
+
+        var bytes = key.getBytes(StandardCharsets.UTF_8);
+        var h1 = hash(bytes, 0x9E3779B97F4A7C15L);
+        var h2 = hash(bytes, 0xC2B2AE3D27D4EB4FL);
+
+        for (int i = 0; i < hashFunctions; i++) {
+            var bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long bitCount() {
+        return bitCount;
+    }
+
+    int hashFunctions() {
+        return hashFunctions;
+    }
+
+    // FNV-1a de 64 bits com semente, seguido do finalizador do MurmurHash3 para espalhar os bits
+    private static long hash(byte[] bytes, long seed) {
+        var h = 0xCBF29CE484222325L ^ seed;
+        for (var b : bytes) {
+            h ^= b;
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
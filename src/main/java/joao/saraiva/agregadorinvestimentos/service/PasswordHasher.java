@@ -0,0 +1,189 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Faz o hash das senhas num pool próprio, com um worker por núcleo, para o
+// BCrypt não disputar CPU com as threads das requisições.
+//
+// Backpressure: no máximo workers + queueCapacity hashes ficam pendentes.
+// Uma requisição espera até acquireTimeout por uma vaga e depois recebe
+// PasswordHashingBusyException (503). A importação em lote espera sem limite,
+// mas nunca ocupa mais que "workers" vagas, então sempre sobra fila para as
+// requisições interativas.
+//
+// Métricas: user.password.hash (tempo de cada hash), user.password.hash.rejected
+// e executor.* com name=password.hasher (executor.queued = profundidade da fila).
+public class PasswordHasher implements AutoCloseable {
+
+    public static final String METRIC_NAME = "user.password.hash";
+
+    // O BCrypt só usa os primeiros 72 bytes (UTF-8) da senha, e o BCryptPasswordEncoder
+    // recusa o resto com IllegalArgumentException em vez de truncar
+    public static final int MAX_PASSWORD_BYTES = 72;
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final ExecutorService executor;
+
+    private final Semaphore permits;
+
+    private final Semaphore bulkPermits;
+
+    private final Duration acquireTimeout;
+
+    private final Timer hashTimer;
+
+    private final Counter rejected;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+                          int workers,
+                          int queueCapacity,
+                          Duration acquireTimeout,
+                          MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.permits = new Semaphore(workers + queueCapacity);
+        this.bulkPermits = new Semaphore(workers);
+        this.acquireTimeout = acquireTimeout;
+
+        var threadNumber = new AtomicInteger();
+        // A fila em si não tem limite; quem limita são os permits acima
+        var pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    var thread = new Thread(runnable, "password-hasher-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "password.hasher");
+
+        this.hashTimer = Timer.builder(METRIC_NAME)
+                .description("Time spent hashing one password")
+                .register(meterRegistry);
+        this.rejected = Counter.builder(METRIC_NAME + ".rejected")
+                .description("Hash requests refused because the pool was full")
+                .register(meterRegistry);
+    }
+
+    // Para requisições: null continua null (ex.: update sem troca de senha)
+    public String hash(String rawPassword) {
+
+        if (rawPassword == null) {
+            return null;
+        }
+        checkLength(rawPassword);
+
+        try {
+            if (!permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new PasswordHashingBusyException();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException();
+        }
+
+        return await(submit(rawPassword, permits));
+    }
+
+    // Para o stack reativo (ReactiveUserService): não bloqueia quem chamou. Sem vaga
+    // na hora, falha com PasswordHashingBusyException em vez de esperar acquireTimeout
+    public CompletableFuture<String> hashAsync(String rawPassword) {
+
+        if (rawPassword == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (isTooLong(rawPassword)) {
+            return CompletableFuture.failedFuture(new PasswordTooLongException());
+        }
+
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new PasswordHashingBusyException());
+        }
+
+        return submit(rawPassword, permits);
+    }
+
+    // Para importação em lote: dispara os hashes em paralelo e bloqueia quem
+    // chamou enquanto não houver vaga, em vez de recusar. As senhas longas demais já
+    // devem ter sido separadas (isTooLong): aqui uma delas recusa a lista inteira
+    public List<String> hashAll(List<String> rawPasswords) {
+
+        rawPasswords.forEach(PasswordHasher::checkLength);
+
+        var futures = new ArrayList<CompletableFuture<String>>(rawPasswords.size());
+
+        for (var rawPassword : rawPasswords) {
+            if (rawPassword == null) {
+                futures.add(CompletableFuture.completedFuture(null));
+                continue;
+            }
+            bulkPermits.acquireUninterruptibly();
+            permits.acquireUninterruptibly();
+            futures.add(submit(rawPassword, permits, bulkPermits));
+        }
+
+        return futures.stream().map(this::await).toList();
+    }
+
+    public static boolean isTooLong(String rawPassword) {
+        return rawPassword != null && rawPassword.getBytes(StandardCharsets.UTF_8).length > MAX_PASSWORD_BYTES;
+    }
+
+    // Antes de pegar vaga no pool: é erro do cliente (400), não sobrecarga
+    public static void checkLength(String rawPassword) {
+        if (isTooLong(rawPassword)) {
+            throw new PasswordTooLongException();
+        }
+    }
+
+    private CompletableFuture<String> submit(String rawPassword, Semaphore... held) {
+        try {
+            return CompletableFuture
+                    .supplyAsync(() -> hashTimer.record(() -> passwordEncoder.encode(rawPassword)), executor)
+                    .whenComplete((hash, error) -> release(held));
+        } catch (RuntimeException e) {
+            // Pool já desligado
+            release(held);
+            throw e;
+        }
+    }
+
+    private static void release(Semaphore... held) {
+        for (var semaphore : held) {
+            semaphore.release();
+        }
+    }
+
+    private String await(CompletableFuture<String> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
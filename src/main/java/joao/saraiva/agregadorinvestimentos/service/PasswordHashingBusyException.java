@@ -0,0 +1,13 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// O pool de hash de senha está cheio; o cliente deve tentar de novo depois
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public PasswordHashingBusyException() {
+        super("Password hashing is overloaded, try again later");
+    }
+}
@@ -0,0 +1,16 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Senha com mais de PasswordHasher.MAX_PASSWORD_BYTES bytes, que o BCrypt não aceita.
+// É uma IllegalArgumentException: no gRPC vira INVALID_ARGUMENT, como um ID inválido
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class PasswordTooLongException extends IllegalArgumentException {
+
+    public static final String MESSAGE = "Password cannot be longer than " + PasswordHasher.MAX_PASSWORD_BYTES + " bytes";
+
+    public PasswordTooLongException() {
+        super(MESSAGE);
+    }
+}
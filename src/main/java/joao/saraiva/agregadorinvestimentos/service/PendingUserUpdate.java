@@ -0,0 +1,38 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// Um update confirmado e ainda não gravado no banco. Campos null não mudam,
+// igual ao PUT. A password já vem com hash.
+// version é a versão do usuário depois deste update (não um incremento), para
+// reaplicar o mesmo update do journal não contar duas vezes
+public record PendingUserUpdate(UUID userId, String username, String password, Instant updateTimestamp, long version) {
+
+    // Junta com um update mais novo do mesmo usuário: o que veio depois ganha
+    public PendingUserUpdate merge(PendingUserUpdate newer) {
+        return new PendingUserUpdate(
+                userId,
+                newer.username() != null ? newer.username() : username,
+                newer.password() != null ? newer.password() : password,
+                newer.updateTimestamp(),
+                Math.max(version, newer.version()));
+    }
+
+    public PendingUserUpdate withVersion(long version) {
+        return new PendingUserUpdate(userId, username, password, updateTimestamp, version);
+    }
+
+    // O que o getUserById deve devolver enquanto o update não chega ao banco
+    public UserDto applyTo(UserDto user) {
+        return new UserDto(
+                user.userId(),
+                username != null ? username : user.username(),
+                user.email(),
+                user.creationTimestamp(),
+                updateTimestamp,
+                version);
+    }
+}
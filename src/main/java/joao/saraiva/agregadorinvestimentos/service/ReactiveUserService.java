@@ -0,0 +1,206 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import joao.saraiva.agregadorinvestimentos.controller.CreateUserDto;
+import joao.saraiva.agregadorinvestimentos.controller.UpdateUserDto;
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
+import joao.saraiva.agregadorinvestimentos.controller.UserPageDto;
+import joao.saraiva.agregadorinvestimentos.entity.UuidV7Generator;
+import joao.saraiva.agregadorinvestimentos.repository.ReactiveUserRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+// O UserService do stack reativo (perfil reactive): mesmas regras, mas nenhuma thread
+// fica parada esperando o banco ou o BCrypt. Não tem cache, write-behind nem réplicas.
+// Sem os Bloom filters do UserUniquenessFilter: um username/email repetido é pego pelo
+// índice único no INSERT/UPDATE e vira UserAlreadyExistsException (409), como no UserService
+@Service
+@Profile("reactive")
+public class ReactiveUserService {
+
+    private final ReactiveUserRepository userRepository;
+
+    private final PasswordHasher passwordHasher;
+
+    public ReactiveUserService(ReactiveUserRepository userRepository, PasswordHasher passwordHasher) {
+        this.userRepository = userRepository;
+        this.passwordHasher = passwordHasher;
+    }
+
+    public Mono<UUID> createUser(CreateUserDto createUserDto) {
+
+        // O ID é gerado aqui (no stack servlet é o Hibernate que chama o UuidV7Generator)
+        var userId = UuidV7Generator.generate();
+
+        return hash(createUserDto.password())
+                .flatMap(password -> userRepository.insert(userId, createUserDto.username(), createUserDto.email(),
+                        password.orElse(null), Instant.now().truncatedTo(ChronoUnit.MICROS)))
+                .onErrorResume(DataIntegrityViolationException.class,
+                        e -> alreadyExists(e, createUserDto.username(), createUserDto.email(), null))
+                .thenReturn(userId);
+    }
+
+    public Mono<UserDto> getUserById(String userId) {
+
+        return Mono.fromCallable(() -> UUID.fromString(userId))
+                .flatMap(userRepository::findById);
+    }
+
+    // Multi-get (GET /v1/users?ids=): na ordem pedida, sem repetições; IDs que não
+    // existem ficam de fora. IllegalArgumentException para ID inválido ou IDs demais
+    public Mono<List<UserDto>> getUsersByIds(List<String> userIds) {
+
+        if (userIds.size() > UserService.MAX_PAGE_SIZE) {
+            return Mono.error(new IllegalArgumentException("At most " + UserService.MAX_PAGE_SIZE + " ids"));
+        }
+
+        return Mono.fromCallable(() -> userIds.stream().map(UUID::fromString).distinct().toList())
+                .flatMap(ids -> userRepository.findAllById(ids)
+                        .collectMap(UserDto::userId)
+                        .map(found -> ids.stream()
+                                .map(found::get)
+                                .filter(Objects::nonNull)
+                                .toList()));
+    }
+
+    public Mono<UserDto> getUserByUsername(String username) {
+
+        return userRepository.findByUsername(username);
+    }
+
+    public Mono<UserDto> getUserByEmail(String email) {
+
+        return userRepository.findByEmail(email);
+    }
+
+    // Prefixo vazio seria uma varredura da tabela inteira
+    public Flux<UserDto> searchByUsernamePrefix(String prefix, int pageSize) {
+
+        if (prefix == null || prefix.isBlank()) {
+            return Flux.error(new IllegalArgumentException("Prefix must not be blank"));
+        }
+
+        return userRepository.findByUsernameStartingWith(prefix, clampPageSize(pageSize));
+    }
+
+    public Mono<UserPageDto> listUsers(String cursor, int pageSize) {
+
+        var limit = clampPageSize(pageSize);
+
+        // Busca uma linha a mais só para saber se existe próxima página
+        var rows = cursor == null
+                ? userRepository.findFirstPage(limit + 1)
+                : Mono.fromCallable(() -> UserCursor.decode(cursor))
+                        .flatMapMany(decoded -> userRepository.findPageAfter(decoded.creationTimestamp(), decoded.userId(), limit + 1));
+
+        return rows.collectList()
+                .map(users -> {
+                    if (users.size() <= limit) {
+                        return new UserPageDto(users, null);
+                    }
+                    var page = users.subList(0, limit);
+                    var last = page.get(limit - 1);
+                    return new UserPageDto(page, new UserCursor(last.creationTimestamp(), last.userId()).encode());
+                });
+    }
+
+    // Linha a linha, no ritmo de quem consome (o cliente HTTP): nada é acumulado na memória
+    public Flux<UserDto> streamUsers() {
+
+        return userRepository.streamAll();
+    }
+
+    // false quando o usuário não existe. Sem versão esperada: a última escrita vence.
+    public Mono<Boolean> updateUserById(String userId, UpdateUserDto updateUserDto) {
+
+        return update(userId, updateUserDto, null);
+    }
+
+    // Com versão esperada (If-Match): UserVersionConflictException se o usuário mudou
+    public Mono<Boolean> updateUserById(String userId, UpdateUserDto updateUserDto, long expectedVersion) {
+
+        return update(userId, updateUserDto, expectedVersion);
+    }
+
+    private Mono<Boolean> update(String userId, UpdateUserDto updateUserDto, @Nullable Long expectedVersion) {
+
+        var id = UUID.fromString(userId);
+
+        return hash(updateUserDto.password())
+                .flatMap(password -> {
+                    // Na precisão do banco
+                    var now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+                    return Mono.defer(() -> expectedVersion == null
+                                    ? userRepository.updateUserById(id, updateUserDto.username(), password.orElse(null), now)
+                                    : userRepository.updateUserByIdIfVersion(id, updateUserDto.username(), password.orElse(null), now, expectedVersion))
+                            // Mesma política do UserService: até UPDATE_MAX_ATTEMPTS tentativas com espera exponencial e aleatória
+                            .retryWhen(Retry.backoff(UserService.UPDATE_MAX_ATTEMPTS - 1, UserService.UPDATE_RETRY_BASE_DELAY)
+                                    .maxBackoff(UserService.UPDATE_RETRY_MAX_DELAY)
+                                    .jitter(1.0)
+                                    .filter(ConcurrencyFailureException.class::isInstance)
+                                    .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                            .onErrorResume(DataIntegrityViolationException.class,
+                                    e -> alreadyExists(e, updateUserDto.username(), null, id));
+                })
+                .flatMap(updated -> {
+                    if (updated == 0 && expectedVersion != null) {
+                        return userRepository.existsById(id).flatMap(exists -> exists
+                                ? Mono.error(new UserVersionConflictException())
+                                : Mono.just(false));
+                    }
+                    return Mono.just(updated > 0);
+                });
+    }
+
+    // false quando o usuário não existe
+    public Mono<Boolean> deleteById(String userId) {
+
+        return Mono.fromCallable(() -> UUID.fromString(userId))
+                .flatMap(userRepository::deleteUserById)
+                .map(deleted -> deleted > 0);
+    }
+
+    // O INSERT/UPDATE violou uma constraint: se foi porque o username ou o email já é de
+    // outro usuário, UserAlreadyExistsException (409); senão o erro original sobe.
+    // userId: o usuário sendo atualizado, que pode manter o próprio username
+    private <T> Mono<T> alreadyExists(DataIntegrityViolationException e, @Nullable String username,
+                                      @Nullable String email, @Nullable UUID userId) {
+
+        var byUsername = username == null
+                ? Mono.<UserDto>empty()
+                : userRepository.findByUsername(username).filter(user -> !user.userId().equals(userId));
+        var byEmail = email == null ? Mono.<UserDto>empty() : userRepository.findByEmail(email);
+
+        return byUsername.switchIfEmpty(byEmail)
+                .hasElement()
+                .flatMap(taken -> Mono.error(taken ? new UserAlreadyExistsException() : e));
+    }
+
+    // Senha null continua null (update sem troca de senha); o Optional é porque um
+    // Mono não carrega null
+    private Mono<Optional<String>> hash(String rawPassword) {
+
+        if (rawPassword == null) {
+            return Mono.just(Optional.empty());
+        }
+
+        return Mono.fromFuture(() -> passwordHasher.hashAsync(rawPassword))
+                .map(Optional::of);
+    }
+
+    private static int clampPageSize(int pageSize) {
+        return Math.max(1, Math.min(pageSize, UserService.MAX_PAGE_SIZE));
+    }
+}
@@ -0,0 +1,13 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Username ou email já usado por outro usuário
+@ResponseStatus(HttpStatus.CONFLICT)
+public class UserAlreadyExistsException extends RuntimeException {
+
+    public UserAlreadyExistsException() {
+        super("Username or email already exists");
+    }
+}
@@ -0,0 +1,178 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
+import joao.saraiva.agregadorinvestimentos.repository.UserRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Junta as buscas por ID que chegam dentro de "window" (ou até maxBatchSize IDs) numa
+// única query WHERE user_id IN (...), como um DataLoader. Cada chamador recebe o seu
+// resultado num CompletableFuture; o mesmo ID pedido duas vezes no lote vira um só.
+//
+// Só vale para quem não achou o usuário no cache "users" nem no de segundo nível:
+// usuário que está no cache de segundo nível é lido na hora, sem esperar a janela.
+// O custo é até "window" a mais de latência numa busca que vai ao banco sozinha; em
+// troca, N buscas concorrentes custam uma ida ao banco e uma conexão em vez de N.
+//
+// Métricas: user.loader.batch.size (IDs por query) e user.loader.coalesced
+// (buscas que pegaram carona num ID já pendente).
+public class UserBatchLoader implements AutoCloseable {
+
+    public static final String METRIC_PREFIX = "user.loader";
+
+    private static final int QUEUED_BATCHES_PER_THREAD = 4;
+
+    private final UserRepository userRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Duration window;
+
+    private final int maxBatchSize;
+
+    private final ScheduledExecutorService scheduler;
+
+    // No máximo maxConcurrentBatches queries de lote ao mesmo tempo (não adianta mais do
+    // que o pool de conexões) e uma fila limitada de lotes prontos. Fila cheia: o lote roda
+    // em quem despachou (o timer ou o chamador que encheu o lote), que assim para de abrir
+    // lotes novos enquanto o banco não anda, em vez de criar uma thread por lote
+    private final ThreadPoolExecutor executor;
+
+    private final DistributionSummary batchSizes;
+
+    private final Counter coalesced;
+
+    // Protege "batch" e "scheduled"
+    private final Object lock = new Object();
+
+    private Map<UUID, CompletableFuture<Optional<UserDto>>> batch = new LinkedHashMap<>();
+
+    private ScheduledFuture<?> scheduled;
+
+    public UserBatchLoader(UserRepository userRepository,
+                           PlatformTransactionManager transactionManager,
+                           Duration window,
+                           int maxBatchSize,
+                           int maxConcurrentBatches,
+                           MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        // readOnly: com réplicas, o lote vai para uma réplica
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.executor = new ThreadPoolExecutor(maxConcurrentBatches, maxConcurrentBatches, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxConcurrentBatches * QUEUED_BATCHES_PER_THREAD),
+                Thread.ofPlatform().name("user-batch-loader-", 0).daemon().factory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("user-batch-loader-timer").daemon().factory());
+        this.batchSizes = DistributionSummary.builder(METRIC_PREFIX + ".batch.size").register(meterRegistry);
+        this.coalesced = Counter.builder(METRIC_PREFIX + ".coalesced").register(meterRegistry);
+    }
+
+    // Optional vazio = o usuário não existe
+    public CompletableFuture<Optional<UserDto>> load(UUID userId) {
+
+        if (userRepository.isCached(userId)) {
+            return CompletableFuture.completedFuture(userRepository.findById(userId).map(UserDto::from));
+        }
+
+        Map<UUID, CompletableFuture<Optional<UserDto>>> full = null;
+        CompletableFuture<Optional<UserDto>> future;
+
+        synchronized (lock) {
+            future = batch.get(userId);
+            if (future != null) {
+                coalesced.increment();
+                return future;
+            }
+
+            future = new CompletableFuture<>();
+            batch.put(userId, future);
+
+            if (batch.size() >= maxBatchSize) {
+                full = takeBatch();
+            } else if (batch.size() == 1) {
+                // O primeiro ID do lote abre a janela
+                scheduled = scheduler.schedule(this::dispatchScheduled, window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        if (full != null) {
+            dispatch(full);
+        }
+        return future;
+    }
+
+    // Espera o resultado de load() relançando a exceção original da query
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        dispatchScheduled(); // o que ficou na janela ainda é respondido
+        executor.close();
+    }
+
+    private Map<UUID, CompletableFuture<Optional<UserDto>>> takeBatch() {
+        var taken = batch;
+        batch = new LinkedHashMap<>();
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        return taken;
+    }
+
+    private void dispatchScheduled() {
+        Map<UUID, CompletableFuture<Optional<UserDto>>> taken;
+        synchronized (lock) {
+            taken = takeBatch();
+        }
+        if (!taken.isEmpty()) {
+            dispatch(taken);
+        }
+    }
+
+    private void dispatch(Map<UUID, CompletableFuture<Optional<UserDto>>> taken) {
+        batchSizes.record(taken.size());
+        executor.execute(() -> {
+            try {
+                var users = transactionTemplate.execute(status -> userRepository.findAllUsersById(taken.keySet()));
+                var byId = users.stream().collect(Collectors.toMap(UserDto::userId, Function.identity()));
+                taken.forEach((userId, future) -> future.complete(Optional.ofNullable(byId.get(userId))));
+            } catch (RuntimeException e) {
+                taken.values().forEach(future -> future.completeExceptionally(e));
+            }
+        });
+    }
+}
@@ -0,0 +1,179 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import joao.saraiva.agregadorinvestimentos.controller.BatchUserResultDto;
+import joao.saraiva.agregadorinvestimentos.controller.CreateUserDto;
+import joao.saraiva.agregadorinvestimentos.entity.User;
+import joao.saraiva.agregadorinvestimentos.repository.UserRepository;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Timed(UserService.METRIC_NAME)
+@Service
+@Profile("!reactive") // importação em lote só existe no stack servlet
+public class UserBatchService {
+
+    private UserRepository userRepository;
+
+    private EntityManager entityManager;
+
+    private PasswordHasher passwordHasher;
+
+    private TransactionTemplate transactionTemplate;
+
+    private int chunkSize;
+
+    // null quando app.users.uniqueness-filter.enabled=false
+    private UserUniquenessFilter uniquenessFilter;
+
+    public UserBatchService(UserRepository userRepository,
+                            EntityManager entityManager,
+                            PasswordHasher passwordHasher,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.users.batch.chunk-size:500}") int chunkSize,
+                            @Nullable UserUniquenessFilter uniquenessFilter) {
+        this.userRepository = userRepository;
+        this.entityManager = entityManager;
+        this.passwordHasher = passwordHasher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.uniquenessFilter = uniquenessFilter;
+    }
+
+    // Lê os usuários de forma incremental e grava em blocos de chunkSize,
+    // um commit por bloco. Com hibernate.jdbc.batch_size cada bloco vira
+    // poucos INSERTs em lote em vez de uma ida ao banco por usuário.
+    // Os resultados de cada bloco vão para onChunk logo depois do commit, em ordem de
+    // índice: nada fica acumulado aqui, a memória não depende do tamanho da entrada.
+    public void createUsers(Iterator<CreateUserDto> users, Consumer<List<BatchUserResultDto>> onChunk) {
+
+        var chunk = new ArrayList<CreateUserDto>(chunkSize);
+        var index = 0;
+
+        while (true) {
+            CreateUserDto next;
+            try {
+                if (!users.hasNext()) {
+                    break;
+                }
+                next = users.next();
+            } catch (RuntimeException e) {
+                // Entrada malformada: o que veio antes continua gravado, o resto é descartado
+                insertChunk(index - chunk.size(), chunk, onChunk);
+                onChunk.accept(List.of(BatchUserResultDto.failed(index, "Invalid input")));
+                return;
+            }
+
+            chunk.add(next);
+            index++;
+
+            if (chunk.size() == chunkSize) {
+                insertChunk(index - chunk.size(), chunk, onChunk);
+                chunk.clear();
+            }
+        }
+
+        insertChunk(index - chunk.size(), chunk, onChunk);
+    }
+
+    private void insertChunk(int firstIndex, List<CreateUserDto> rawChunk, Consumer<List<BatchUserResultDto>> onChunk) {
+
+        if (rawChunk.isEmpty()) {
+            return;
+        }
+
+        // Senha que o BCrypt recusaria falha só a própria linha, antes do hash do bloco
+        var chunkResults = new ArrayList<BatchUserResultDto>(rawChunk.size());
+        var indexes = new ArrayList<Integer>(rawChunk.size());
+        var accepted = new ArrayList<CreateUserDto>(rawChunk.size());
+        for (int i = 0; i < rawChunk.size(); i++) {
+            if (PasswordHasher.isTooLong(rawChunk.get(i).password())) {
+                chunkResults.add(BatchUserResultDto.failed(firstIndex + i, PasswordTooLongException.MESSAGE));
+            } else {
+                indexes.add(firstIndex + i);
+                accepted.add(rawChunk.get(i));
+            }
+        }
+
+        if (!accepted.isEmpty()) {
+            // Hash do bloco inteiro em paralelo, fora da transação
+            var chunk = hashPasswords(accepted);
+
+            try {
+                var saved = transactionTemplate.execute(status -> save(chunk));
+
+                for (int i = 0; i < saved.size(); i++) {
+                    chunkResults.add(BatchUserResultDto.created(indexes.get(i), saved.get(i).getUserId()));
+                }
+            } catch (DataAccessException e) {
+                // Uma linha ruim derruba o bloco inteiro; refaz linha a linha
+                // para descobrir qual falhou e salvar as demais
+                for (int i = 0; i < chunk.size(); i++) {
+                    chunkResults.add(insertOne(indexes.get(i), chunk.get(i)));
+                }
+            }
+        }
+
+        chunkResults.sort(Comparator.comparingInt(BatchUserResultDto::index));
+        onChunk.accept(chunkResults);
+    }
+
+    private List<CreateUserDto> hashPasswords(List<CreateUserDto> chunk) {
+
+        var hashes = passwordHasher.hashAll(chunk.stream().map(CreateUserDto::password).toList());
+
+        var hashed = new ArrayList<CreateUserDto>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            var dto = chunk.get(i);
+            hashed.add(new CreateUserDto(dto.username(), dto.email(), hashes.get(i)));
+        }
+        return hashed;
+    }
+
+    private BatchUserResultDto insertOne(int index, CreateUserDto createUserDto) {
+        try {
+            var saved = transactionTemplate.execute(status -> save(List.of(createUserDto)));
+            return BatchUserResultDto.created(index, saved.get(0).getUserId());
+        } catch (DataIntegrityViolationException e) {
+            return BatchUserResultDto.failed(index, "Username or email already exists");
+        } catch (DataAccessException e) {
+            return BatchUserResultDto.failed(index, "Could not create user");
+        }
+    }
+
+    private List<User> save(List<CreateUserDto> chunk) {
+
+        // Usuários importados em massa não vão para o cache de segundo nível
+        entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+
+        var entities = chunk.stream()
+                .map(dto -> new User(dto.username(), dto.email(), dto.password()))
+                .toList();
+
+        var saved = userRepository.saveAll(entities);
+        userRepository.flush();
+        // Depois do flush: se o bloco falhar, nada dele entra no filtro
+        if (uniquenessFilter != null) {
+            entities.forEach(user -> uniquenessFilter.put(user.getUsername(), user.getEmail()));
+        }
+        // Esvazia o persistence context para a memória não crescer a cada bloco
+        entityManager.clear();
+
+        return saved;
+    }
+}
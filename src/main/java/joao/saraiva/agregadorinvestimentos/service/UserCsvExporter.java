@@ -0,0 +1,184 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import joao.saraiva.agregadorinvestimentos.entity.User;
+import joao.saraiva.agregadorinvestimentos.repository.UserRepository;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.type.descriptor.ValueBinder;
+import org.hibernate.type.descriptor.ValueExtractor;
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.UUID;
+
+// Exportação de tb_users em CSV (GET /v1/users/export e o perfil export) para o
+// snapshot noturno do analytics. As linhas vêm de um ResultSet forward-only, read-only,
+// de STREAM_FETCH_SIZE em STREAM_FETCH_SIZE (cursor no servidor com useCursorFetch=true),
+// e cada uma é escrita direto no CSV: sem entidade, sem UserDto, memória constante.
+//
+// A ordem é a do keyset (creation_timestamp, user_id), lida do índice idx_users_keyset,
+// que cobre todas as colunas exportadas. Uma exportação interrompida continua de onde
+// parou passando o creation_timestamp e o user_id da última linha recebida (after).
+// A senha nunca é exportada.
+@Service
+@Profile("!reactive") // o stack reativo não tem JPA
+public class UserCsvExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(UserCsvExporter.class);
+
+    static final String HEADER = "user_id,username,email,creation_timestamp,update_timestamp";
+
+    private static final String SELECT = "select user_id, username, email, creation_timestamp, update_timestamp from tb_users";
+
+    private static final String ORDER_BY = " order by creation_timestamp, user_id";
+
+    private static final String AFTER = " where creation_timestamp > ? or (creation_timestamp = ? and user_id > ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    // Timestamps lidos e ligados exatamente como o Hibernate faz na entidade User
+    // (o tipo da coluna muda entre MySQL e H2), como no UserWriteBehindBuffer
+    private final ValueExtractor<Instant> timestampExtractor;
+
+    private final ValueBinder<Object> timestampBinder;
+
+    private final ValueBinder<Object> userIdBinder;
+
+    private final WrapperOptions wrapperOptions;
+
+    @SuppressWarnings("unchecked")
+    public UserCsvExporter(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           EntityManagerFactory entityManagerFactory) {
+        // Cópia só para a exportação: o fetch size não vale para as outras queries
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(UserRepository.STREAM_FETCH_SIZE);
+        // readOnly: com réplicas, a exportação lê de uma réplica
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+
+        var factory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        var users = factory.getMappingMetamodel().getEntityDescriptor(User.class);
+        var timestamp = users.findAttributeMapping("creationTimestamp").getSingleJdbcMapping();
+        this.timestampExtractor = (ValueExtractor<Instant>) timestamp.getJdbcValueExtractor();
+        this.timestampBinder = timestamp.getJdbcValueBinder();
+        this.userIdBinder = users.getIdentifierMapping().getSingleJdbcMapping().getJdbcValueBinder();
+        this.wrapperOptions = factory.getWrapperOptions();
+    }
+
+    // Escreve o CSV (com cabeçalho) em "out", sem fechá-lo. Retorna quantas linhas exportou
+    public long export(OutputStream out, UserExportCompression compression, @Nullable UserCursor after) {
+
+        var start = System.nanoTime();
+        long rows;
+
+        try (var writer = new BufferedWriter(new OutputStreamWriter(compression.wrap(out), StandardCharsets.UTF_8), 64 * 1024)) {
+            writer.write(HEADER);
+            writer.write('\n');
+            rows = transactionTemplate.execute(status -> writeRows(writer, after));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        var seconds = (System.nanoTime() - start) / 1e9;
+        log.info("Exported {} users in {} ms ({} rows/s, compression {})",
+                rows, Math.round(seconds * 1000), Math.round(rows / Math.max(seconds, 1e-9)), compression);
+        return rows;
+    }
+
+    private long writeRows(Writer writer, @Nullable UserCursor after) {
+
+        var rows = new long[1];
+
+        jdbcTemplate.query(
+                connection -> {
+                    var statement = connection.prepareStatement(after == null ? SELECT + ORDER_BY : SELECT + AFTER + ORDER_BY,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    if (after != null) {
+                        timestampBinder.bind(statement, after.creationTimestamp(), 1, wrapperOptions);
+                        timestampBinder.bind(statement, after.creationTimestamp(), 2, wrapperOptions);
+                        userIdBinder.bind(statement, after.userId(), 3, wrapperOptions);
+                    }
+                    return statement;
+                },
+                resultSet -> {
+                    writeRow(writer, resultSet);
+                    rows[0]++;
+                });
+
+        return rows[0];
+    }
+
+    private void writeRow(Writer writer, ResultSet resultSet) throws SQLException {
+        try {
+            writer.write(toUuid(resultSet.getBytes(1)).toString());
+            writer.write(',');
+            writeField(writer, resultSet.getString(2));
+            writer.write(',');
+            writeField(writer, resultSet.getString(3));
+            writer.write(',');
+            writeTimestamp(writer, timestampExtractor.extract(resultSet, 4, wrapperOptions));
+            writer.write(',');
+            writeTimestamp(writer, timestampExtractor.extract(resultSet, 5, wrapperOptions));
+            writer.write('\n');
+        } catch (IOException e) {
+            // Cliente desconectou ou disco cheio: interrompe a leitura do cursor
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // RFC 4180: entre aspas só quando precisa, com as aspas internas dobradas
+    static void writeField(Writer writer, @Nullable String value) throws IOException {
+
+        if (value == null) {
+            return;
+        }
+
+        var needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            var c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!needsQuotes) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static void writeTimestamp(Writer writer, @Nullable Instant value) throws IOException {
+        if (value != null) {
+            writer.write(value.toString());
+        }
+    }
+
+    // BINARY(16) na ordem de bytes do Hibernate (msb depois lsb)
+    private static UUID toUuid(byte[] bytes) {
+        var buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
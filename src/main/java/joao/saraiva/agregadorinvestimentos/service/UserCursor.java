@@ -0,0 +1,33 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+// Posição da última linha entregue na paginação por keyset.
+// Para o cliente é só um token opaco (Base64 URL-safe).
+public record UserCursor(Instant creationTimestamp, UUID userId) {
+
+    public String encode() {
+        var raw = creationTimestamp.getEpochSecond() + ":" + creationTimestamp.getNano() + ":" + userId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static UserCursor decode(String token) {
+        try {
+            var raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            var parts = raw.split(":", 3);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            var timestamp = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            return new UserCursor(timestamp, UUID.fromString(parts[2]));
+        } catch (IllegalArgumentException | DateTimeException | ArithmeticException e) {
+            // NumberFormatException é IllegalArgumentException; segundos fora do intervalo
+            // de Instant dão DateTimeException ou ArithmeticException
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
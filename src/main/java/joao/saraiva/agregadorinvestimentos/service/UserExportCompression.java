@@ -0,0 +1,66 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Compressão do CSV da exportação. zstd comprime mais que o gzip gastando menos CPU;
+// gzip é para quem não tem como ler zstd
+public enum UserExportCompression {
+
+    NONE("text/csv", ".csv"),
+    GZIP("application/gzip", ".csv.gz"),
+    ZSTD("application/zstd", ".csv.zst");
+
+    // Nível padrão do zstd: bom equilíbrio entre tamanho e velocidade
+    private static final int ZSTD_LEVEL = 3;
+
+    private final String contentType;
+
+    private final String fileExtension;
+
+    UserExportCompression(String contentType, String fileExtension) {
+        this.contentType = contentType;
+        this.fileExtension = fileExtension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String fileExtension() {
+        return fileExtension;
+    }
+
+    // Fechar o stream devolvido termina o arquivo comprimido, mas não fecha "out"
+    OutputStream wrap(OutputStream out) throws IOException {
+        var shielded = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                out.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                out.flush();
+            }
+        };
+        return switch (this) {
+            case NONE -> shielded;
+            case GZIP -> new GZIPOutputStream(shielded, 64 * 1024);
+            case ZSTD -> new ZstdOutputStream(shielded, ZSTD_LEVEL);
+        };
+    }
+}
@@ -1,81 +1,415 @@
 package joao.saraiva.agregadorinvestimentos.service;
 
+import io.micrometer.core.annotation.Timed;
 import joao.saraiva.agregadorinvestimentos.controller.CreateUserDto;
 import joao.saraiva.agregadorinvestimentos.controller.UpdateUserDto;
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
+import joao.saraiva.agregadorinvestimentos.controller.UserPageDto;
 import joao.saraiva.agregadorinvestimentos.entity.User;
 import joao.saraiva.agregadorinvestimentos.repository.UserRepository;
+import joao.saraiva.agregadorinvestimentos.config.CacheConfig;
+import joao.saraiva.agregadorinvestimentos.config.ReplicaStickiness;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID; // Ainda precisa para o retorno
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+// Um timer user.service por método, com as tags class e method
+@Timed(UserService.METRIC_NAME)
 @Service
+@Profile("!reactive") // no perfil reactive quem atende é o ReactiveUserService
 public class UserService {
 
+    public static final String METRIC_NAME = "user.service";
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    // Updates que perdem uma corrida no banco (versão velha, deadlock, lock wait timeout)
+    // são repetidos até UPDATE_MAX_ATTEMPTS vezes, com espera exponencial e aleatória
+    // entre UPDATE_RETRY_BASE_DELAY e UPDATE_RETRY_MAX_DELAY (full jitter)
+    static final int UPDATE_MAX_ATTEMPTS = 5;
+    static final Duration UPDATE_RETRY_BASE_DELAY = Duration.ofMillis(5);
+    static final Duration UPDATE_RETRY_MAX_DELAY = Duration.ofMillis(200);
+
     private UserRepository userRepository;
 
-    public UserService(UserRepository userRepository) {
+    private PasswordHasher passwordHasher;
+
+    // null quando app.users.write-behind.enabled não está ligado
+    private UserWriteBehindBuffer writeBehind;
+
+    // null quando app.datasource.routing.enabled não está ligado
+    private ReplicaStickiness replicaStickiness;
+
+    // null quando app.users.uniqueness-filter.enabled=false
+    private UserUniquenessFilter uniquenessFilter;
+
+    // null quando app.users.batch-loader.enabled=false
+    private UserBatchLoader batchLoader;
+
+    public UserService(UserRepository userRepository,
+                       PasswordHasher passwordHasher,
+                       @Nullable UserWriteBehindBuffer writeBehind,
+                       @Nullable ReplicaStickiness replicaStickiness,
+                       @Nullable UserUniquenessFilter uniquenessFilter,
+                       @Nullable UserBatchLoader batchLoader) {
         this.userRepository = userRepository;
+        this.passwordHasher = passwordHasher;
+        this.writeBehind = writeBehind;
+        this.replicaStickiness = replicaStickiness;
+        this.uniquenessFilter = uniquenessFilter;
+        this.batchLoader = batchLoader;
     }
 
+    // Username ou email já usados: UserAlreadyExistsException (409)
     public UUID createUser(CreateUserDto createUserDto){
 
+        // Senha longa demais para o BCrypt: PasswordTooLongException (400), sem ir ao banco
+        PasswordHasher.checkLength(createUserDto.password());
+
+        // Antes do BCrypt: um duplicado é recusado sem gastar CPU com o hash nem tentar o INSERT
+        checkAvailable(createUserDto.username(), createUserDto.email(), null);
+
         // DTO -> ENTITY
         // Crie a entidade sem definir o userId.
         // O Hibernate, devido ao @GeneratedValue, fará isso.
+        // A senha é gravada como hash BCrypt, calculado no pool do PasswordHasher
         var entity = new User(
                 createUserDto.username(),
                 createUserDto.email(),
-                createUserDto.password());
+                passwordHasher.hash(createUserDto.password()));
 
-        // Para criptografar a senha, adicione um PasswordEncoder aqui, ex:
-        // entity.setPassword(passwordEncoder.encode(createUserDto.password()));
+        User userSaved;
+        try {
+            userSaved = userRepository.save(entity); // Hibernate agora entenderá que é um novo registro.
+        } catch (DataIntegrityViolationException e) {
+            // Outro cadastro com o mesmo username/email passou pela checagem ao mesmo tempo
+            if (usernameTaken(createUserDto.username(), null) || emailTaken(createUserDto.email())) {
+                throw new UserAlreadyExistsException();
+            }
+            throw e;
+        }
 
-        var userSaved = userRepository.save(entity); // Hibernate agora entenderá que é um novo registro.
+        if (uniquenessFilter != null) {
+            uniquenessFilter.put(createUserDto.username(), createUserDto.email());
+        }
+        markWritten(userSaved.getUserId());
 
         return userSaved.getUserId();
     }
 
-    public Optional<User> getUserById(String userId) {
+    // sync = true: chamadas concorrentes para o mesmo ID que não está no cache
+    // esperam uma única ida ao banco. Optional vazio também é cacheado (busca negativa).
+    // Sem @Transactional aqui: quem espera o lote do UserBatchLoader não segura uma
+    // conexão. A query do lote e o findById rodam cada um na sua transação read-only.
+    // Só o UserDto sai daqui, a entidade (com a senha) nunca chega ao controller.
+    // Com write-behind, um usuário com update ainda não gravado não passa pelo cache:
+    // o que vem do banco recebe o update por cima (read-your-writes).
+    // Com réplicas, um usuário escrito há pouco é lido do primário (app.datasource.routing.sticky-window).
+    @Cacheable(cacheNames = CacheConfig.USERS_CACHE, key = "#userId", sync = true,
+            condition = "!#root.target.hasPendingUpdate(#userId)")
+    public Optional<UserDto> getUserById(String userId) {
 
-        return userRepository.findById(UUID.fromString(userId));
+        var user = UserBatchLoader.await(load(UUID.fromString(userId)));
+
+        return writeBehind == null ? user : user.map(writeBehind::overlay);
     }
 
-    public List<User> listUsers(){
-        return userRepository.findAll();
+    // Multi-get (GET /v1/users?ids=): todos os IDs entram juntos no mesmo lote do
+    // UserBatchLoader, ou, sem ele, numa query só. Não passa pelo cache "users". Volta
+    // na ordem pedida, sem repetições; IDs que não existem ficam de fora
+    public List<UserDto> getUsersByIds(List<String> userIds) {
+
+        if (userIds.size() > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_PAGE_SIZE + " ids");
+        }
+
+        var ids = userIds.stream()
+                .map(UUID::fromString)
+                .distinct()
+                .toList();
+
+        var users = batchLoader == null ? findAll(ids) : ids.stream()
+                .map(this::load)
+                .toList()
+                .stream()
+                .map(UserBatchLoader::await)
+                .flatMap(Optional::stream)
+                .toList();
+
+        return writeBehind == null ? users : users.stream().map(writeBehind::overlay).toList();
     }
 
-    public void updateUserById(String userId,
-                               UpdateUserDto updateUserDto) {
+    // Os lidos há pouco do primário (stickiness) um a um, o resto numa query só
+    // (findAllUsersById, que também confere o cache de segundo nível)
+    private List<UserDto> findAll(List<UUID> ids) {
 
-        var id = UUID.fromString(userId);
-        var userEntity = userRepository.findById(id);
+        var found = new HashMap<UUID, UserDto>();
+        var others = new ArrayList<UUID>();
+        for (var id : ids) {
+            if (replicaStickiness != null && replicaStickiness.isSticky(id)) {
+                UserBatchLoader.await(load(id)).ifPresent(user -> found.put(id, user));
+            } else {
+                others.add(id);
+            }
+        }
+        if (!others.isEmpty()) {
+            userRepository.findAllUsersById(others).forEach(user -> found.put(user.userId(), user));
+        }
+
+        return ids.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
 
-        if (userEntity.isPresent()) {
-            var user = userEntity.get();
+    // Lido há pouco do primário (stickiness) ou sem loader: findById direto, com o
+    // cache de segundo nível. O resto vai para o lote
+    private CompletableFuture<Optional<UserDto>> load(UUID id) {
+
+        if (batchLoader != null && (replicaStickiness == null || !replicaStickiness.isSticky(id))) {
+            return batchLoader.load(id);
+        }
+
+        var user = replicaStickiness == null
+                ? userRepository.findById(id).map(UserDto::from)
+                : replicaStickiness.read(id, () -> userRepository.findById(id).map(UserDto::from));
+
+        return CompletableFuture.completedFuture(user);
+    }
+
+    public boolean hasPendingUpdate(String userId) {
+        return writeBehind != null && writeBehind.hasPending(UUID.fromString(userId));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<UserDto> getUserByUsername(String username) {
+
+        return userRepository.findByUsername(username);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<UserDto> getUserByEmail(String email) {
+
+        return userRepository.findByEmail(email);
+    }
+
+    // Prefixo vazio seria uma varredura da tabela inteira
+    @Transactional(readOnly = true)
+    public List<UserDto> searchByUsernamePrefix(String prefix, int pageSize) {
+
+        if (prefix == null || prefix.isBlank()) {
+            throw new IllegalArgumentException("Prefix must not be blank");
+        }
+
+        var limit = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+
+        return userRepository.findByUsernameStartingWithOrderByUsername(prefix, Limit.of(limit));
+    }
+
+    @Transactional(readOnly = true)
+    public UserPageDto listUsers(String cursor, int pageSize){
+
+        var limit = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+
+        // Busca uma linha a mais só para saber se existe próxima página
+        var users = cursor == null
+                ? userRepository.findFirstPage(Limit.of(limit + 1))
+                : findPageAfter(UserCursor.decode(cursor), limit + 1);
+
+        if (users.size() <= limit) {
+            return new UserPageDto(users, null);
+        }
 
-            if (updateUserDto.username() != null) {
-                user.setUsername(updateUserDto.username());
+        var page = users.subList(0, limit);
+        var last = page.get(limit - 1);
+        var nextCursor = new UserCursor(last.creationTimestamp(), last.userId()).encode();
+
+        return new UserPageDto(page, nextCursor);
+    }
+
+    private List<UserDto> findPageAfter(UserCursor cursor, int limit) {
+        return userRepository.findPageAfter(cursor.creationTimestamp(), cursor.userId(), Limit.of(limit));
+    }
+
+    // Entrega os usuários um a um, lidos de um cursor JDBC. São projeções,
+    // então o persistence context não cresce durante a exportação.
+    @Transactional(readOnly = true)
+    public void streamUsers(Consumer<UserDto> consumer) {
+        try (var users = userRepository.streamAll()) {
+            users.forEach(consumer);
+        }
+    }
+
+    // Retorna false quando o usuário não existe. Sem versão esperada: a última escrita vence.
+    @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#userId")
+    public boolean updateUserById(String userId,
+                                  UpdateUserDto updateUserDto) {
+
+        return update(UUID.fromString(userId), updateUserDto, null);
+    }
+
+    // Update com concorrência otimista (If-Match): só grava se o usuário ainda estiver
+    // em expectedVersion (UserDto.version()), senão lança UserVersionConflictException.
+    @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#userId")
+    public boolean updateUserById(String userId,
+                                  UpdateUserDto updateUserDto,
+                                  long expectedVersion) {
+
+        return update(UUID.fromString(userId), updateUserDto, expectedVersion);
+    }
+
+    private boolean update(UUID id, UpdateUserDto updateUserDto, @Nullable Long expectedVersion) {
+
+        PasswordHasher.checkLength(updateUserDto.password());
+        checkAvailable(updateUserDto.username(), null, id);
+
+        // Hash antes de ir ao banco, para não segurar conexão durante o BCrypt
+        var password = passwordHasher.hash(updateUserDto.password());
+
+        if (writeBehind != null) {
+            // Na precisão do banco, para o updateTimestamp ser o mesmo antes e depois do flush
+            var now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+            var update = new PendingUserUpdate(id, updateUserDto.username(), password, now, 0);
+            // Banco + pendentes é a versão atual; a comparação e a próxima versão ficam
+            // com o buffer. A leitura normalmente vem do cache de segundo nível; o UPDATE
+            // vai no próximo flush, junto com os outros updates desse usuário
+            var enqueued = writeBehind.enqueue(update, expectedVersion,
+                    () -> userRepository.findForWrite(id).map(UserDto::from));
+            if (!enqueued) {
+                return false;
             }
-            if (updateUserDto.password() != null) {
-                user.setPassword(updateUserDto.password());
+            putUsername(updateUserDto.username());
+            markWritten(id);
+            return true;
+        }
+
+        int updated;
+        try {
+            updated = retryOnConcurrencyFailure(() -> expectedVersion == null
+                    ? userRepository.updateUserById(id, updateUserDto.username(), password)
+                    : userRepository.updateUserByIdIfVersion(id, updateUserDto.username(), password, expectedVersion));
+        } catch (DataIntegrityViolationException e) {
+            if (usernameTaken(updateUserDto.username(), id)) {
+                throw new UserAlreadyExistsException();
             }
+            throw e;
+        }
+
+        // O UPDATE condicional já comparou a versão; só quando ele não achou a linha uma
+        // leitura diz se é 404 (não existe) ou 412 (existe em outra versão)
+        if (updated == 0 && expectedVersion != null && userRepository.existsForWrite(id)) {
+            throw new UserVersionConflictException();
+        }
 
-            userRepository.save(user);
+        if (updated > 0) {
+            putUsername(updateUserDto.username());
+            markWritten(id);
         }
+
+        return updated > 0;
     }
 
-    public void deleteById(String userId) {
+    // Retorna false quando o usuário não existe
+    @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#userId")
+    public boolean deleteById(String userId) {
 
         var id = UUID.fromString(userId);
 
-        var userExist = userRepository.existsById(id);
+        var deleted = retryOnConcurrencyFailure(() -> userRepository.deleteUserById(id)) > 0;
+
+        if (deleted) {
+            markWritten(id);
+        }
+
+        return deleted;
+    }
+
+    // Cada tentativa é uma transação nova (o @Transactional está no repositório).
+    // UserVersionConflictException não é repetida: é o cliente que precisa reler.
+    private static <T> T retryOnConcurrencyFailure(Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return work.get();
+            } catch (ConcurrencyFailureException e) {
+                if (attempt == UPDATE_MAX_ATTEMPTS) {
+                    throw e;
+                }
+                var ceiling = Math.min(UPDATE_RETRY_MAX_DELAY.toNanos(), UPDATE_RETRY_BASE_DELAY.toNanos() << (attempt - 1));
+                LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(ceiling + 1));
+            }
+        }
+    }
+
+    // Com o filtro, só vai ao banco (pelo índice único) quando ele diz "talvez exista".
+    // userId: o usuário sendo atualizado, que pode manter o próprio username
+    private void checkAvailable(@Nullable String username, @Nullable String email, @Nullable UUID userId) {
+
+        if (uniquenessFilter == null) {
+            return;
+        }
+
+        if (uniquenessFilter.mightContainUsername(username)) {
+            var taken = usernameTaken(username, userId);
+            uniquenessFilter.recordCheck(taken);
+            if (taken) {
+                throw new UserAlreadyExistsException();
+            }
+        }
+
+        if (uniquenessFilter.mightContainEmail(email)) {
+            var taken = emailTaken(email);
+            uniquenessFilter.recordCheck(taken);
+            if (taken) {
+                throw new UserAlreadyExistsException();
+            }
+        }
+    }
+
+    private boolean usernameTaken(@Nullable String username, @Nullable UUID userId) {
+        if (username == null) {
+            return false;
+        }
+        return userId == null
+                ? userRepository.existsByUsername(username)
+                : userRepository.existsByUsernameAndUserIdNot(username, userId);
+    }
+
+    private boolean emailTaken(@Nullable String email) {
+        return email != null && userRepository.existsByEmail(email);
+    }
 
-        if (userExist) {
-            userRepository.deleteById(id);
+    private void putUsername(@Nullable String username) {
+        if (uniquenessFilter != null) {
+            uniquenessFilter.put(username, null);
         }
+    }
 
+    private void markWritten(UUID userId) {
+        if (replicaStickiness != null) {
+            replicaStickiness.markWritten(userId);
+        }
     }
 
 
@@ -0,0 +1,105 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import joao.saraiva.agregadorinvestimentos.repository.UserRepository;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Bloom filters com todos os usernames e emails de tb_users, para o cadastro saber sem
+// ir ao banco que um username/email é novo (o caso normal). "Talvez exista" não é
+// resposta: quem chama confere com uma consulta pelo índice único.
+//
+// As chaves são normalizadas como a collation das colunas (utf8mb4_0900_ai_ci) compara:
+// sem maiúsculas nem acentos. O que a normalização não cobrir ainda é barrado pelo
+// índice único no INSERT.
+//
+// Até o rebuild terminar (ele roda em segundo plano depois da subida) o filtro não
+// responde nada e toda checagem vai ao banco. Deletes não tiram nada do filtro: a chave
+// velha só vira um falso positivo a mais, até o próximo rebuild (na próxima subida).
+//
+// Métrica user.uniqueness.checks, com a tag result: skipped (filtro garantiu que é novo),
+// checked (foi ao banco) e false_positive (foi ao banco e não existia).
+public class UserUniquenessFilter {
+
+    public static final String METRIC_NAME = "user.uniqueness.checks";
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final ConcurrentBloomFilter usernames;
+
+    private final ConcurrentBloomFilter emails;
+
+    private volatile boolean ready;
+
+    private final Counter skipped;
+
+    private final Counter checked;
+
+    private final Counter falsePositives;
+
+    public UserUniquenessFilter(long expectedInsertions, double falsePositiveRate, MeterRegistry meterRegistry) {
+        this.usernames = new ConcurrentBloomFilter(expectedInsertions, falsePositiveRate);
+        this.emails = new ConcurrentBloomFilter(expectedInsertions, falsePositiveRate);
+        this.skipped = Counter.builder(METRIC_NAME).tag("result", "skipped").register(meterRegistry);
+        this.checked = Counter.builder(METRIC_NAME).tag("result", "checked").register(meterRegistry);
+        this.falsePositives = Counter.builder(METRIC_NAME).tag("result", "false_positive").register(meterRegistry);
+    }
+
+    // Carrega as chaves de todos os usuários. Cadastros feitos enquanto isso também
+    // entram (put), então nada escapa entre o começo da leitura e o ready.
+    public void rebuild(Stream<UserRepository.UniqueKeys> keys) {
+        keys.forEach(user -> put(user.getUsername(), user.getEmail()));
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Chamado depois de todo insert e de todo update que troca o username
+    public void put(String username, String email) {
+        if (username != null) {
+            usernames.put(normalize(username));
+        }
+        if (email != null) {
+            emails.put(normalize(email));
+        }
+    }
+
+    // false = com certeza não existe. true = pode existir (ou o filtro ainda não está pronto)
+    public boolean mightContainUsername(String username) {
+        return mightContain(usernames, username);
+    }
+
+    public boolean mightContainEmail(String email) {
+        return mightContain(emails, email);
+    }
+
+    // Resultado da consulta ao banco feita depois de um "pode existir"
+    public void recordCheck(boolean existed) {
+        if (!existed && ready) {
+            falsePositives.increment();
+        }
+    }
+
+    private boolean mightContain(ConcurrentBloomFilter filter, String key) {
+        if (key == null) {
+            return false;
+        }
+        if (ready && !filter.mightContain(normalize(key))) {
+            skipped.increment();
+            return false;
+        }
+        checked.increment();
+        return true;
+    }
+
+    static String normalize(String key) {
+        var decomposed = Normalizer.normalize(key, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
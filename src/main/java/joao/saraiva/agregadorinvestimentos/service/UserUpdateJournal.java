@@ -0,0 +1,173 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Journal append-only dos updates em espera, um JSON por linha. Cada append
+// só retorna depois do fsync, então um update confirmado sobrevive a um crash.
+//
+// Group commit: write() só escreve, sem fsync, e sync() espera o fsync. Quem chama
+// sync() enquanto outro fsync está em andamento espera por ele e em seguida faz um
+// só fsync por todos que escreveram nesse meio tempo, em vez de um fsync por update.
+//
+// Dois arquivos: o ativo (recebe os appends) e o ".flushing" (o lote que está
+// indo para o banco). rotate() transforma o ativo em ".flushing"; depois que o
+// lote é gravado, completeFlush() apaga o ".flushing".
+public class UserUpdateJournal implements Closeable {
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder().findAndAddModules().build();
+
+    private final Path active;
+
+    private final Path flushing;
+
+    private FileChannel channel;
+
+    // Linhas escritas desde a abertura (protegido pelo monitor) e quantas delas já
+    // passaram por um fsync (protegido por syncLock)
+    private long written;
+
+    private volatile long synced;
+
+    // Sempre pego antes do monitor, nunca o contrário
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    public UserUpdateJournal(Path active) throws IOException {
+        this.active = active;
+        this.flushing = active.resolveSibling(active.getFileName() + ".flushing");
+        var parent = active.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+    }
+
+    // Recuperação na subida: junta o que sobrou do ativo no ".flushing" e devolve
+    // tudo, na ordem em que foi escrito, para ser gravado antes de qualquer novo update
+    public synchronized List<PendingUserUpdate> recover() throws IOException {
+
+        if (Files.exists(active)) {
+            var leftover = Files.readAllBytes(active);
+            if (leftover.length > 0) {
+                Files.write(flushing, leftover, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                force(flushing);
+            }
+            Files.delete(active);
+        }
+
+        channel = open();
+
+        if (!Files.exists(flushing)) {
+            return List.of();
+        }
+
+        var updates = new ArrayList<PendingUserUpdate>();
+        for (var line : Files.readAllLines(flushing, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                updates.add(MAPPER.readValue(line, PendingUserUpdate.class));
+            } catch (IOException e) {
+                // Última linha cortada por um crash no meio do write: esse update
+                // nunca foi confirmado ao cliente, então pode ser descartado
+            }
+        }
+        if (updates.isEmpty()) {
+            Files.delete(flushing);
+        }
+        return updates;
+    }
+
+    public void append(PendingUserUpdate update) {
+        sync(write(update));
+    }
+
+    // Escreve sem fsync; o retorno é o que passar para sync()
+    public synchronized long write(PendingUserUpdate update) {
+        try {
+            var bytes = MAPPER.writeValueAsBytes(update);
+            var buffer = ByteBuffer.allocate(bytes.length + 1).put(bytes).put((byte) '\n').flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            return ++written;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Volta quando tudo até "sequence" (inclusive) estiver em disco
+    public void sync(long sequence) {
+        if (synced >= sequence) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            // Normalmente o fsync de quem estava na frente já cobriu esta linha
+            if (synced >= sequence) {
+                return;
+            }
+            long target;
+            synchronized (this) {
+                target = written;
+            }
+            channel.force(false);
+            synced = target;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Fecha o ativo como ".flushing" e começa um ativo novo. O fsync antes de fechar
+    // cobre quem escreveu e ainda está esperando em sync()
+    public void rotate() throws IOException {
+        syncLock.lock();
+        try {
+            synchronized (this) {
+                channel.force(false);
+                channel.close();
+                Files.move(active, flushing);
+                channel = open();
+                synced = written;
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    public synchronized void completeFlush() throws IOException {
+        Files.deleteIfExists(flushing);
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(active, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static void force(Path path) throws IOException {
+        try (var file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            file.force(true);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// O If-Match do update não bate mais com a versão atual do usuário:
+// alguém atualizou antes. O cliente deve reler (GET) e tentar de novo.
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class UserVersionConflictException extends RuntimeException {
+
+    public UserVersionConflictException() {
+        super("User was modified since the given version");
+    }
+}
@@ -0,0 +1,324 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import joao.saraiva.agregadorinvestimentos.config.CacheConfig;
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
+import joao.saraiva.agregadorinvestimentos.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.type.descriptor.ValueBinder;
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Write-behind dos PUT /v1/users/{userId}: o update é gravado no journal (fsync em grupo,
+// antes de confirmar), juntado em memória com os updates anteriores do mesmo usuário e confirmado na hora.
+// A cada flushInterval o que acumulou vira um lote de UPDATEs num único commit.
+//
+// Enquanto um update não chega ao banco, overlay() o aplica por cima do que o
+// banco devolve, para o getUserById enxergar a própria escrita.
+//
+// O flush grava direto por JDBC, então depois dele os caches são limpos à mão:
+// a entidade no cache de segundo nível, o cache de queries e o cache "users" do Spring.
+public class UserWriteBehindBuffer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(UserWriteBehindBuffer.class);
+
+    // Mesmos nomes de coluna do mapeamento da entidade User. A versão gravada é a que
+    // o overlay já mostrou (e foi para o ETag), e o greatest garante que ela nunca volta.
+    // Idempotente: um lote gravado de novo (commit e crash antes de rotacionar o journal,
+    // ou refeito um a um) não incrementa outra vez. Só uma linha de journal antiga, sem
+    // versão (0), incrementa
+    private static final String UPDATE_SQL = """
+            update tb_users
+            set username = coalesce(?, username),
+                password = coalesce(?, password),
+                update_timestamp = ?,
+                version = case when ? = 0 then version + 1 else greatest(version, ?) end
+            where user_id = ?""";
+
+    private final UserUpdateJournal journal;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final SessionFactory sessionFactory;
+
+    // user_id (BINARY(16)) e update_timestamp (UTC) são ligados exatamente como o
+    // Hibernate liga na entidade User, seja qual for o banco
+    private final ValueBinder<Object> userIdBinder;
+
+    private final ValueBinder<Object> timestampBinder;
+
+    private final WrapperOptions wrapperOptions;
+
+    private final CacheManager cacheManager;
+
+    private final Duration flushInterval;
+
+    private final int batchSize;
+
+    // Protege a escrita no journal junto com o merge em "pending", e a troca de
+    // "pending" por um mapa novo no flush: o que está no journal ativo é sempre
+    // exatamente o que está em "pending". O fsync fica fora dele (group commit)
+    private final Object lock = new Object();
+
+    // Lotes que já chegaram ao banco; muda junto com "flushing" (sob "lock")
+    private volatile long flushedBatches;
+
+    // Ordem de escrita no flush: primeiro "flushing", depois "pending".
+    // Ordem de leitura no overlay: primeiro "pending", depois "flushing".
+    private volatile Map<UUID, PendingUserUpdate> pending = new ConcurrentHashMap<>();
+
+    private volatile Map<UUID, PendingUserUpdate> flushing = Map.of();
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile boolean running;
+
+    public UserWriteBehindBuffer(UserUpdateJournal journal,
+                                 JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 EntityManagerFactory entityManagerFactory,
+                                 CacheManager cacheManager,
+                                 Duration flushInterval,
+                                 int batchSize) {
+        this.journal = journal;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+
+        var factory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        var users = factory.getMappingMetamodel().getEntityDescriptor(User.class);
+        this.userIdBinder = users.getIdentifierMapping().getSingleJdbcMapping().getJdbcValueBinder();
+        this.timestampBinder = users.findAttributeMapping("updateTimestamp").getSingleJdbcMapping().getJdbcValueBinder();
+        this.wrapperOptions = factory.getWrapperOptions();
+        this.cacheManager = cacheManager;
+        this.flushInterval = flushInterval;
+        this.batchSize = batchSize;
+    }
+
+    // Volta depois do fsync. O update já aparece no overlay (e pode até ir para o
+    // banco) enquanto espera o fsync; só a confirmação ao cliente depende dele.
+    // O update já vem com a versão final (journal, testes); os do UserService passam
+    // pelo enqueue abaixo, que calcula a versão
+    public void enqueue(PendingUserUpdate update) {
+        long sequence;
+        synchronized (lock) {
+            sequence = journal.write(update);
+            pending.merge(update.userId(), update, PendingUserUpdate::merge);
+        }
+        journal.sync(sequence);
+    }
+
+    // Enfileira o update com a versão seguinte à atual do usuário (banco + pendentes), a
+    // mesma que o banco terá depois do flush. false quando ele não existe. Com
+    // expectedVersion (If-Match), UserVersionConflictException se a atual for outra.
+    // "stored" (a leitura do banco) roda sem lock nenhum; se um lote terminou de ir para
+    // o banco no meio dela, a leitura pode ter pego o banco antes do lote e o overlay
+    // depois, então lê de novo. Versão e enfileiramento são atômicos sob "lock", então
+    // dois updates do mesmo usuário nunca ficam com a mesma versão
+    public boolean enqueue(PendingUserUpdate update,
+                           @Nullable Long expectedVersion,
+                           Supplier<Optional<UserDto>> stored) {
+        while (true) {
+            var batches = flushedBatches;
+            var current = stored.get();
+            long sequence;
+            synchronized (lock) {
+                if (batches != flushedBatches) {
+                    continue;
+                }
+                if (current.isEmpty()) {
+                    return false;
+                }
+                var version = overlay(current.get()).version();
+                if (expectedVersion != null && !expectedVersion.equals(version)) {
+                    throw new UserVersionConflictException();
+                }
+                var versioned = update.withVersion(version + 1);
+                sequence = journal.write(versioned);
+                pending.merge(update.userId(), versioned, PendingUserUpdate::merge);
+            }
+            journal.sync(sequence);
+            return true;
+        }
+    }
+
+    public boolean hasPending(UUID userId) {
+        return pending.containsKey(userId) || flushing.containsKey(userId);
+    }
+
+    public UserDto overlay(UserDto user) {
+        var newer = pending.get(user.userId());
+        var older = flushing.get(user.userId());
+        if (older != null) {
+            user = older.applyTo(user);
+        }
+        if (newer != null) {
+            user = newer.applyTo(user);
+        }
+        return user;
+    }
+
+    // Chamado pelo agendador; também pode ser chamado direto (testes, shutdown).
+    // Se o banco falhar, o lote continua em "flushing" e no journal para a próxima vez
+    public synchronized void flush() {
+        try {
+            // Um lote que falhou antes é tentado de novo antes de pegar o próximo
+            if (flushing.isEmpty()) {
+                synchronized (lock) {
+                    if (pending.isEmpty()) {
+                        return;
+                    }
+                    journal.rotate();
+                    flushing = pending;
+                    pending = new ConcurrentHashMap<>();
+                }
+            }
+
+            var batch = List.copyOf(flushing.values());
+            write(batch);
+            evictCaches(batch);
+
+            journal.completeFlush();
+            synchronized (lock) {
+                flushing = Map.of();
+                flushedBatches++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(List<PendingUserUpdate> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(UPDATE_SQL, batch, batchSize, this::bind));
+        } catch (DataIntegrityViolationException e) {
+            // Um update ruim (ex.: username que já existe) derruba o lote inteiro;
+            // refaz um a um para gravar os outros. Só o que viola uma constraint é
+            // descartado (nunca vai passar): o cliente já recebeu 204, então só resta
+            // registrar no log. Qualquer outra falha (conexão, lock wait, deadlock) sobe,
+            // e o lote inteiro é tentado de novo no próximo flush; os que já foram
+            // gravados um a um são regravados com os mesmos valores.
+            log.warn("Write-behind batch of {} updates failed, retrying one by one", batch.size(), e);
+            for (var update : batch) {
+                try {
+                    jdbcTemplate.update(UPDATE_SQL, ps -> bind(ps, update));
+                } catch (DataIntegrityViolationException rowError) {
+                    log.error("Dropping write-behind update for user {}", update.userId(), rowError);
+                }
+            }
+        }
+    }
+
+    private void bind(PreparedStatement ps, PendingUserUpdate update) throws SQLException {
+        ps.setString(1, update.username());
+        ps.setString(2, update.password());
+        timestampBinder.bind(ps, update.updateTimestamp(), 3, wrapperOptions);
+        ps.setLong(4, update.version());
+        ps.setLong(5, update.version());
+        userIdBinder.bind(ps, update.userId(), 6, wrapperOptions);
+    }
+
+    private void evictCaches(List<PendingUserUpdate> batch) {
+        var cache = sessionFactory.getCache();
+        var usersCache = cacheManager.getCache(CacheConfig.USERS_CACHE);
+        for (var update : batch) {
+            cache.evict(User.class, update.userId());
+            if (usersCache != null) {
+                usersCache.evict(update.userId().toString());
+            }
+        }
+        // O Hibernate não viu esse UPDATE, então não sabe que as páginas em cache ficaram velhas
+        cache.evictQueryRegions();
+    }
+
+    // Antes de aceitar o primeiro request: grava o que o journal tinha de uma execução anterior
+    @Override
+    public void start() {
+        try {
+            var recovered = journal.recover();
+            if (!recovered.isEmpty()) {
+                var merged = new ConcurrentHashMap<UUID, PendingUserUpdate>();
+                recovered.forEach(update -> merged.merge(update.userId(), update, PendingUserUpdate::merge));
+                flushing = merged;
+                log.info("Replaying {} write-behind updates from the journal", recovered.size());
+                flushQuietly();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "user-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly,
+                flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Banco fora, por exemplo: o lote continua em "flushing" e no journal
+            log.error("Write-behind flush failed, will retry", e);
+        }
+    }
+
+    // Depois que o servidor web parou de aceitar requests: grava o que sobrou
+    @Override
+    public void stop() {
+        running = false;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+            flush();
+            flush(); // o primeiro pode ter só reenviado um lote que tinha falhado
+            journal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            // O que não foi gravado continua no journal e é reaplicado na próxima subida
+            log.error("Write-behind final flush failed; pending updates stay in the journal", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Fase menor que a do servidor web: sobe antes dele e para depois dele
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
@@ -0,0 +1,17 @@
+-- Mesmo schema de db/migration/mysql, no dialeto do H2 (testes). Cada versão daqui
+-- acompanha a versão de mesmo número da pasta mysql.
+
+CREATE TABLE tb_users (
+    creation_timestamp TIMESTAMP(6) WITH TIME ZONE,
+    update_timestamp TIMESTAMP(6) WITH TIME ZONE,
+    version BIGINT NOT NULL,
+    user_id BINARY(16) NOT NULL,
+    email VARCHAR(255),
+    password VARCHAR(255),
+    username VARCHAR(255),
+    PRIMARY KEY (user_id),
+    CONSTRAINT UKgrd22228p1miaivbn9yg178pm UNIQUE (email),
+    CONSTRAINT UK8n82lwp7lflhwda2v2v3wckc9 UNIQUE (username)
+);
+
+CREATE INDEX idx_users_creation_timestamp_user_id ON tb_users (creation_timestamp, user_id);
@@ -0,0 +1,6 @@
+ALTER TABLE tb_users ALTER COLUMN username SET DATA TYPE VARCHAR(64);
+ALTER TABLE tb_users ALTER COLUMN email SET DATA TYPE VARCHAR(254);
+ALTER TABLE tb_users ALTER COLUMN password SET DATA TYPE VARCHAR(100);
+
+ALTER TABLE tb_users RENAME CONSTRAINT UKgrd22228p1miaivbn9yg178pm TO uk_users_email;
+ALTER TABLE tb_users RENAME CONSTRAINT UK8n82lwp7lflhwda2v2v3wckc9 TO uk_users_username;
@@ -0,0 +1,3 @@
+CREATE INDEX idx_users_keyset ON tb_users (creation_timestamp, user_id, username, email, update_timestamp);
+
+DROP INDEX idx_users_creation_timestamp_user_id;
@@ -0,0 +1,3 @@
+DROP INDEX idx_users_keyset;
+
+CREATE INDEX idx_users_keyset ON tb_users (creation_timestamp, user_id, username, email, update_timestamp, version);
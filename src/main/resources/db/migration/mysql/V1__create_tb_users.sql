@@ -0,0 +1,18 @@
+-- Schema de partida: o tb_users como o ddl-auto=update deixava (com os scripts de
+-- db/scripts já aplicados). Bancos que já existem não rodam este arquivo: o Flyway
+-- marca a versão 1 como baseline (spring.flyway.baseline-on-migrate) e segue do V2.
+-- Os nomes UK... são os que o Hibernate gerou para os índices únicos.
+
+CREATE TABLE tb_users (
+    creation_timestamp DATETIME(6),
+    update_timestamp DATETIME(6),
+    version BIGINT NOT NULL,
+    user_id BINARY(16) NOT NULL,
+    email VARCHAR(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci,
+    password VARCHAR(255),
+    username VARCHAR(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci,
+    PRIMARY KEY (user_id),
+    UNIQUE KEY UKgrd22228p1miaivbn9yg178pm (email),
+    UNIQUE KEY UK8n82lwp7lflhwda2v2v3wckc9 (username),
+    INDEX idx_users_creation_timestamp_user_id (creation_timestamp, user_id)
+) ENGINE = InnoDB;
@@ -0,0 +1,21 @@
+-- Colunas no tamanho do que guardam, em vez de VARCHAR(255) em tudo:
+-- username até 64 caracteres, email até 254 (limite da RFC 5321) e password em
+-- ASCII (o hash BCrypt tem 60 caracteres; 100 deixa folga para outro algoritmo).
+-- Índices com chaves menores cabem mais por página e ocupam menos buffer pool.
+--
+-- Diminuir um VARCHAR reconstrói a tabela (ALGORITHM=COPY, bloqueia escritas).
+-- Em tabelas grandes rode com gh-ost ou pt-online-schema-change e depois marque a
+-- versão como aplicada. Com o sql_mode estrito (padrão do MySQL 8) o ALTER falha,
+-- sem truncar nada, se já existir valor maior que o novo tamanho; confira antes:
+-- SELECT MAX(CHAR_LENGTH(username)), MAX(CHAR_LENGTH(email)) FROM tb_users;
+
+ALTER TABLE tb_users
+    MODIFY COLUMN username VARCHAR(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL,
+    MODIFY COLUMN email VARCHAR(254) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL,
+    MODIFY COLUMN password VARCHAR(100) CHARACTER SET ascii COLLATE ascii_bin NULL,
+    ALGORITHM = COPY;
+
+-- Só metadado, não reconstrói nada
+ALTER TABLE tb_users
+    RENAME INDEX UKgrd22228p1miaivbn9yg178pm TO uk_users_email,
+    RENAME INDEX UK8n82lwp7lflhwda2v2v3wckc9 TO uk_users_username;
@@ -0,0 +1,23 @@
+-- Índice de cobertura para as listagens (findFirstPage, findPageAfter e streamAll):
+-- além de (creation_timestamp, user_id), que dão a ordem do keyset, ele carrega as
+-- outras colunas do UserDto, então o MySQL responde a página só lendo o índice, sem
+-- ir à chave primária linha a linha (EXPLAIN mostra "Using index").
+-- A senha fica de fora: nenhuma listagem a seleciona.
+--
+-- As buscas por username e email já são cobertas pelos índices únicos (que trazem o
+-- user_id) até achar a linha; o resto vem de uma leitura pela chave primária.
+--
+-- Criado sem bloquear leituras nem escritas (online DDL); o índice antigo só sai
+-- depois que o novo existe, para as listagens nunca ficarem sem índice.
+
+ALTER TABLE tb_users
+    ADD INDEX idx_users_keyset (creation_timestamp, user_id, username, email, update_timestamp),
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+ALTER TABLE tb_users
+    DROP INDEX idx_users_creation_timestamp_user_id,
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+-- Conferir (Extra = Using index):
+-- EXPLAIN SELECT user_id, username, email, creation_timestamp, update_timestamp
+--   FROM tb_users ORDER BY creation_timestamp, user_id LIMIT 50;
@@ -0,0 +1,15 @@
+-- A versão do lock otimista agora faz parte do UserDto (é ela que vai no ETag), então
+-- entra no índice de cobertura das listagens (V3): sem ela, cada linha da página
+-- voltaria a ser lida pela chave primária.
+--
+-- Drop e add no mesmo ALTER: o índice é trocado de uma vez, online, e as listagens
+-- nunca ficam sem ele.
+
+ALTER TABLE tb_users
+    DROP INDEX idx_users_keyset,
+    ADD INDEX idx_users_keyset (creation_timestamp, user_id, username, email, update_timestamp, version),
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+-- Conferir (Extra = Using index):
+-- EXPLAIN SELECT user_id, username, email, creation_timestamp, update_timestamp, version
+--   FROM tb_users ORDER BY creation_timestamp, user_id LIMIT 50;
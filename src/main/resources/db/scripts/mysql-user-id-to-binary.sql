@@ -0,0 +1,32 @@
+-- Ajuste de bancos criados pelo antigo ddl-auto=update, para chegarem ao schema da
+-- versão 1 das migrations (db/migration/mysql) antes do baseline do Flyway.
+-- Não rode depois das migrations: as versões seguintes mudam estas colunas.
+--
+-- Converte tb_users.user_id de texto (CHAR(36)/VARCHAR(255)) para BINARY(16).
+--
+-- Os UUIDs v4 que já existem continuam valendo, só mudam de formato; os novos
+-- usuários passam a receber UUID v7. Se a coluna já estiver em BINARY(16)
+-- (padrão do Hibernate 6 para UUID no MySQL), não há dado para migrar.
+--
+-- UUID_TO_BIN sem o parâmetro de swap grava os bytes na mesma ordem que o
+-- Hibernate usa (msb depois lsb), então os IDs antigos continuam sendo achados.
+--
+-- Em tabelas grandes rode com gh-ost ou pt-online-schema-change em vez de
+-- ALTER TABLE direto: a troca da chave primária reconstrói a tabela inteira.
+
+ALTER TABLE tb_users ADD COLUMN user_id_bin BINARY(16) NULL;
+
+UPDATE tb_users SET user_id_bin = UUID_TO_BIN(user_id);
+
+-- O índice da paginação por keyset (criado pelo ddl-auto) contém user_id:
+-- ele sai junto e é recriado no fim com a coluna nova.
+ALTER TABLE tb_users
+    DROP INDEX idx_users_creation_timestamp_user_id,
+    DROP PRIMARY KEY,
+    DROP COLUMN user_id;
+
+ALTER TABLE tb_users
+    CHANGE COLUMN user_id_bin user_id BINARY(16) NOT NULL FIRST,
+    ADD PRIMARY KEY (user_id);
+
+CREATE INDEX idx_users_creation_timestamp_user_id ON tb_users (creation_timestamp, user_id);
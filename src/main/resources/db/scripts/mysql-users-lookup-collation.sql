@@ -0,0 +1,24 @@
+-- Ajuste de bancos criados pelo antigo ddl-auto=update, para chegarem ao schema da
+-- versão 1 das migrations (db/migration/mysql) antes do baseline do Flyway.
+-- Não rode depois das migrations: as versões seguintes mudam estas colunas.
+--
+-- Garante que username e email comparam sem diferenciar maiúsculas/minúsculas
+-- direto na collation da coluna, para que as buscas por username, email e
+-- prefixo de username (GET /v1/users?username=, ?email=, ?usernamePrefix=)
+-- usem os índices únicos.
+--
+-- utf8mb4_0900_ai_ci já é o padrão do MySQL 8, então em bancos criados com o
+-- padrão este script não muda nada. Ele serve para bancos com collation binária
+-- ou _cs, onde "Joao" e "joao" seriam usuários diferentes e um lower(username)
+-- na query faria o MySQL varrer a tabela inteira.
+--
+-- Atenção: se já existirem usernames/emails que só diferem em maiúsculas, o
+-- índice único vai falhar. Resolva as duplicatas antes de rodar.
+
+ALTER TABLE tb_users
+    MODIFY COLUMN username VARCHAR(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL,
+    MODIFY COLUMN email VARCHAR(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL;
+
+-- Conferir que as buscas usam o índice (type = const / range, key = o índice único):
+-- EXPLAIN SELECT * FROM tb_users WHERE username = 'joao';
+-- EXPLAIN SELECT * FROM tb_users WHERE username LIKE 'jo%' ORDER BY username LIMIT 50;
@@ -0,0 +1,10 @@
+-- Ajuste de bancos criados pelo antigo ddl-auto=update, para chegarem ao schema da
+-- versão 1 das migrations (db/migration/mysql) antes do baseline do Flyway.
+-- Não rode depois das migrations: as versões seguintes mudam estas colunas.
+--
+-- Coluna do lock otimista (@Version em User), para bancos anteriores a ela.
+--
+-- Linhas existentes começam na versão 0. Todo UPDATE da aplicação incrementa.
+
+ALTER TABLE tb_users
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
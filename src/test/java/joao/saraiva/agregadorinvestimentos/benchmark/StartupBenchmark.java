@@ -0,0 +1,152 @@
+package joao.saraiva.agregadorinvestimentos.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+// Mede quanto tempo uma instância nova leva do "java -jar" até responder a primeira
+// requisição, em cada modo de subida. Cada modo roda "runs" vezes (processo novo a cada
+// vez) e o resultado é a mediana: "started" é o que o Spring loga ("Started ... in X
+// seconds"), "first-request" é do início do processo até a primeira resposta de "path".
+//
+// Modos: default, lazy (perfil lazy), aot (-Dspring.aot.enabled=true), cds
+// (-XX:SharedArchiveFile) e aot-cds. aot e cds precisam do jar gerado pelos perfis Maven:
+//
+// ./mvnw -Paot,cds package -DskipTests
+// ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+//     -Dexec.mainClass=joao.saraiva.agregadorinvestimentos.benchmark.StartupBenchmark \
+//     -Dmodes=default,lazy,aot,cds,aot-cds -Druns=5
+//
+// Sem -Paot o jar não tem o código AOT e o modo aot falha ao subir; sem -Pcds não há
+// application.jsa. O MySQL precisa estar no ar (o padrão de "path" vai ao banco).
+public class StartupBenchmark {
+
+    private static final Path APPLICATION_DIR = Path.of(System.getProperty("applicationDir", "target/application"));
+    private static final String JAR = System.getProperty("jar", "agregadorinvestimentos-0.0.1-SNAPSHOT.jar");
+    private static final String PROFILES = System.getProperty("profiles", "prod");
+    private static final List<String> MODES = List.of(System.getProperty("modes", "default,lazy,aot,cds,aot-cds").split(","));
+    private static final int RUNS = Integer.getInteger("runs", 5);
+    private static final int PORT = Integer.getInteger("port", 8081);
+    private static final String PATH = System.getProperty("path", "/v1/users?limit=1");
+    private static final Duration TIMEOUT = Duration.ofSeconds(Long.getLong("timeoutSeconds", 120));
+
+    private static final Pattern STARTED = Pattern.compile("Started \\S+ in ([0-9.]+) seconds");
+
+    public static void main(String[] args) throws Exception {
+
+        var client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(200))
+                .build();
+
+        for (var mode : MODES) {
+            var started = new long[RUNS];
+            var firstRequest = new long[RUNS];
+            for (int run = 0; run < RUNS; run++) {
+                var result = startOnce(client, mode);
+                started[run] = result[0];
+                firstRequest[run] = result[1];
+            }
+            System.out.printf("RESULT [%s] runs=%d started=%d ms first-request=%d ms (min %d, max %d)%n",
+                    mode, RUNS, median(started), median(firstRequest),
+                    Arrays.stream(firstRequest).min().orElse(0), Arrays.stream(firstRequest).max().orElse(0));
+        }
+    }
+
+    private static List<String> command(String mode) {
+        var command = new ArrayList<String>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (mode.contains("cds")) {
+            if (!Files.exists(APPLICATION_DIR.resolve("application.jsa"))) {
+                throw new IllegalStateException("No CDS archive in " + APPLICATION_DIR + ", build with -Pcds");
+            }
+            command.add("-XX:SharedArchiveFile=application.jsa");
+            command.add("-Xlog:cds=error");
+        }
+        if (mode.contains("aot")) {
+            command.add("-Dspring.aot.enabled=true");
+        }
+        command.add("-jar");
+        command.add(JAR);
+        command.add("--server.port=" + PORT);
+        command.add("--spring.profiles.active=" + (mode.equals("lazy") ? PROFILES + ",lazy" : PROFILES));
+        return command;
+    }
+
+    // [started em ms, primeira resposta em ms]
+    private static long[] startOnce(HttpClient client, String mode) throws Exception {
+
+        var begin = System.nanoTime();
+        var process = new ProcessBuilder(command(mode))
+                .directory(APPLICATION_DIR.toFile())
+                .redirectErrorStream(true)
+                .start();
+        var startedMillis = new AtomicReference<Long>();
+        var output = Thread.ofVirtual().start(() -> readOutput(process, startedMillis));
+
+        try {
+            var request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + PATH)).GET().build();
+            var deadline = begin + TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("[" + mode + "] application exited with " + process.exitValue());
+                }
+                try {
+                    var response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    var elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+                    if (response.statusCode() >= 500) {
+                        System.out.printf("[%s] first response was %d%n", mode, response.statusCode());
+                    }
+                    // o Tomcat começa a ouvir antes do log "Started", então espera a linha chegar
+                    var logDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                    while (startedMillis.get() == null && System.nanoTime() < logDeadline) {
+                        Thread.sleep(10);
+                    }
+                    return new long[]{startedMillis.get() == null ? -1 : startedMillis.get(), elapsed};
+                } catch (ConnectException e) {
+                    Thread.sleep(10); // Tomcat ainda não está ouvindo
+                }
+            }
+            throw new IllegalStateException("[" + mode + "] no response within " + TIMEOUT);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+            output.join();
+        }
+    }
+
+    private static void readOutput(Process process, AtomicReference<Long> startedMillis) {
+        try (var reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                var matcher = STARTED.matcher(line);
+                if (matcher.find()) {
+                    startedMillis.set(Math.round(Double.parseDouble(matcher.group(1)) * 1000));
+                }
+            }
+        } catch (IOException e) {
+            // processo encerrado
+        }
+    }
+
+    private static long median(long[] values) {
+        var sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
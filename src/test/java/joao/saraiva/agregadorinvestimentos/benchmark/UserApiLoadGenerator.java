@@ -0,0 +1,182 @@
+package joao.saraiva.agregadorinvestimentos.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Teste de carga simples contra a API REST que já está rodando. Cria alguns usuários,
+// depois dispara GET /v1/users/{id} (e uma página de GET /v1/users a cada listEvery
+// requisições) com "concurrency" clientes simultâneos durante "duration", e imprime
+// vazão e latências (p50/p99/p99.9).
+//
+// Para comparar os dois modos de execução, suba a aplicação de cada jeito e rode o
+// gerador contra ela com o mesmo -Dconcurrency:
+//
+// ./mvnw spring-boot:run
+// ./mvnw spring-boot:run -Dspring-boot.run.profiles=virtual-threads
+//
+// ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+//     -Dexec.mainClass=joao.saraiva.agregadorinvestimentos.benchmark.UserApiLoadGenerator \
+//     -Dlabel=platform -Dconcurrency=1000 -Dduration=60s
+//
+// Sobrecarga (rate limit e descarte de carga): com um pool pequeno, compare a aplicação
+// com o padrão, app.rate-limit.enabled=false (tudo entra na fila do Hikari), e com
+// app.rate-limit.enabled=true (429/503 na hora). -Dclients é quantos X-Client-Id diferentes os workers usam e um -DlistEvery
+// menor deixa mais requisições serem listagens. As latências do RESULT incluem as
+// respostas recusadas (rejected = 429 + 503): o que importa é que ninguém fique na fila.
+//
+// O gerador roda na mesma máquina, então o loopback entra como proxy confiável para o
+// X-Client-Id de cada worker valer:
+// ./mvnw spring-boot:run -Dspring-boot.run.arguments="--spring.datasource.hikari.maximum-pool-size=4 --app.rate-limit.enabled=true --app.rate-limit.trusted-proxies=127.0.0.1,0:0:0:0:0:0:0:1"
+// ./mvnw spring-boot:run -Dspring-boot.run.arguments="--spring.datasource.hikari.maximum-pool-size=4"
+//
+// ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+//     -Dexec.mainClass=joao.saraiva.agregadorinvestimentos.benchmark.UserApiLoadGenerator \
+//     -Dlabel=shedding -Dconcurrency=2000 -Dclients=20 -DlistEvery=2 -Dduration=60s
+public class UserApiLoadGenerator {
+
+    private static final String BASE_URL = System.getProperty("baseUrl", "http://localhost:8080");
+    private static final String LABEL = System.getProperty("label", "run");
+    private static final int CONCURRENCY = Integer.getInteger("concurrency", 200);
+    private static final Duration DURATION = Duration.parse("PT" + System.getProperty("duration", "30s"));
+    private static final Duration WARMUP = Duration.parse("PT" + System.getProperty("warmup", "10s"));
+    private static final int SEED_USERS = Integer.getInteger("seedUsers", 1_000);
+    private static final int LIST_EVERY = Integer.getInteger("listEvery", 20);
+    private static final int CLIENTS = Integer.getInteger("clients", CONCURRENCY);
+
+    public static void main(String[] args) throws Exception {
+
+        var client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        var userIds = seedUsers(client);
+
+        System.out.printf("[%s] warming up for %s%n", LABEL, WARMUP);
+        runLoad(client, userIds, WARMUP);
+
+        System.out.printf("[%s] measuring for %s with %d concurrent clients%n", LABEL, DURATION, CONCURRENCY);
+        var result = runLoad(client, userIds, DURATION);
+        result.print(LABEL, DURATION);
+    }
+
+    private static List<String> seedUsers(HttpClient client) throws Exception {
+
+        var userIds = new ArrayList<String>(SEED_USERS);
+        var run = Long.toString(System.currentTimeMillis(), 36);
+
+        for (int i = 0; i < SEED_USERS; i++) {
+            var body = """
+                    {"username":"load-%s-%d","email":"load-%s-%d@email.com","password":"123"}"""
+                    .formatted(run, i, run, i);
+            var request = HttpRequest.newBuilder(URI.create(BASE_URL + "/v1/users"))
+                    .header("Content-Type", "application/json")
+                    .header("X-Client-Id", "load-seed")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            var response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            // 429/503: espera o Retry-After e tenta de novo
+            while (response.statusCode() == 429 || response.statusCode() == 503) {
+                Thread.sleep(1_000L * response.headers().firstValueAsLong("Retry-After").orElse(1));
+                response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            }
+            // Location vem como "/v1/users<id>" (ou "/v1/users/<id>" no stack reativo)
+            var location = response.headers().firstValue("Location").orElseThrow();
+            userIds.add(location.substring(location.length() - 36));
+        }
+
+        return userIds;
+    }
+
+    private static Result runLoad(HttpClient client, List<String> userIds, Duration duration) throws InterruptedException {
+
+        var deadline = System.nanoTime() + duration.toNanos();
+        var errors = new AtomicLong();
+        var rejected = new AtomicLong();
+        var workers = new ArrayList<Thread>(CONCURRENCY);
+        var latencies = new ArrayList<long[]>(CONCURRENCY);
+        var counts = new int[CONCURRENCY];
+
+        for (int w = 0; w < CONCURRENCY; w++) {
+            var worker = w;
+            latencies.add(new long[1024]);
+            workers.add(Thread.ofVirtual().start(() -> {
+                var random = ThreadLocalRandom.current();
+                var samples = latencies.get(worker);
+                var count = 0;
+
+                while (System.nanoTime() < deadline) {
+                    var uri = count % LIST_EVERY == 0
+                            ? BASE_URL + "/v1/users?limit=50"
+                            : BASE_URL + "/v1/users/" + userIds.get(random.nextInt(userIds.size()));
+                    var request = HttpRequest.newBuilder(URI.create(uri))
+                            .header("X-Client-Id", "load-" + worker % CLIENTS)
+                            .GET()
+                            .build();
+
+                    var start = System.nanoTime();
+                    try {
+                        var response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() == 429 || response.statusCode() == 503) {
+                            rejected.incrementAndGet();
+                        } else if (response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+
+                    if (count == samples.length) {
+                        samples = Arrays.copyOf(samples, samples.length * 2);
+                        latencies.set(worker, samples);
+                    }
+                    samples[count++] = System.nanoTime() - start;
+                }
+                counts[worker] = count;
+            }));
+        }
+
+        for (var worker : workers) {
+            worker.join();
+        }
+
+        var total = Arrays.stream(counts).sum();
+        var all = new long[total];
+        var offset = 0;
+        for (int w = 0; w < CONCURRENCY; w++) {
+            System.arraycopy(latencies.get(w), 0, all, offset, counts[w]);
+            offset += counts[w];
+        }
+        Arrays.sort(all);
+
+        return new Result(all, errors.get(), rejected.get());
+    }
+
+    record Result(long[] sortedLatencies, long errors, long rejected) {
+
+        long percentileMicros(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            var index = (int) Math.ceil(percentile / 100.0 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, index)] / 1_000;
+        }
+
+        void print(String label, Duration duration) {
+            System.out.printf("RESULT [%s] requests=%d errors=%d rejected=%d throughput=%.0f req/s p50=%d us p99=%d us p99.9=%d us max=%d us%n",
+                    label, sortedLatencies.length, errors, rejected,
+                    sortedLatencies.length / (duration.toMillis() / 1000.0),
+                    percentileMicros(50), percentileMicros(99), percentileMicros(99.9),
+                    percentileMicros(100));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package joao.saraiva.agregadorinvestimentos.benchmark;
+
+import joao.saraiva.agregadorinvestimentos.AgregadorinvestimentosApplication;
+import org.springframework.boot.SpringApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Compara o stack servlet (Tomcat + JDBC/JPA) com o reativo (perfil reactive, Netty +
+// R2DBC) sob a mesma carga, sem MySQL: sobe a aplicação neste mesmo processo com um H2
+// em memória (JDBC ou r2dbc-h2, os dois no classpath de teste) e roda o
+// UserApiLoadGenerator contra ela. Um stack por execução, para um não aquecer o outro:
+//
+// ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+//     -Dexec.mainClass=joao.saraiva.agregadorinvestimentos.benchmark.UserApiStackComparison \
+//     -Dstack=servlet -Dconcurrency=500 -Dduration=60s
+// (de novo com -Dstack=virtual-threads e com -Dstack=reactive)
+//
+// Em todos os stacks: pool de 10 conexões, BCrypt com custo 4 (o seed não domina o tempo),
+// sem rate limit e sem cache, que só existem no stack servlet. As opções do gerador (-Dconcurrency,
+// -Dduration, -DlistEvery...) valem aqui; -Dlabel padrão é o nome do stack.
+public class UserApiStackComparison {
+
+    private static final String STACK = System.getProperty("stack", "servlet");
+    private static final int PORT = Integer.getInteger("port", 8080);
+
+    private static final String[] SCHEMA = {
+            "classpath:db/migration/h2/V1__create_tb_users.sql",
+            "classpath:db/migration/h2/V2__right_size_tb_users.sql",
+            "classpath:db/migration/h2/V3__covering_index_users_keyset.sql"
+    };
+
+    public static void main(String[] args) throws Exception {
+
+        // Como argumentos de linha de comando, para valerem por cima do application.properties
+        var arguments = new ArrayList<>(List.of(
+                "--server.port=" + PORT,
+                "--spring.jpa.show-sql=false",
+                "--app.password.bcrypt-strength=4",
+                "--app.rate-limit.enabled=false"));
+
+        switch (STACK) {
+            case "servlet", "virtual-threads" -> arguments.addAll(List.of(
+                    "--spring.datasource.url=jdbc:h2:mem:users;DB_CLOSE_DELAY=-1",
+                    "--spring.datasource.driver-class-name=org.h2.Driver",
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password=",
+                    "--spring.datasource.hikari.maximum-pool-size=10",
+                    // Sem os caches, que o stack reativo não tem: compara só o caminho até o banco
+                    "--app.cache.users.maximum-size=0",
+                    "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                    "--spring.jpa.properties.hibernate.cache.use_query_cache=false",
+                    // virtual-threads: Tomcat em virtual threads, com o log de pinning do perfil
+                    "--spring.profiles.active=" + (STACK.equals("virtual-threads") ? "virtual-threads" : "default")));
+            case "reactive" -> arguments.addAll(List.of(
+                    "--spring.profiles.active=reactive",
+                    "--spring.r2dbc.url=r2dbc:h2:mem:///users;DB_CLOSE_DELAY=-1",
+                    "--spring.r2dbc.username=sa",
+                    "--spring.r2dbc.password=",
+                    "--spring.sql.init.mode=always",
+                    "--spring.sql.init.schema-locations=" + String.join(",", SCHEMA)));
+            default -> throw new IllegalArgumentException("Unknown stack " + STACK + ", use servlet, virtual-threads or reactive");
+        }
+
+        System.setProperty("baseUrl", "http://localhost:" + PORT);
+        if (System.getProperty("label") == null) {
+            System.setProperty("label", STACK);
+        }
+
+        try (var context = SpringApplication.run(AgregadorinvestimentosApplication.class, arguments.toArray(String[]::new))) {
+            UserApiLoadGenerator.main(args);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package joao.saraiva.agregadorinvestimentos.benchmark;
+
+import jakarta.persistence.EntityManagerFactory;
+import joao.saraiva.agregadorinvestimentos.controller.CreateUserDto;
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
+import joao.saraiva.agregadorinvestimentos.service.UserService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Um serviço que faz fan-out: FAN_OUT getUserById concorrentes (cada um numa thread,
+// como FAN_OUT requisições GET /v1/users/{userId} nas threads do Tomcat) e o multi-get
+// com os mesmos IDs. loader=false é o findById um a um de antes; loader=true junta as
+// buscas em IN (...). O cache "users" fica desligado e o de segundo nível é esvaziado
+// antes de cada operação, para medir o caminho frio, que é o que o loader muda.
+//
+// Em cada iteração imprime quantos statements JDBC cada operação custou (idas ao
+// banco). No H2 em memória uma ida custa microssegundos; num MySQL pela rede cada
+// uma a menos economiza um round-trip inteiro e uma conexão do pool.
+//   mvn -Pbenchmark verify -Djmh.args="UserBatchLoaderBenchmark"
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class UserBatchLoaderBenchmark {
+
+    static final int FAN_OUT = 32;
+
+    @Param({"true", "false"})
+    public boolean loader;
+
+    private ConfigurableApplicationContext context;
+
+    private UserService userService;
+
+    private SessionFactory sessionFactory;
+
+    private Statistics statistics;
+
+    private ExecutorService executor;
+
+    private List<String> userIds;
+
+    private final AtomicLong operations = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = UserServiceBenchmark.startApplication(false, "--app.users.batch-loader.enabled=" + loader);
+        userService = context.getBean(UserService.class);
+        sessionFactory = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class);
+        statistics = sessionFactory.getStatistics();
+        executor = Executors.newFixedThreadPool(FAN_OUT);
+
+        userIds = new ArrayList<>(UserServiceBenchmark.SEED_USERS);
+        for (int i = 0; i < UserServiceBenchmark.SEED_USERS; i++) {
+            var userId = userService.createUser(new CreateUserDto("seed" + i, "seed" + i + "@email.com", "password"));
+            userIds.add(userId.toString());
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetStatistics() {
+        statistics.clear();
+        operations.set(0);
+    }
+
+    @Setup(Level.Invocation)
+    public void evictSecondLevelCache() {
+        sessionFactory.getCache().evictAllRegions();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printRoundTrips() {
+        System.out.printf("%n[loader=%s] %.2f statements por operação%n",
+                loader, (double) statistics.getPrepareStatementCount() / Math.max(1, operations.get()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.close();
+        context.close();
+    }
+
+    private List<String> randomUserIds() {
+        var random = ThreadLocalRandom.current();
+        return random.ints(FAN_OUT, 0, userIds.size()).mapToObj(userIds::get).toList();
+    }
+
+    @Benchmark
+    public List<Optional<UserDto>> fanOutGetUserById() throws Exception {
+        operations.incrementAndGet();
+        var futures = randomUserIds().stream()
+                .map(userId -> executor.submit(() -> userService.getUserById(userId)))
+                .toList();
+        var users = new ArrayList<Optional<UserDto>>(FAN_OUT);
+        for (var future : futures) {
+            users.add(future.get());
+        }
+        return users;
+    }
+
+    @Benchmark
+    public List<UserDto> multiGet() {
+        operations.incrementAndGet();
+        return userService.getUsersByIds(randomUserIds());
+    }
+}
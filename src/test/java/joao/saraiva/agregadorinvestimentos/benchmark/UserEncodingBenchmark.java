@@ -0,0 +1,90 @@
+package joao.saraiva.agregadorinvestimentos.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import joao.saraiva.agregadorinvestimentos.config.BinaryEncodingConfig;
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
+import joao.saraiva.agregadorinvestimentos.controller.UserPageDto;
+import joao.saraiva.agregadorinvestimentos.entity.UuidV7Generator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// Custo de codificar uma página de usuários (GET /v1/users) em cada formato aceito pela API,
+// com e sem o gzip que o Tomcat aplica acima de server.compression.min-response-size.
+// O tamanho em bytes de cada combinação sai no log do setup ("bytes on the wire").
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserEncodingBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int users;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"identity", "gzip"})
+    private String encoding;
+
+    private ObjectWriter writer;
+
+    private ObjectReader reader;
+
+    private UserPageDto page;
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = switch (format) {
+            case "json" -> Jackson2ObjectMapperBuilder.json().build();
+            case "cbor" -> BinaryEncodingConfig.binaryMapper(Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()));
+            case "smile" -> BinaryEncodingConfig.binaryMapper(Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()));
+            default -> throw new IllegalArgumentException(format);
+        };
+        writer = objectMapper.writerFor(UserPageDto.class);
+        reader = objectMapper.readerFor(UserPageDto.class);
+
+        var list = new ArrayList<UserDto>(users);
+        for (int i = 0; i < users; i++) {
+            list.add(new UserDto(UuidV7Generator.generate(), "username" + i, "user" + i + "@email.com",
+                    Instant.now(), Instant.now(), 0L));
+        }
+        page = new UserPageDto(list, "MTcwMDAwMDAwMDowOjAxOGY");
+
+        body = writer.writeValueAsBytes(page);
+        System.out.printf("%nbytes on the wire: users=%d format=%s encoding=%s -> %d%n",
+                users, format, encoding, encode().length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        if ("identity".equals(encoding)) {
+            return writer.writeValueAsBytes(page);
+        }
+        var bytes = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(bytes)) {
+            writer.writeValue(gzip, page);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Lado de quem consome a API (sem gzip, o cliente HTTP já entrega descomprimido)
+    @Benchmark
+    public UserPageDto decode() throws IOException {
+        return reader.readValue(body);
+    }
+}
@@ -0,0 +1,140 @@
+package joao.saraiva.agregadorinvestimentos.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import joao.saraiva.agregadorinvestimentos.config.GrpcServerLifecycle;
+import joao.saraiva.agregadorinvestimentos.controller.CreateUserDto;
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
+import joao.saraiva.agregadorinvestimentos.grpc.GetUserRequest;
+import joao.saraiva.agregadorinvestimentos.grpc.ListUsersRequest;
+import joao.saraiva.agregadorinvestimentos.grpc.User;
+import joao.saraiva.agregadorinvestimentos.grpc.UserServiceGrpc;
+import joao.saraiva.agregadorinvestimentos.service.UserBatchService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+// A mesma aplicação atendendo pelo REST (Tomcat, HTTP/1.1 + JSON) e pelo gRPC (Netty,
+// HTTP/2 + protobuf), com o cliente no mesmo processo e tudo pelo loopback. Cada chamada
+// inclui o lado do cliente: montar a requisição e decodificar a resposta (Jackson em
+// UserDto / protobuf em User), como um serviço consumidor faria.
+//
+// getUser* mede uma busca por ID que vem do cache "users" (o custo é quase só transporte
+// e serialização); listUsers* lê a tabela inteira pelo stream (NDJSON em GET /v1/users
+// e o ListUsers do gRPC). SampleTime dá a latência (p50/p99), Throughput a vazão; com
+// -t N são N clientes concorrentes:
+//   mvn -Pbenchmark verify -Djmh.args="UserGrpcVsRestBenchmark -t 16"
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UserGrpcVsRestBenchmark {
+
+    static final int SEED_USERS = 10_000;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient httpClient;
+
+    private ObjectMapper objectMapper;
+
+    private String baseUrl;
+
+    private ManagedChannel channel;
+
+    private UserServiceGrpc.UserServiceBlockingStub stub;
+
+    private List<String> userIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = UserServiceBenchmark.startApplication(WebApplicationType.SERVLET, true,
+                "--server.port=0",
+                "--app.grpc.enabled=true",
+                "--app.grpc.port=0",
+                "--app.rate-limit.enabled=false",
+                // Respostas sem gzip nos dois lados
+                "--server.compression.enabled=false");
+
+        // Seed pelo import em lote: bem mais rápido que um createUser por usuário
+        var users = IntStream.range(0, SEED_USERS)
+                .mapToObj(i -> new CreateUserDto("seed" + i, "seed" + i + "@email.com", "password"))
+                .iterator();
+        userIds = new ArrayList<>(SEED_USERS);
+        context.getBean(UserBatchService.class).createUsers(users,
+                results -> results.forEach(result -> userIds.add(result.userId().toString())));
+
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        objectMapper = context.getBean(ObjectMapper.class);
+
+        var grpcPort = context.getBean(GrpcServerLifecycle.class).getPort();
+        channel = Grpc.newChannelBuilderForAddress("localhost", grpcPort, InsecureChannelCredentials.create()).build();
+        stub = UserServiceGrpc.newBlockingStub(channel);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        context.close();
+    }
+
+    private String randomUserId() {
+        return userIds.get(ThreadLocalRandom.current().nextInt(userIds.size()));
+    }
+
+    @Benchmark
+    public UserDto getUserRest() throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(URI.create(baseUrl + "/v1/users/" + randomUserId())).GET().build();
+        var response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        return objectMapper.readValue(response.body(), UserDto.class);
+    }
+
+    @Benchmark
+    public User getUserGrpc() {
+        return stub.getUser(GetUserRequest.newBuilder().setUserId(randomUserId()).build());
+    }
+
+    @Benchmark
+    public long listUsersRest() throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(URI.create(baseUrl + "/v1/users"))
+                .header("Accept", "application/x-ndjson")
+                .GET()
+                .build();
+        try (var lines = httpClient.send(request, HttpResponse.BodyHandlers.ofLines()).body()) {
+            var count = 0L;
+            for (var line : (Iterable<String>) lines::iterator) {
+                objectMapper.readValue(line, UserDto.class);
+                count++;
+            }
+            return count;
+        }
+    }
+
+    @Benchmark
+    public long listUsersGrpc() {
+        var users = stub.listUsers(ListUsersRequest.getDefaultInstance());
+        var count = 0L;
+        while (users.hasNext()) {
+            users.next();
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,101 @@
+package joao.saraiva.agregadorinvestimentos.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import joao.saraiva.agregadorinvestimentos.controller.CreateUserDto;
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
+import joao.saraiva.agregadorinvestimentos.controller.UserPageDto;
+import joao.saraiva.agregadorinvestimentos.entity.User;
+import joao.saraiva.agregadorinvestimentos.entity.UuidV7Generator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+// Serialização e desserialização JSON do que a API devolve e recebe,
+// com o mesmo ObjectMapper que o Spring Boot configura (módulo de java.time etc.)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserJsonBenchmark {
+
+    private ObjectWriter userWriter;
+
+    private ObjectWriter userDtoWriter;
+
+    private ObjectWriter pageWriter;
+
+    private ObjectReader userReader;
+
+    private ObjectReader createUserReader;
+
+    private User user;
+
+    private UserDto userDto;
+
+    private UserPageDto page;
+
+    private byte[] userJson;
+
+    private byte[] createUserJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        user = newUser(0);
+        userDto = UserDto.from(user);
+        var users = new ArrayList<UserDto>();
+        for (int i = 0; i < 50; i++) {
+            users.add(UserDto.from(newUser(i)));
+        }
+        page = new UserPageDto(users, "MTcwMDAwMDAwMDowOjAxOGY");
+
+        userWriter = objectMapper.writerFor(User.class);
+        userDtoWriter = objectMapper.writerFor(UserDto.class);
+        pageWriter = objectMapper.writerFor(UserPageDto.class);
+        userReader = objectMapper.readerFor(User.class);
+        createUserReader = objectMapper.readerFor(CreateUserDto.class);
+
+        userJson = userWriter.writeValueAsBytes(user);
+        createUserJson = objectMapper.writeValueAsBytes(new CreateUserDto("username", "email@email.com", "password"));
+    }
+
+    private static User newUser(int i) {
+        return new User(UuidV7Generator.generate(), "username" + i, "user" + i + "@email.com", "password",
+                Instant.now(), Instant.now());
+    }
+
+    // Entidade inteira (como a API respondia antes, com a senha) contra o UserDto
+    @Benchmark
+    public byte[] serializeUser() throws IOException {
+        return userWriter.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] serializeUserDto() throws IOException {
+        return userDtoWriter.writeValueAsBytes(userDto);
+    }
+
+    @Benchmark
+    public byte[] serializeUserPage() throws IOException {
+        return pageWriter.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public User deserializeUser() throws IOException {
+        return userReader.readValue(userJson);
+    }
+
+    @Benchmark
+    public CreateUserDto deserializeCreateUserDto() throws IOException {
+        return createUserReader.readValue(createUserJson);
+    }
+}
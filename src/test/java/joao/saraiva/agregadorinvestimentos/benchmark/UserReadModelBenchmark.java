@@ -0,0 +1,129 @@
+package joao.saraiva.agregadorinvestimentos.benchmark;
+
+import jakarta.persistence.EntityManagerFactory;
+import joao.saraiva.agregadorinvestimentos.controller.CreateUserDto;
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
+import joao.saraiva.agregadorinvestimentos.entity.User;
+import joao.saraiva.agregadorinvestimentos.repository.UserRepository;
+import joao.saraiva.agregadorinvestimentos.service.UserService;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Quanto custa ler usuários como entidade gerenciada (como era antes) contra a
+// projeção UserDto e contra a entidade read-only convertida para UserDto,
+// numa sessão nova por operação, como numa requisição.
+// Os dois lados ignoram o cache de segundo nível para medir só hidratação + JDBC.
+// Rode com o profiler de GC para ver a alocação por requisição (gc.alloc.rate.norm):
+//   mvn -Pbenchmark verify -Djmh.args="UserReadModelBenchmark -prof gc"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class UserReadModelBenchmark {
+
+    private static final String ENTITY_PAGE =
+            "select u from User u order by u.creationTimestamp, u.userId";
+
+    private static final String DTO_PAGE =
+            "select " + UserRepository.USER_DTO + " from User u order by u.creationTimestamp, u.userId";
+
+    private ConfigurableApplicationContext context;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    private List<UUID> userIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = UserServiceBenchmark.startApplication(false);
+        entityManagerFactory = context.getBean(EntityManagerFactory.class);
+        var userService = context.getBean(UserService.class);
+
+        userIds = new ArrayList<>(UserServiceBenchmark.SEED_USERS);
+        for (int i = 0; i < UserServiceBenchmark.SEED_USERS; i++) {
+            userIds.add(userService.createUser(new CreateUserDto("seed" + i, "seed" + i + "@email.com", "password")));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private Session openSession(boolean readOnly) {
+        var session = entityManagerFactory.createEntityManager().unwrap(Session.class);
+        session.setCacheMode(CacheMode.IGNORE);
+        session.setDefaultReadOnly(readOnly);
+        return session;
+    }
+
+    private UUID randomUserId() {
+        return userIds.get(ThreadLocalRandom.current().nextInt(userIds.size()));
+    }
+
+    @Benchmark
+    public User getEntityById() {
+        try (var session = openSession(false)) {
+            var tx = session.beginTransaction();
+            var user = session.find(User.class, randomUserId());
+            tx.commit(); // flush + dirty checking, como numa transação comum
+            return user;
+        }
+    }
+
+    @Benchmark
+    public UserDto getReadOnlyEntityById() {
+        try (var session = openSession(true)) {
+            var tx = session.beginTransaction();
+            var user = session.find(User.class, randomUserId());
+            tx.commit();
+            return UserDto.from(user);
+        }
+    }
+
+    @Benchmark
+    public UserDto getDtoById() {
+        try (var session = openSession(true)) {
+            var tx = session.beginTransaction();
+            var user = session.createQuery("select " + UserRepository.USER_DTO + " from User u where u.userId = :userId", UserDto.class)
+                    .setParameter("userId", randomUserId())
+                    .getSingleResult();
+            tx.commit();
+            return user;
+        }
+    }
+
+    @Benchmark
+    public List<User> listEntityPage() {
+        try (var session = openSession(false)) {
+            var tx = session.beginTransaction();
+            var users = session.createQuery(ENTITY_PAGE, User.class)
+                    .setMaxResults(UserService.DEFAULT_PAGE_SIZE)
+                    .getResultList();
+            tx.commit();
+            return users;
+        }
+    }
+
+    @Benchmark
+    public List<UserDto> listDtoPage() {
+        try (var session = openSession(true)) {
+            var tx = session.beginTransaction();
+            var users = session.createQuery(DTO_PAGE, UserDto.class)
+                    .setMaxResults(UserService.DEFAULT_PAGE_SIZE)
+                    .getResultList();
+            tx.commit();
+            return users;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package joao.saraiva.agregadorinvestimentos.benchmark;
+
+import joao.saraiva.agregadorinvestimentos.AgregadorinvestimentosApplication;
+import joao.saraiva.agregadorinvestimentos.controller.CreateUserDto;
+import joao.saraiva.agregadorinvestimentos.controller.UpdateUserDto;
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
+import joao.saraiva.agregadorinvestimentos.controller.UserPageDto;
+import joao.saraiva.agregadorinvestimentos.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Caminhos quentes do UserService com o Spring de verdade (proxies, transações,
+// cache) sobre um H2 em memória no modo MySQL. Não mede o MySQL em si; serve para
+// pegar regressões no nosso código e no mapeamento do Hibernate.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    public static final int SEED_USERS = 10_000;
+
+    // "false" zera o cache de usuários para medir a ida ao banco no getUserById
+    @Param({"true", "false"})
+    public boolean cache;
+
+    private ConfigurableApplicationContext context;
+
+    private UserService userService;
+
+    private List<String> userIds;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = startApplication(cache);
+        userService = context.getBean(UserService.class);
+
+        userIds = new ArrayList<>(SEED_USERS);
+        for (int i = 0; i < SEED_USERS; i++) {
+            var userId = userService.createUser(new CreateUserDto("seed" + i, "seed" + i + "@email.com", "password"));
+            userIds.add(userId.toString());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // Argumentos de linha de comando têm prioridade sobre o application.properties
+    static ConfigurableApplicationContext startApplication(boolean cache, String... extraArgs) {
+        return startApplication(WebApplicationType.NONE, cache, extraArgs);
+    }
+
+    // Com servidor (Tomcat e gRPC) para os benchmarks que chamam a API pela rede
+    static ConfigurableApplicationContext startApplication(WebApplicationType webApplicationType,
+                                                           boolean cache,
+                                                           String... extraArgs) {
+        var args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--app.cache.users.maximum-size=" + (cache ? 10_000 : 0),
+                // Custo mínimo do BCrypt: o seed de 10k usuários não é o que está sendo medido
+                "--app.password.bcrypt-strength=4",
+                "--logging.level.root=WARN",
+                "--app.grpc.enabled=" + (webApplicationType != WebApplicationType.NONE)));
+        args.addAll(List.of(extraArgs));
+        return new SpringApplicationBuilder(AgregadorinvestimentosApplication.class)
+                .web(webApplicationType)
+                .run(args.toArray(String[]::new));
+    }
+
+    private String randomUserId() {
+        return userIds.get(ThreadLocalRandom.current().nextInt(userIds.size()));
+    }
+
+    @Benchmark
+    public Object createUser() {
+        var n = sequence.incrementAndGet();
+        return userService.createUser(new CreateUserDto("bench" + n, "bench" + n + "@email.com", "password"));
+    }
+
+    @Benchmark
+    public Optional<UserDto> getUserById() {
+        return userService.getUserById(randomUserId());
+    }
+
+    @Benchmark
+    public UserPageDto listUsers() {
+        return userService.listUsers(null, UserService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public boolean updateUserById() {
+        return userService.updateUserById(randomUserId(), new UpdateUserDto(null, "password" + sequence.incrementAndGet()));
+    }
+}
@@ -0,0 +1,118 @@
+package joao.saraiva.agregadorinvestimentos.benchmark;
+
+import joao.saraiva.agregadorinvestimentos.entity.UuidV7Generator;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+// Compara a vazão de INSERT e o tamanho da tabela/índices com chave UUID v4 em texto
+// (CHAR(36), como era antes) contra UUID v7 em BINARY(16). Precisa de um MySQL rodando
+// (docker compose up) e leva um bom tempo com 10M linhas. Exemplo:
+//
+// ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+//     -Dexec.mainClass=joao.saraiva.agregadorinvestimentos.benchmark.UuidInsertBenchmark \
+//     -Drows=10000000
+//
+// A vazão parcial é impressa a cada milhão de linhas para mostrar a queda do v4
+// quando a tabela passa do tamanho do buffer pool.
+public class UuidInsertBenchmark {
+
+    private static final String URL = System.getProperty("jdbc.url",
+            "jdbc:mysql://localhost:3306/db_example?rewriteBatchedStatements=true");
+    private static final String USER = System.getProperty("jdbc.user", "springuser");
+    private static final String PASSWORD = System.getProperty("jdbc.password", "ThePassword");
+    private static final long ROWS = Long.getLong("rows", 10_000_000L);
+    private static final int BATCH_SIZE = Integer.getInteger("batchSize", 5_000);
+    private static final long REPORT_EVERY = 1_000_000L;
+
+    interface IdBinder {
+        void bind(PreparedStatement statement) throws SQLException;
+    }
+
+    public static void main(String[] args) throws SQLException {
+
+        try (var connection = DriverManager.getConnection(URL, USER, PASSWORD)) {
+            run(connection, "bench_users_v4_char", "CHAR(36)",
+                    statement -> statement.setString(1, UUID.randomUUID().toString()));
+            run(connection, "bench_users_v7_binary", "BINARY(16)",
+                    statement -> statement.setBytes(1, toBytes(UuidV7Generator.generate())));
+        }
+    }
+
+    private static void run(Connection connection, String table, String idType, IdBinder idBinder) throws SQLException {
+
+        try (var statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + table);
+            // Mesmo formato de tb_users; só muda o tipo da chave primária
+            statement.execute("CREATE TABLE " + table + " ("
+                    + "user_id " + idType + " NOT NULL PRIMARY KEY, "
+                    + "username VARCHAR(255) UNIQUE, "
+                    + "email VARCHAR(255) UNIQUE, "
+                    + "password VARCHAR(255), "
+                    + "creation_timestamp DATETIME(6), "
+                    + "update_timestamp DATETIME(6))");
+        }
+
+        connection.setAutoCommit(false);
+        var sql = "INSERT INTO " + table
+                + " (user_id, username, email, password, creation_timestamp) VALUES (?, ?, ?, ?, ?)";
+
+        var start = System.nanoTime();
+        var windowStart = start;
+
+        try (var statement = connection.prepareStatement(sql)) {
+            for (long i = 1; i <= ROWS; i++) {
+                idBinder.bind(statement);
+                statement.setString(2, "user" + i);
+                statement.setString(3, "user" + i + "@email.com");
+                statement.setString(4, "password");
+                statement.setTimestamp(5, Timestamp.from(Instant.now()));
+                statement.addBatch();
+
+                if (i % BATCH_SIZE == 0 || i == ROWS) {
+                    statement.executeBatch();
+                    connection.commit();
+                }
+
+                if (i % REPORT_EVERY == 0) {
+                    var now = System.nanoTime();
+                    System.out.printf("%s: %,d rows, last %,d at %,.0f rows/s%n",
+                            table, i, REPORT_EVERY, REPORT_EVERY / seconds(now - windowStart));
+                    windowStart = now;
+                }
+            }
+        }
+
+        var elapsed = seconds(System.nanoTime() - start);
+        connection.setAutoCommit(true);
+
+        try (var statement = connection.createStatement()) {
+            statement.execute("ANALYZE TABLE " + table);
+            try (var resultSet = statement.executeQuery("SELECT data_length, index_length "
+                    + "FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = '" + table + "'")) {
+                resultSet.next();
+                System.out.printf("RESULT %s (%s): %,d rows in %.1f s = %,.0f rows/s, data %,.1f MB, indexes %,.1f MB%n",
+                        table, idType, ROWS, elapsed, ROWS / elapsed,
+                        resultSet.getLong(1) / 1_048_576.0, resultSet.getLong(2) / 1_048_576.0);
+            }
+        }
+    }
+
+    // Mesma ordem de bytes que o Hibernate usa para UUID em coluna BINARY
+    private static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1_000_000_000.0;
+    }
+}
@@ -0,0 +1,35 @@
+package joao.saraiva.agregadorinvestimentos.benchmark;
+
+import joao.saraiva.agregadorinvestimentos.entity.UuidV7Generator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// UUID.fromString roda em toda requisição com {userId} no path
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UuidParseBenchmark {
+
+    private String[] pathVariables;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        pathVariables = new String[1024];
+        for (int i = 0; i < pathVariables.length; i++) {
+            pathVariables[i] = UuidV7Generator.generate().toString();
+        }
+    }
+
+    @Benchmark
+    public UUID fromString() {
+        next = (next + 1) & (pathVariables.length - 1);
+        return UUID.fromString(pathVariables[next]);
+    }
+}
@@ -0,0 +1,165 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
+import joao.saraiva.agregadorinvestimentos.controller.UserGrpcService;
+import joao.saraiva.agregadorinvestimentos.grpc.CreateUserRequest;
+import joao.saraiva.agregadorinvestimentos.grpc.ListUsersRequest;
+import joao.saraiva.agregadorinvestimentos.grpc.UserServiceGrpc;
+import joao.saraiva.agregadorinvestimentos.service.UserBatchService;
+import joao.saraiva.agregadorinvestimentos.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// O interceptor na frente do UserGrpcService de verdade, por um servidor e canal em memória
+@ExtendWith(MockitoExtension.class)
+class GrpcRateLimitInterceptorTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // 10 tokens, 1 por segundo
+    private final TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(10, 1, 1_000, clock::get);
+
+    @Mock
+    private LoadShedder loadShedder;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private UserBatchService userBatchService;
+
+    private Server server;
+
+    private ManagedChannel channel;
+
+    private UserServiceGrpc.UserServiceBlockingStub start(GrpcRateLimitInterceptor interceptor) throws IOException {
+        var name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+                .addService(ServerInterceptors.intercept(new UserGrpcService(userService, userBatchService), interceptor))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).build();
+        return UserServiceGrpc.newBlockingStub(channel).withDeadlineAfter(10, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private static CreateUserRequest createUserRequest() {
+        return CreateUserRequest.newBuilder().setUsername("username").setEmail("email@email.com").setPassword("123").build();
+    }
+
+    private static StatusRuntimeException rejection(Runnable call) {
+        return assertThrows(StatusRuntimeException.class, call::run);
+    }
+
+    @Nested
+    class interceptCall {
+
+        @Test
+        @DisplayName("Should fail with RESOURCE_EXHAUSTED and a retry pushback once the client spent its tokens")
+        void shouldRejectWhenOutOfTokens() throws IOException {
+            //Arrange
+            var stub = start(new GrpcRateLimitInterceptor(rateLimiter, loadShedder, 4, meterRegistry));
+            doReturn(UUID.randomUUID()).when(userService).createUser(any());
+            stub.createUser(createUserRequest()); // custa 5
+            stub.createUser(createUserRequest());
+
+            //Act
+            var e = rejection(() -> stub.createUser(createUserRequest()));
+
+            //Assert
+            assertEquals(Status.Code.RESOURCE_EXHAUSTED, e.getStatus().getCode());
+            assertEquals("5000", e.getTrailers().get(GrpcRateLimitInterceptor.RETRY_PUSHBACK));
+            verify(userService, times(2)).createUser(any());
+            assertEquals(1, meterRegistry.get("grpc.server.requests.rejected").tag("reason", "rate-limit").counter().count());
+        }
+
+        @Test
+        @DisplayName("Should fail with UNAVAILABLE without calling the service when the database is saturated")
+        void shouldRejectWhenOverloaded() throws IOException {
+            //Arrange
+            var stub = start(new GrpcRateLimitInterceptor(rateLimiter, loadShedder, 4, meterRegistry));
+            doReturn(true).when(loadShedder).isOverloaded();
+
+            //Act
+            var e = rejection(() -> stub.createUser(createUserRequest()));
+
+            //Assert
+            assertEquals(Status.Code.UNAVAILABLE, e.getStatus().getCode());
+            assertEquals("1000", e.getTrailers().get(GrpcRateLimitInterceptor.RETRY_PUSHBACK));
+            verifyNoInteractions(userService);
+            assertEquals(1, meterRegistry.get("grpc.server.requests.rejected").tag("reason", "overload").counter().count());
+        }
+
+        @Test
+        @DisplayName("Should refuse a stream over the limit and accept it again once one finishes")
+        void shouldLimitConcurrentStreams() throws Exception {
+            //Arrange
+            // Sem rate limit (app.rate-limit.enabled=false): só o limite de streams vale
+            var stub = start(new GrpcRateLimitInterceptor(null, null, 1, meterRegistry));
+            var started = new CountDownLatch(1);
+            var release = new CountDownLatch(1);
+            doAnswer(invocation -> {
+                Consumer<UserDto> consumer = invocation.getArgument(0);
+                started.countDown();
+                release.await(10, TimeUnit.SECONDS);
+                consumer.accept(new UserDto(UUID.randomUUID(), "username", "email@email.com", Instant.now(), null, 0L));
+                return null;
+            }).when(userService).streamUsers(any());
+            var first = stub.listUsers(ListUsersRequest.getDefaultInstance());
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            //Act
+            var e = rejection(() -> stub.listUsers(ListUsersRequest.getDefaultInstance()).hasNext());
+            release.countDown();
+            first.forEachRemaining(user -> { });
+
+            //Assert
+            assertEquals(Status.Code.RESOURCE_EXHAUSTED, e.getStatus().getCode());
+            assertEquals(1, meterRegistry.get("grpc.server.requests.rejected").tag("reason", "streams").counter().count());
+            // A vaga do primeiro volta no onComplete do servidor, que pode chegar logo depois
+            // do cliente ver o fim do stream
+            var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (true) {
+                try {
+                    assertTrue(stub.listUsers(ListUsersRequest.getDefaultInstance()).hasNext());
+                    break;
+                } catch (StatusRuntimeException retry) {
+                    assertTrue(System.nanoTime() < deadline, "stream permit was not released");
+                    Thread.sleep(10);
+                }
+            }
+        }
+    }
+}
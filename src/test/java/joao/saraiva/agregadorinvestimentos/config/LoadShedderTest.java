@@ -0,0 +1,74 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// As mesmas métricas que o MicrometerMetricsTrackerFactory do Hikari registra
+class LoadShedderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private Timer acquire;
+
+    private LoadShedder loadShedder;
+
+    @BeforeEach
+    void setUp() {
+        acquire = Timer.builder("hikaricp.connections.acquire").tag("pool", "primary").register(meterRegistry);
+        Gauge.builder("hikaricp.connections.pending", pending, AtomicInteger::get).tag("pool", "primary").register(meterRegistry);
+        loadShedder = new LoadShedder(meterRegistry, Duration.ofMillis(100), 5, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        loadShedder.close();
+    }
+
+    @Test
+    @DisplayName("Should shed while the mean acquire wait since the last sample is above the limit")
+    void shouldShedOnSlowAcquire() {
+        //Arrange
+        acquire.record(Duration.ofMillis(10));
+        loadShedder.sample();
+        assertFalse(loadShedder.isOverloaded());
+
+        //Act
+        acquire.record(Duration.ofMillis(150));
+        acquire.record(Duration.ofMillis(250));
+        loadShedder.sample();
+        var overloaded = loadShedder.isOverloaded();
+
+        acquire.record(Duration.ofMillis(5));
+        loadShedder.sample();
+
+        //Assert
+        assertTrue(overloaded);
+        assertFalse(loadShedder.isOverloaded());
+    }
+
+    @Test
+    @DisplayName("Should shed while too many threads wait for a connection")
+    void shouldShedOnPendingConnections() {
+        //Arrange
+        pending.set(6);
+
+        //Act
+        loadShedder.sample();
+
+        //Assert
+        assertTrue(loadShedder.isOverloaded());
+        assertEquals(1, meterRegistry.get("hikaricp.overloaded").gauge().value());
+    }
+}
@@ -0,0 +1,182 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import joao.saraiva.agregadorinvestimentos.controller.UserController;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimitInterceptorTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // 10 tokens, 1 por segundo
+    private final TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(10, 1, 1_000, clock::get);
+
+    @Mock
+    private LoadShedder loadShedder;
+
+    private HandlerMethod handler(String name) {
+        for (var method : UserController.class.getMethods()) {
+            if (method.getName().equals(name)) {
+                return new HandlerMethod(mock(UserController.class), method);
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    private static final String PROXY = "10.0.0.100";
+
+    // Requisição que chegou pelo proxy confiável, com o cliente no header
+    private MockHttpServletRequest request(String client) {
+        var request = new MockHttpServletRequest("GET", "/v1/users");
+        request.setRemoteAddr(PROXY);
+        request.addHeader("X-Client-Id", client);
+        return request;
+    }
+
+    private RateLimitInterceptor interceptor(String clientHeader) {
+        return new RateLimitInterceptor(rateLimiter, loadShedder, clientHeader, List.of(PROXY), meterRegistry);
+    }
+
+    @Nested
+    class preHandle {
+
+        @Test
+        @DisplayName("Should return 429 with Retry-After once the client spent its tokens")
+        void shouldRejectWhenOutOfTokens() throws Exception {
+            //Arrange
+            var interceptor = interceptor("X-Client-Id");
+            var listUsers = handler("listUsers"); // custa 5
+            assertTrue(interceptor.preHandle(request("client"), new MockHttpServletResponse(), listUsers));
+            assertTrue(interceptor.preHandle(request("client"), new MockHttpServletResponse(), listUsers));
+
+            //Act
+            var response = new MockHttpServletResponse();
+            var allowed = interceptor.preHandle(request("client"), response, listUsers);
+
+            //Assert
+            assertFalse(allowed);
+            assertEquals(429, response.getStatus());
+            assertEquals("5", response.getHeader("Retry-After"));
+            assertEquals(1, meterRegistry.get("http.server.requests.rejected").tag("reason", "rate-limit").counter().count());
+            // Outro cliente não é afetado
+            assertTrue(interceptor.preHandle(request("other"), new MockHttpServletResponse(), listUsers));
+        }
+
+        @Test
+        @DisplayName("Should charge getUserById less than listUsers")
+        void shouldChargeEndpointCost() throws Exception {
+            //Arrange
+            var interceptor = interceptor("X-Client-Id");
+            var getUserById = handler("getUserById");
+
+            //Act
+            var allowed = 0;
+            while (interceptor.preHandle(request("client"), new MockHttpServletResponse(), getUserById)) {
+                allowed++;
+            }
+
+            //Assert
+            assertEquals(10, allowed);
+        }
+
+        @Test
+        @DisplayName("Should return 503 with Retry-After while the database is saturated")
+        void shouldShedWhenOverloaded() throws Exception {
+            //Arrange
+            var interceptor = interceptor("X-Client-Id");
+            doReturn(true).when(loadShedder).isOverloaded();
+
+            //Act
+            var response = new MockHttpServletResponse();
+            var allowed = interceptor.preHandle(request("client"), response, handler("getUserById"));
+
+            //Assert
+            assertFalse(allowed);
+            assertEquals(503, response.getStatus());
+            assertEquals("1", response.getHeader("Retry-After"));
+            assertEquals(1, meterRegistry.get("http.server.requests.rejected").tag("reason", "overload").counter().count());
+        }
+
+        @Test
+        @DisplayName("Should fall back to the remote address when there is no client header")
+        void shouldUseRemoteAddress() throws Exception {
+            //Arrange
+            var interceptor = interceptor("X-Client-Id");
+            var streamUsers = handler("streamUsers"); // custa 50, mais que a capacidade
+            var request = new MockHttpServletRequest("GET", "/v1/users");
+            request.setRemoteAddr("10.0.0.1");
+
+            //Act
+            var first = interceptor.preHandle(request, new MockHttpServletResponse(), streamUsers);
+            var second = interceptor.preHandle(request, new MockHttpServletResponse(), streamUsers);
+
+            //Assert
+            assertTrue(first);
+            assertFalse(second);
+            assertTrue(interceptor.preHandle(request("client"), new MockHttpServletResponse(), streamUsers));
+        }
+
+        @Test
+        @DisplayName("Should ignore the client header when the request does not come from a trusted proxy")
+        void shouldIgnoreHeaderFromUntrustedAddress() throws Exception {
+            //Arrange
+            var interceptor = interceptor("X-Client-Id");
+            var streamUsers = handler("streamUsers"); // custa 50, mais que a capacidade
+
+            //Act
+            // Um header novo a cada requisição não dá um balde novo
+            var allowed = 0;
+            for (int i = 0; i < 5; i++) {
+                var request = new MockHttpServletRequest("GET", "/v1/users");
+                request.setRemoteAddr("203.0.113.7");
+                request.addHeader("X-Client-Id", "rotating-" + i);
+                if (interceptor.preHandle(request, new MockHttpServletResponse(), streamUsers)) {
+                    allowed++;
+                }
+            }
+
+            //Assert
+            assertEquals(1, allowed);
+        }
+
+        @Test
+        @DisplayName("Should key on the address the trusted proxy appended to X-Forwarded-For")
+        void shouldUseLastForwardedAddress() throws Exception {
+            //Arrange
+            var interceptor = interceptor("X-Forwarded-For");
+            var streamUsers = handler("streamUsers");
+            var first = new MockHttpServletRequest("GET", "/v1/users");
+            first.setRemoteAddr(PROXY);
+            first.addHeader("X-Forwarded-For", "1.1.1.1, 198.51.100.1");
+            // O cliente inventou o primeiro endereço; o último quem pôs foi o proxy
+            var spoofed = new MockHttpServletRequest("GET", "/v1/users");
+            spoofed.setRemoteAddr(PROXY);
+            spoofed.addHeader("X-Forwarded-For", "9.9.9.9, 198.51.100.1");
+            var other = new MockHttpServletRequest("GET", "/v1/users");
+            other.setRemoteAddr(PROXY);
+            other.addHeader("X-Forwarded-For", "198.51.100.2");
+
+            //Act & Assert
+            assertTrue(interceptor.preHandle(first, new MockHttpServletResponse(), streamUsers));
+            assertFalse(interceptor.preHandle(spoofed, new MockHttpServletResponse(), streamUsers));
+            assertTrue(interceptor.preHandle(other, new MockHttpServletResponse(), streamUsers));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import joao.saraiva.agregadorinvestimentos.controller.CreateUserDto;
+import joao.saraiva.agregadorinvestimentos.controller.UpdateUserDto;
+import joao.saraiva.agregadorinvestimentos.service.PasswordHasher;
+import joao.saraiva.agregadorinvestimentos.service.UserService;
+import joao.saraiva.agregadorinvestimentos.service.UserVersionConflictException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Primário e réplica são dois H2 separados. A "replicação" é manual: replicate() copia
+// o primário inteiro para a réplica, então entre uma cópia e outra a réplica fica atrasada.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ReplicaRoutingConfig.class, CacheConfig.class, UserService.class})
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.datasource.routing.enabled=true",
+        "app.datasource.routing.replicas[0].url=" + ReplicaRoutingConfigTest.REPLICA_URL,
+        "app.datasource.routing.sticky-window=1h",
+        "app.datasource.routing.health-check-interval=1h"
+})
+class ReplicaRoutingConfigTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+    @TestConfiguration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private PasswordHasher passwordHasher;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("DELETE FROM tb_users");
+        replicate();
+    }
+
+    private void replicate() {
+        var script = jdbcTemplate.queryForList("SCRIPT", String.class);
+        replica.execute("DROP ALL OBJECTS");
+        script.forEach(replica::execute);
+    }
+
+    @Test
+    @DisplayName("Should serve read-only lookups from the replica and writes from the primary")
+    void shouldReadFromReplica() {
+        //Arrange
+        userService.createUser(new CreateUserDto("username", "email@email.com", "password"));
+
+        //Act
+        var beforeReplication = userService.getUserByUsername("username");
+        replicate();
+        var afterReplication = userService.getUserByUsername("username");
+
+        //Assert
+        assertTrue(beforeReplication.isEmpty());
+        assertTrue(afterReplication.isPresent());
+    }
+
+    @Test
+    @DisplayName("Should read a recently written user from the primary while the replica lags")
+    void shouldStickToPrimaryAfterWrite() {
+        //Arrange
+        var userId = userService.createUser(new CreateUserDto("username", "email@email.com", "password"));
+        replicate();
+
+        //Act
+        userService.updateUserById(userId.toString(), new UpdateUserDto("newUsername", null));
+
+        //Assert
+        // A réplica ainda tem o username antigo...
+        assertTrue(userService.getUserByUsername("newUsername").isEmpty());
+        // ...mas quem acabou de escrever lê do primário
+        assertEquals("newUsername", userService.getUserById(userId.toString()).orElseThrow().username());
+    }
+
+    @Test
+    @DisplayName("Should answer a stale If-Match with a conflict, not 404, while the replica lags")
+    void shouldCheckConditionalUpdateOnPrimary() {
+        //Arrange
+        // Criado só no primário: a réplica ainda não tem o usuário
+        var userId = userService.createUser(new CreateUserDto("username", "email@email.com", "password"));
+        var staleVersion = 7L;
+
+        //Act & Assert
+        assertThrows(UserVersionConflictException.class, () -> userService.updateUserById(userId.toString(),
+                new UpdateUserDto("newUsername", null), staleVersion));
+    }
+
+    @Test
+    @DisplayName("Should read users that were not written through this instance from the replica")
+    void shouldReadOtherUsersFromReplica() {
+        //Arrange
+        // Escrita direto no primário, sem passar pelo UserService (ex.: outra instância)
+        jdbcTemplate.update("INSERT INTO tb_users (user_id, username, email, password, version) VALUES (RANDOM_UUID(), 'username', 'email@email.com', 'password', 0)");
+        replicate();
+        var userId = jdbcTemplate.queryForObject("SELECT user_id FROM tb_users", UUID.class);
+        jdbcTemplate.update("UPDATE tb_users SET username = 'newUsername'");
+
+        //Act
+        var output = userService.getUserById(userId.toString());
+
+        //Assert
+        assertEquals("username", output.orElseThrow().username());
+    }
+}
@@ -0,0 +1,179 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Dois H2 em memória, cada um com uma tabela que diz quem ele é
+class ReplicaRoutingDataSourceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final DataSource primary = node("routing-primary");
+
+    private final DataSource replica = node("routing-replica");
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        if (routingDataSource != null) {
+            routingDataSource.close();
+        }
+    }
+
+    private static DataSource node(String name) {
+        var dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        var jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(32))");
+        jdbcTemplate.execute("DELETE FROM node");
+        jdbcTemplate.update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+
+    private String connectedNode() {
+        return new JdbcTemplate(routingDataSource).queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private double healthy(String replica) {
+        return meterRegistry.get("datasource.replica.healthy").tag("replica", replica).gauge().value();
+    }
+
+    @Nested
+    class getConnection {
+
+        @BeforeEach
+        void setUp() {
+            routingDataSource = new ReplicaRoutingDataSource(primary, List.of(replica), Duration.ofHours(1), meterRegistry);
+        }
+
+        @Test
+        @DisplayName("Should use the primary outside read-only transactions")
+        void shouldUsePrimaryForWrites() {
+            //Arrange
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+
+            //Act
+            var node = connectedNode();
+
+            //Assert
+            assertEquals("routing-primary", node);
+        }
+
+        @Test
+        @DisplayName("Should use a replica inside read-only transactions")
+        void shouldUseReplicaForReadOnly() {
+            //Arrange
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+            //Act
+            var node = connectedNode();
+
+            //Assert
+            assertEquals("routing-replica", node);
+        }
+
+        @Test
+        @DisplayName("Should use the primary for read-only work wrapped in onPrimary")
+        void shouldUsePrimaryWhenForced() {
+            //Arrange
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+            //Act
+            var node = ReplicaRoutingDataSource.onPrimary(ReplicaRoutingDataSourceTest.this::connectedNode);
+
+            //Assert
+            assertEquals("routing-primary", node);
+            assertEquals("routing-replica", connectedNode());
+        }
+
+        @Test
+        @DisplayName("Should route getConnection with credentials like getConnection without them")
+        void shouldRouteConnectionWithCredentials() throws Exception {
+            //Arrange
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+            //Act
+            try (var connection = routingDataSource.getConnection("sa", "");
+                 var result = connection.createStatement().executeQuery("SELECT name FROM node")) {
+
+                //Assert
+                assertTrue(result.next());
+                assertEquals("routing-replica", result.getString(1));
+            }
+        }
+    }
+
+    @Nested
+    class checkReplicas {
+
+        @Test
+        @DisplayName("Should eject an unreachable replica and fall back to the primary")
+        void shouldEjectUnreachableReplica() {
+            //Arrange
+            // IFEXISTS=TRUE: o banco não existe, então toda conexão falha
+            var broken = new DriverManagerDataSource("jdbc:h2:mem:routing-missing;IFEXISTS=TRUE", "sa", "");
+            routingDataSource = new ReplicaRoutingDataSource(primary, List.of(broken, replica), Duration.ofHours(1), meterRegistry);
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+            //Act
+            routingDataSource.checkReplicas();
+
+            //Assert
+            assertEquals(0, healthy("replica-0"));
+            assertEquals(1, healthy("replica-1"));
+            assertEquals("routing-replica", connectedNode());
+            assertEquals("routing-replica", connectedNode());
+        }
+
+        @Test
+        @DisplayName("Should read from the primary when a replica fails to connect")
+        void shouldFallBackToPrimaryOnFailure() {
+            //Arrange
+            var broken = new DriverManagerDataSource("jdbc:h2:mem:routing-missing;IFEXISTS=TRUE", "sa", "");
+            routingDataSource = new ReplicaRoutingDataSource(primary, List.of(broken), Duration.ofHours(1), meterRegistry);
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+            //Act
+            var node = connectedNode();
+
+            //Assert
+            assertEquals("routing-primary", node);
+            assertEquals(0, healthy("replica-0"));
+        }
+
+        @Test
+        @DisplayName("Should put a replica back in rotation once it answers again")
+        void shouldRestoreReplica() {
+            //Arrange
+            var late = new DriverManagerDataSource("jdbc:h2:mem:routing-late;IFEXISTS=TRUE", "sa", "");
+            routingDataSource = new ReplicaRoutingDataSource(primary, List.of(late), Duration.ofHours(1), meterRegistry);
+            routingDataSource.checkReplicas();
+            assertEquals(0, healthy("replica-0"));
+
+            // Réplica volta: o banco passa a existir
+            node("routing-late");
+
+            //Act
+            routingDataSource.checkReplicas();
+
+            //Assert
+            assertEquals(1, healthy("replica-0"));
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+            assertEquals("routing-late", connectedNode());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketRateLimiterTest {
+
+    // Relógio controlado pelo teste
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    // 10 tokens de rajada, 10 por segundo (1 token a cada 100 ms)
+    private final TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(10, 10, 1_000, clock::get);
+
+    @Nested
+    class tryAcquire {
+
+        @Test
+        @DisplayName("Should allow a burst up to the capacity and then ask to wait")
+        void shouldAllowBurstThenReject() {
+            //Act
+            var allowed = 0;
+            while (rateLimiter.tryAcquire("client", 1) == 0) {
+                allowed++;
+            }
+            var wait = rateLimiter.tryAcquire("client", 1);
+
+            //Assert
+            assertEquals(10, allowed);
+            assertEquals(TimeUnit.MILLISECONDS.toNanos(100), wait);
+        }
+
+        @Test
+        @DisplayName("Should give tokens back as time passes")
+        void shouldRefillOverTime() {
+            //Arrange
+            for (int i = 0; i < 10; i++) {
+                rateLimiter.tryAcquire("client", 1);
+            }
+
+            //Act
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(300));
+
+            //Assert
+            assertEquals(0, rateLimiter.tryAcquire("client", 3));
+            assertTrue(rateLimiter.tryAcquire("client", 1) > 0);
+        }
+
+        @Test
+        @DisplayName("Should charge the endpoint cost and keep clients apart")
+        void shouldChargeCostPerClient() {
+            //Act
+            var first = rateLimiter.tryAcquire("heavy", 6);
+            var second = rateLimiter.tryAcquire("heavy", 6);
+            var other = rateLimiter.tryAcquire("light", 6);
+
+            //Assert
+            assertEquals(0, first);
+            assertEquals(TimeUnit.MILLISECONDS.toNanos(200), second);
+            assertEquals(0, other);
+        }
+
+        @Test
+        @DisplayName("Should never allow more than the capacity under concurrent calls")
+        void shouldNotOverAllowConcurrently() throws Exception {
+            //Arrange
+            var threads = 16;
+            var allowed = new AtomicInteger();
+            var start = new CountDownLatch(1);
+            var executor = Executors.newFixedThreadPool(threads);
+
+            //Act
+            for (int t = 0; t < threads; t++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 1_000; i++) {
+                        if (rateLimiter.tryAcquire("client", 1) == 0) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+            //Assert
+            // O relógio não anda: só a rajada inicial passa
+            assertEquals(10, allowed.get());
+        }
+    }
+}
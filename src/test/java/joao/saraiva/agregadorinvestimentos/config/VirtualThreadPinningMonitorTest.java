@@ -0,0 +1,50 @@
+package joao.saraiva.agregadorinvestimentos.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadPinningMonitorTest {
+
+    private final Object lock = new Object();
+
+    @Test
+    @DisplayName("Should count a virtual thread blocked inside synchronized")
+    void shouldCountPinnedVirtualThread() throws Exception {
+        //Arrange
+        var meterRegistry = new SimpleMeterRegistry();
+        var monitor = new VirtualThreadPinningMonitor(Duration.ofMillis(10), meterRegistry);
+        monitor.start();
+
+        try {
+            //Act
+            // sleep dentro de synchronized prende a virtual thread à carrier
+            Thread.ofVirtual().start(() -> {
+                synchronized (lock) {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }).join();
+
+            //Assert
+            // O JFR entrega os eventos em lotes, então espera um pouco
+            var counter = meterRegistry.get("jvm.threads.virtual.pinned").counter();
+            var deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (counter.count() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(100);
+            }
+            assertTrue(counter.count() >= 1);
+        } finally {
+            monitor.stop();
+        }
+
+        assertFalse(monitor.isRunning());
+    }
+}
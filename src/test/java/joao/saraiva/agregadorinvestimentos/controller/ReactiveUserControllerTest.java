@@ -0,0 +1,268 @@
+package joao.saraiva.agregadorinvestimentos.controller;
+
+import joao.saraiva.agregadorinvestimentos.service.ReactiveUserService;
+import joao.saraiva.agregadorinvestimentos.service.UserAlreadyExistsException;
+import joao.saraiva.agregadorinvestimentos.service.UserVersionConflictException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@WebFluxTest(ReactiveUserController.class)
+@ActiveProfiles("reactive")
+class ReactiveUserControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockitoBean
+    private ReactiveUserService userService;
+
+    private static UserDto user(String username) {
+        return new UserDto(UUID.randomUUID(), username, username + "@email.com",
+                Instant.now().truncatedTo(ChronoUnit.MICROS), null, 0L);
+    }
+
+    @Nested
+    class createUser {
+
+        @Test
+        @DisplayName("Should create the user and return 201 with its location")
+        void shouldCreateUser() {
+            //Arrange
+            var userId = UUID.randomUUID();
+            doReturn(Mono.just(userId)).when(userService).createUser(any(CreateUserDto.class));
+
+            //Act & Assert
+            webTestClient.post().uri("/v1/users")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new CreateUserDto("username", "email@email.com", "123"))
+                    .exchange()
+                    .expectStatus().isCreated()
+                    .expectHeader().location("/v1/users/" + userId);
+        }
+
+        @Test
+        @DisplayName("Should return 409 when the username or email is already taken")
+        void shouldReturnConflict() {
+            //Arrange
+            doReturn(Mono.error(new UserAlreadyExistsException())).when(userService).createUser(any(CreateUserDto.class));
+
+            //Act & Assert
+            webTestClient.post().uri("/v1/users")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new CreateUserDto("username", "email@email.com", "123"))
+                    .exchange()
+                    .expectStatus().isEqualTo(409);
+        }
+    }
+
+    @Nested
+    class getUsersByIds {
+
+        @Test
+        @DisplayName("Should return the users found for the given ids")
+        void shouldReturnUsers() {
+            //Arrange
+            var first = user("first");
+            var second = user("second");
+            var ids = List.of(first.userId().toString(), second.userId().toString());
+            doReturn(Mono.just(List.of(first, second))).when(userService).getUsersByIds(ids);
+
+            //Act & Assert
+            webTestClient.get().uri("/v1/users?ids={ids}", String.join(",", ids))
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBodyList(UserDto.class).hasSize(2);
+        }
+
+        @Test
+        @DisplayName("Should return 400 for an invalid id")
+        void shouldRejectInvalidId() {
+            //Arrange
+            doReturn(Mono.error(new IllegalArgumentException())).when(userService).getUsersByIds(any());
+
+            //Act & Assert
+            webTestClient.get().uri("/v1/users?ids=not-a-uuid")
+                    .exchange()
+                    .expectStatus().isBadRequest();
+        }
+    }
+
+    @Nested
+    class getUserById {
+
+        @Test
+        @DisplayName("Should return the user with an ETag and 304 when If-None-Match matches")
+        void shouldReturnUserWithETag() {
+            //Arrange
+            var user = user("username");
+            doReturn(Mono.just(user)).when(userService).getUserById(user.userId().toString());
+
+            //Act & Assert
+            webTestClient.get().uri("/v1/users/{userId}", user.userId())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().valueEquals(HttpHeaders.ETAG, UserETag.of(user))
+                    // version só vai no ETag, não no corpo
+                    .expectBody(UserDto.class).isEqualTo(new UserDto(user.userId(), user.username(), user.email(),
+                            user.creationTimestamp(), user.updateTimestamp(), null));
+            webTestClient.get().uri("/v1/users/{userId}", user.userId())
+                    .header(HttpHeaders.IF_NONE_MATCH, UserETag.of(user))
+                    .exchange()
+                    .expectStatus().isNotModified();
+        }
+
+        @Test
+        @DisplayName("Should return 404 when the user does not exist")
+        void shouldReturnNotFound() {
+            //Arrange
+            doReturn(Mono.empty()).when(userService).getUserById(any());
+
+            //Act & Assert
+            webTestClient.get().uri("/v1/users/{userId}", UUID.randomUUID())
+                    .exchange()
+                    .expectStatus().isNotFound();
+        }
+    }
+
+    @Nested
+    class listUsers {
+
+        @Test
+        @DisplayName("Should return the page from the service")
+        void shouldReturnPage() {
+            //Arrange
+            // Sem version: ela só vai no ETag, não no corpo
+            var user = new UserDto(UUID.randomUUID(), "first", "first@email.com",
+                    Instant.now().truncatedTo(ChronoUnit.MICROS), null, null);
+            var page = new UserPageDto(List.of(user), "next");
+            doReturn(Mono.just(page)).when(userService).listUsers(null, 50);
+
+            //Act & Assert
+            webTestClient.get().uri("/v1/users")
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(UserPageDto.class).isEqualTo(page);
+        }
+
+        @Test
+        @DisplayName("Should return 400 for an invalid cursor")
+        void shouldRejectInvalidCursor() {
+            //Arrange
+            doReturn(Mono.error(new IllegalArgumentException("Invalid cursor"))).when(userService).listUsers(eq("bad"), anyInt());
+
+            //Act & Assert
+            webTestClient.get().uri("/v1/users?cursor=bad")
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus().isBadRequest();
+        }
+    }
+
+    @Nested
+    class streamUsers {
+
+        @Test
+        @DisplayName("Should stream users as NDJSON, one per line")
+        void shouldStreamNdjson() {
+            //Arrange
+            doReturn(Flux.just(user("first"), user("second"))).when(userService).streamUsers();
+
+            //Act
+            var body = webTestClient.get().uri("/v1/users")
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                    .expectBody(String.class)
+                    .returnResult()
+                    .getResponseBody();
+
+            //Assert
+            var lines = body.strip().split("\n");
+            assertEquals(2, lines.length);
+            assertTrue(lines[0].contains("\"username\":\"first\""));
+            assertTrue(lines[1].contains("\"username\":\"second\""));
+        }
+    }
+
+    @Nested
+    class updateUserById {
+
+        @Test
+        @DisplayName("Should return 204 when the user is updated")
+        void shouldUpdate() {
+            //Arrange
+            var userId = UUID.randomUUID().toString();
+            doReturn(Mono.just(true)).when(userService).updateUserById(eq(userId), any(UpdateUserDto.class));
+
+            //Act & Assert
+            webTestClient.put().uri("/v1/users/{userId}", userId)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new UpdateUserDto("renamed", null))
+                    .exchange()
+                    .expectStatus().isNoContent();
+        }
+
+        @Test
+        @DisplayName("Should return 412 for a foreign ETag or a version conflict")
+        void shouldReturnPreconditionFailed() {
+            //Arrange
+            var user = user("username");
+            var userId = user.userId().toString();
+            doReturn(Mono.error(new UserVersionConflictException()))
+                    .when(userService).updateUserById(eq(userId), any(UpdateUserDto.class), eq(user.version()));
+
+            //Act & Assert
+            webTestClient.put().uri("/v1/users/{userId}", userId)
+                    .header(HttpHeaders.IF_MATCH, "\"other\"")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new UpdateUserDto("renamed", null))
+                    .exchange()
+                    .expectStatus().isEqualTo(412);
+            webTestClient.put().uri("/v1/users/{userId}", userId)
+                    .header(HttpHeaders.IF_MATCH, UserETag.of(user))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new UpdateUserDto("renamed", null))
+                    .exchange()
+                    .expectStatus().isEqualTo(412);
+        }
+    }
+
+    @Nested
+    class deleteById {
+
+        @Test
+        @DisplayName("Should return 404 when there is nothing to delete")
+        void shouldReturnNotFound() {
+            //Arrange
+            doReturn(Mono.just(false)).when(userService).deleteById(any());
+
+            //Act & Assert
+            webTestClient.delete().uri("/v1/users/{userId}", UUID.randomUUID())
+                    .exchange()
+                    .expectStatus().isNotFound();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package joao.saraiva.agregadorinvestimentos.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import joao.saraiva.agregadorinvestimentos.service.PasswordHashingBusyException;
+import joao.saraiva.agregadorinvestimentos.service.UserBatchService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(UserBatchController.class)
+class UserBatchControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private UserBatchService userBatchService;
+
+    // O iterator só pode ser lido durante a chamada, então guardamos o que ele entregou.
+    // Cada usuário volta como um bloco de um resultado
+    private List<CreateUserDto> captureUsers() {
+        var received = new ArrayList<CreateUserDto>();
+        doAnswer(invocation -> {
+            Iterator<CreateUserDto> users = invocation.getArgument(0);
+            Consumer<List<BatchUserResultDto>> onChunk = invocation.getArgument(1);
+            while (users.hasNext()) {
+                received.add(users.next());
+                onChunk.accept(List.of(BatchUserResultDto.created(received.size() - 1, UUID.randomUUID())));
+            }
+            return null;
+        }).when(userBatchService).createUsers(any(), any());
+        return received;
+    }
+
+    @Test
+    @DisplayName("Should accept a JSON array of users")
+    void shouldAcceptJsonArray() throws Exception {
+        //Arrange
+        var received = captureUsers();
+
+        //Act & Assert
+        mockMvc.perform(post("/v1/users:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        [{"username":"user1","email":"user1@email.com","password":"123"},
+                         {"username":"user2","email":"user2@email.com","password":"123"}]"""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].index").value(0))
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].userId").isNotEmpty());
+
+        assertEquals(2, received.size());
+        assertEquals("user2", received.get(1).username());
+    }
+
+    @Test
+    @DisplayName("Should accept NDJSON with one user per line")
+    void shouldAcceptNdjson() throws Exception {
+        //Arrange
+        var received = captureUsers();
+
+        //Act & Assert
+        mockMvc.perform(post("/v1/users:batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("""
+                        {"username":"user1","email":"user1@email.com","password":"123"}
+                        {"username":"user2","email":"user2@email.com","password":"123"}
+                        {"username":"user3","email":"user3@email.com","password":"123"}
+                        """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3));
+
+        assertEquals(3, received.size());
+        assertEquals("user3@email.com", received.get(2).email());
+    }
+
+    @Test
+    @DisplayName("Should return an empty array when there are no users")
+    void shouldAcceptEmptyInput() throws Exception {
+        //Arrange
+        captureUsers();
+
+        //Act & Assert
+        mockMvc.perform(post("/v1/users:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]", true));
+    }
+
+    @Test
+    @DisplayName("Should return the error status when the first chunk fails")
+    void shouldReturnErrorBeforeFirstChunk() throws Exception {
+        //Arrange
+        doThrow(new PasswordHashingBusyException()).when(userBatchService).createUsers(any(), any());
+
+        //Act & Assert
+        mockMvc.perform(post("/v1/users:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        [{"username":"user1","email":"user1@email.com","password":"123"}]"""))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    @DisplayName("Should leave the array unterminated when a later chunk fails")
+    void shouldTruncateAfterFirstChunk() throws Exception {
+        //Arrange
+        doAnswer(invocation -> {
+            Consumer<List<BatchUserResultDto>> onChunk = invocation.getArgument(1);
+            onChunk.accept(List.of(BatchUserResultDto.created(0, UUID.randomUUID())));
+            throw new PasswordHashingBusyException();
+        }).when(userBatchService).createUsers(any(), any());
+
+        // Chamado direto: pelo MockMvc a exceção sobe sem dar acesso à resposta já enviada
+        var controller = new UserBatchController(userBatchService, objectMapper);
+        var response = new MockHttpServletResponse();
+        var body = new ByteArrayInputStream("""
+                [{"username":"user1","email":"user1@email.com","password":"123"},
+                 {"username":"user2","email":"user2@email.com","password":"123"}]""".getBytes(StandardCharsets.UTF_8));
+
+        //Act
+        assertThrows(PasswordHashingBusyException.class, () -> controller.createUsers(body, response));
+
+        //Assert
+        var content = response.getContentAsString();
+        assertTrue(content.startsWith("[{\"index\":0"));
+        assertFalse(content.endsWith("]"));
+    }
+}
@@ -2,8 +2,13 @@ package joao.saraiva.agregadorinvestimentos.controller;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import joao.saraiva.agregadorinvestimentos.config.BinaryEncodingConfig;
 import joao.saraiva.agregadorinvestimentos.entity.User;
+import joao.saraiva.agregadorinvestimentos.service.PasswordTooLongException;
 import joao.saraiva.agregadorinvestimentos.service.UserService;
+import joao.saraiva.agregadorinvestimentos.service.UserVersionConflictException;
 import org.apache.coyote.http11.upgrade.UpgradeServletOutputStream;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -11,23 +16,30 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(UserController.class)
+@Import(BinaryEncodingConfig.class)
 class UserControllerTest {
 
     @Autowired
@@ -94,6 +106,19 @@ class UserControllerTest {
 
         }
 
+        @Test
+        @DisplayName("Should return 400 when the password is too long for BCrypt")
+        void createUserWithTooLongPassword() throws Exception {
+            //Arrange
+            when(userService.createUser(any(CreateUserDto.class))).thenThrow(new PasswordTooLongException());
+
+            //Act & Assert
+            mockMvc.perform(post("/v1/users")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(new CreateUserDto("username", "email@email.com", "x".repeat(73)))))
+                    .andExpect(status().isBadRequest());
+        }
+
 //        @Test
 //        @DisplayName("Should return error when create user fails")
 //        void createUserFail() throws Exception {
@@ -122,29 +147,66 @@ class UserControllerTest {
         void getUserByIdWithSuccess() throws Exception {
             //Arrange
             UUID id = UUID.randomUUID();
-            User user = new User();
-            user.setUserId(id);
-            user.setUsername("Username");
-            user.setPassword("Password");
-            user.setEmail("first@email.com");
-            user.setCreationTimestamp(Instant.now());
-            user.setUpdateTimestamp(null);
+            UserDto user = new UserDto(id, "Username", "first@email.com", Instant.now(), null, 0L);
 
             when(userService.getUserById(id.toString())).thenReturn(Optional.of(user));
 
             //Act & Assert
             mockMvc.perform(get("/v1/users/{userId}", id.toString())
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .content(objectMapper.writeValueAsString(user))) //Não precisa mas ok
+                    .contentType(MediaType.APPLICATION_JSON))
                     .andExpect(status().isOk())
                     .andExpect(jsonPath("$.userId").value(id.toString()))
-                    .andExpect(jsonPath("$.username").value(user.getUsername()))
-                    .andExpect(jsonPath("$.email").value(user.getEmail()));
+                    .andExpect(jsonPath("$.username").value(user.username()))
+                    .andExpect(jsonPath("$.email").value(user.email()))
+                    .andExpect(jsonPath("$.password").doesNotExist())
+                    .andExpect(jsonPath("$.version").doesNotExist())
+                    .andExpect(header().exists("ETag"));
 
             verify(userService, times(1)).getUserById(id.toString());
 
         }
 
+        @Test
+        @DisplayName("Should return 304 without a body when the ETag did not change")
+        void getUserByIdNotModified() throws Exception {
+            //Arrange
+            UUID id = UUID.randomUUID();
+            UserDto user = new UserDto(id, "Username", "first@email.com", Instant.now(), Instant.now(), 0L);
+            when(userService.getUserById(id.toString())).thenReturn(Optional.of(user));
+
+            var eTag = mockMvc.perform(get("/v1/users/{userId}", id.toString()))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getHeader("ETag");
+
+            //Act & Assert
+            mockMvc.perform(get("/v1/users/{userId}", id.toString())
+                    .header("If-None-Match", eTag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string("ETag", eTag))
+                    .andExpect(content().string(""));
+        }
+
+        @Test
+        @DisplayName("Should return the body with a new ETag after the user changed")
+        void getUserByIdModified() throws Exception {
+            //Arrange
+            UUID id = UUID.randomUUID();
+            var created = Instant.now();
+            UserDto before = new UserDto(id, "Username", "first@email.com", created, null, 0L);
+            UserDto after = new UserDto(id, "Username 2", "first@email.com", created, created.plusSeconds(1), 1L);
+            when(userService.getUserById(id.toString())).thenReturn(Optional.of(before), Optional.of(after));
+
+            var eTag = mockMvc.perform(get("/v1/users/{userId}", id.toString()))
+                    .andReturn().getResponse().getHeader("ETag");
+
+            //Act & Assert
+            mockMvc.perform(get("/v1/users/{userId}", id.toString())
+                    .header("If-None-Match", eTag))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", not(eTag)))
+                    .andExpect(jsonPath("$.username").value("Username 2"));
+        }
+
         @Test
         @DisplayName("Should return 404 not found when user is not found")
         void getUserByIdWhenUserNotFound() throws Exception {
@@ -163,6 +225,93 @@ class UserControllerTest {
         }
     }
 
+    @Nested
+    class lookups {
+
+        @Test
+        @DisplayName("Should get a user by username")
+        void getUserByUsernameWithSuccess() throws Exception {
+            //Arrange
+            UserDto user = new UserDto(UUID.randomUUID(), "Username", "first@email.com", Instant.now(), null, 0L);
+            when(userService.getUserByUsername("username")).thenReturn(Optional.of(user));
+
+            //Act & Assert
+            mockMvc.perform(get("/v1/users").param("username", "username"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.userId").value(user.userId().toString()))
+                    .andExpect(jsonPath("$.username").value(user.username()));
+
+            verify(userService, times(0)).listUsers(any(), anyInt());
+        }
+
+        @Test
+        @DisplayName("Should return 404 when no user has the email")
+        void getUserByEmailWhenUserNotFound() throws Exception {
+            //Arrange
+            when(userService.getUserByEmail("first@email.com")).thenReturn(Optional.empty());
+
+            //Act & Assert
+            mockMvc.perform(get("/v1/users").param("email", "first@email.com"))
+                    .andExpect(status().isNotFound());
+        }
+
+        @Test
+        @DisplayName("Should search users by username prefix")
+        void searchByUsernamePrefixWithSuccess() throws Exception {
+            //Arrange
+            UserDto user = new UserDto(UUID.randomUUID(), "joao", "joao@email.com", Instant.now(), null, 0L);
+            when(userService.searchByUsernamePrefix("jo", 10)).thenReturn(List.of(user));
+
+            //Act & Assert
+            mockMvc.perform(get("/v1/users")
+                    .param("usernamePrefix", "jo")
+                    .param("limit", "10"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].username").value("joao"));
+        }
+
+        @Test
+        @DisplayName("Should return 400 when prefix is blank")
+        void searchByUsernamePrefixWhenBlank() throws Exception {
+            //Arrange
+            when(userService.searchByUsernamePrefix("", UserService.DEFAULT_PAGE_SIZE))
+                    .thenThrow(new IllegalArgumentException("Prefix must not be blank"));
+
+            //Act & Assert
+            mockMvc.perform(get("/v1/users").param("usernamePrefix", ""))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @DisplayName("Should get several users by comma separated ids")
+        void getUsersByIdsWithSuccess() throws Exception {
+            //Arrange
+            var first = new UserDto(UUID.randomUUID(), "first", "first@email.com", Instant.now(), null, 0L);
+            var second = new UserDto(UUID.randomUUID(), "second", "second@email.com", Instant.now(), null, 0L);
+            when(userService.getUsersByIds(List.of(first.userId().toString(), second.userId().toString())))
+                    .thenReturn(List.of(first, second));
+
+            //Act & Assert
+            mockMvc.perform(get("/v1/users").param("ids", first.userId() + "," + second.userId()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].username").value("first"))
+                    .andExpect(jsonPath("$[1].username").value("second"));
+
+            verify(userService, times(0)).listUsers(any(), anyInt());
+        }
+
+        @Test
+        @DisplayName("Should return 400 when an id is not a UUID")
+        void getUsersByIdsWhenInvalid() throws Exception {
+            //Arrange
+            when(userService.getUsersByIds(List.of("not-a-uuid"))).thenThrow(new IllegalArgumentException());
+
+            //Act & Assert
+            mockMvc.perform(get("/v1/users").param("ids", "not-a-uuid"))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
     @Nested
     class listUsers {
 
@@ -172,57 +321,153 @@ class UserControllerTest {
             //Arrange
             UUID id = UUID.randomUUID();
 
-            User user1 = new User();
-            user1.setUserId(id);
-            user1.setUsername("Username");
-            user1.setPassword("pass123");
-            user1.setEmail("email@email.com");
-            user1.setCreationTimestamp(Instant.now());
-            user1.setUpdateTimestamp(null);
+            UserDto user1 = new UserDto(id, "Username", "email@email.com", Instant.now(), null, 0L);
+            UserDto user2 = new UserDto(id, "Username 2", "email@email.com", Instant.now(), null, 0L);
 
-            User user2 = new User();
-            user2.setUserId(id);
-            user2.setUsername("Username 2");
-            user2.setPassword("password");
-            user2.setEmail("email@email.com");
-            user2.setCreationTimestamp(Instant.now());
-            user2.setUpdateTimestamp(null);
+            List<UserDto> userList = Arrays.asList(user1, user2);
 
-            List<User> userList = Arrays.asList(user1, user2);
-
-            when(userService.listUsers()).thenReturn(userList);
+            when(userService.listUsers(null, UserService.DEFAULT_PAGE_SIZE))
+                    .thenReturn(new UserPageDto(userList, "next"));
 
             //Act && Assert
             mockMvc.perform(get("/v1/users")
                     .contentType(MediaType.APPLICATION_JSON))
                     .andExpect(status().isOk())
-                    .andExpect(jsonPath("$[0].userId").value(user1.getUserId().toString()))
-                    .andExpect(jsonPath("$[1].userId").value(user2.getUserId().toString()))
-                    .andExpect(jsonPath("$[0].username").value(user1.getUsername()))
-                    .andExpect(jsonPath("$[1].username").value(user2.getUsername()));
+                    .andExpect(jsonPath("$.users[0].userId").value(user1.userId().toString()))
+                    .andExpect(jsonPath("$.users[1].userId").value(user2.userId().toString()))
+                    .andExpect(jsonPath("$.users[0].username").value(user1.username()))
+                    .andExpect(jsonPath("$.users[1].username").value(user2.username()))
+                    .andExpect(jsonPath("$.users[0].password").doesNotExist())
+                    .andExpect(jsonPath("$.nextCursor").value("next"));
 
             assertNotNull(userList);
             assertEquals(2, userList.size());
-            verify(userService, times(1)).listUsers();
+            verify(userService, times(1)).listUsers(null, UserService.DEFAULT_PAGE_SIZE);
 
         }
 
+        @Test
+        @DisplayName("Should return the users list as CBOR when the client accepts it")
+        void listUsersAsCbor() throws Exception {
+            //Arrange
+            var user = new UserDto(UUID.randomUUID(), "Username", "email@email.com",
+                    Instant.now().truncatedTo(ChronoUnit.MILLIS), null, null);
+            var page = new UserPageDto(List.of(user), "next");
+            when(userService.listUsers(null, UserService.DEFAULT_PAGE_SIZE)).thenReturn(page);
+            var cbor = BinaryEncodingConfig.binaryMapper(Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()));
+
+            //Act
+            var body = mockMvc.perform(get("/v1/users")
+                    .accept(MediaType.APPLICATION_CBOR))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                    .andReturn().getResponse().getContentAsByteArray();
+
+            //Assert
+            assertEquals(page, cbor.readValue(body, UserPageDto.class));
+            assertTrue(body.length < objectMapper.writeValueAsBytes(page).length);
+        }
+
+        @Test
+        @DisplayName("Should return the users list as Smile when the client accepts it")
+        void listUsersAsSmile() throws Exception {
+            //Arrange
+            var user = new UserDto(UUID.randomUUID(), "Username", "email@email.com",
+                    Instant.now().truncatedTo(ChronoUnit.MILLIS), null, null);
+            var page = new UserPageDto(List.of(user), null);
+            when(userService.listUsers(null, UserService.DEFAULT_PAGE_SIZE)).thenReturn(page);
+            var smile = BinaryEncodingConfig.binaryMapper(Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()));
+
+            //Act
+            var body = mockMvc.perform(get("/v1/users")
+                    .accept("application/x-jackson-smile"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType("application/x-jackson-smile"))
+                    .andReturn().getResponse().getContentAsByteArray();
+
+            //Assert
+            assertEquals(page, smile.readValue(body, UserPageDto.class));
+        }
+
         @Test
         @DisplayName("Should return empty list when are no have users")
         void listUsersWhenListIsEmpty() throws Exception {
             //Arrange
-            List<User> userList = Arrays.asList();
+            List<UserDto> userList = Arrays.asList();
 
-            when(userService.listUsers()).thenReturn(userList);
+            when(userService.listUsers(null, UserService.DEFAULT_PAGE_SIZE))
+                    .thenReturn(new UserPageDto(userList, null));
 
             //Act && Assert
             mockMvc.perform(get("/v1/users")
                     .contentType(MediaType.APPLICATION_JSON))
-                    .andExpect(status().isOk());
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.users").isEmpty());
 
             assertTrue(userList.isEmpty());
             assertEquals(0, userList.size());
-            verify(userService, times(1)).listUsers();
+            verify(userService, times(1)).listUsers(null, UserService.DEFAULT_PAGE_SIZE);
+        }
+
+        @Test
+        @DisplayName("Should pass cursor and limit to the service")
+        void listUsersWithCursorAndLimit() throws Exception {
+            //Arrange
+            when(userService.listUsers("abc", 10))
+                    .thenReturn(new UserPageDto(List.of(), null));
+
+            //Act && Assert
+            mockMvc.perform(get("/v1/users")
+                    .param("cursor", "abc")
+                    .param("limit", "10"))
+                    .andExpect(status().isOk());
+
+            verify(userService, times(1)).listUsers("abc", 10);
+        }
+
+        @Test
+        @DisplayName("Should return 400 when cursor is invalid")
+        void listUsersWithInvalidCursor() throws Exception {
+            //Arrange
+            when(userService.listUsers("invalid", UserService.DEFAULT_PAGE_SIZE))
+                    .thenThrow(new IllegalArgumentException("Invalid cursor"));
+
+            //Act && Assert
+            mockMvc.perform(get("/v1/users")
+                    .param("cursor", "invalid"))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @DisplayName("Should stream users as NDJSON when requested")
+        void streamUsersAsNdjson() throws Exception {
+            //Arrange
+            // Sem version: ela só vai no ETag, não no corpo
+            UserDto user1 = new UserDto(UUID.randomUUID(), "Username", "email@email.com", Instant.now(), null, null);
+            UserDto user2 = new UserDto(UUID.randomUUID(), "Username 2", "email2@email.com", Instant.now(), null, null);
+
+            doAnswer(invocation -> {
+                Consumer<UserDto> consumer = invocation.getArgument(0);
+                consumer.accept(user1);
+                consumer.accept(user2);
+                return null;
+            }).when(userService).streamUsers(any());
+
+            //Act
+            var result = mockMvc.perform(get("/v1/users")
+                    .accept(MediaType.APPLICATION_NDJSON_VALUE))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            //Assert
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON_VALUE));
+
+            var lines = result.getResponse().getContentAsString().split("\n");
+            assertEquals(2, lines.length);
+            assertEquals(user1, objectMapper.readValue(lines[0], UserDto.class));
+            assertEquals(user2, objectMapper.readValue(lines[1], UserDto.class));
         }
 
     }
@@ -265,7 +510,7 @@ class UserControllerTest {
             userNew.setCreationTimestamp(userOld.getCreationTimestamp());
             userNew.setUpdateTimestamp(Instant.now());
 
-            doNothing().when(userService).updateUserById(eq(id.toString()), any(UpdateUserDto.class));
+            when(userService.updateUserById(eq(id.toString()), any(UpdateUserDto.class))).thenReturn(true);
 
 
             //Act & Assert
@@ -278,6 +523,77 @@ class UserControllerTest {
 
         }
 
+        @Test
+        @DisplayName("Should update with the version from the If-Match ETag")
+        void updateUserByIdWithIfMatch() throws Exception {
+            //Arrange
+            UUID id = UUID.randomUUID();
+            var version = 3L;
+            UpdateUserDto userUpdate = new UpdateUserDto("Username Novo", null);
+            when(userService.updateUserById(eq(id.toString()), any(UpdateUserDto.class), eq(version))).thenReturn(true);
+
+            //Act & Assert
+            mockMvc.perform(put("/v1/users/{id}", id.toString())
+                    .header("If-Match", UserETag.of(new UserDto(id, null, null, Instant.now(), null, version)))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(userUpdate)))
+                    .andExpect(status().isNoContent());
+
+            verify(userService, times(0)).updateUserById(any(), any());
+        }
+
+        @Test
+        @DisplayName("Should return 412 when the user changed since the If-Match ETag")
+        void updateUserByIdWithStaleIfMatch() throws Exception {
+            //Arrange
+            UUID id = UUID.randomUUID();
+            var version = 3L;
+            UpdateUserDto userUpdate = new UpdateUserDto("Username Novo", null);
+            when(userService.updateUserById(eq(id.toString()), any(UpdateUserDto.class), eq(version)))
+                    .thenThrow(new UserVersionConflictException());
+
+            //Act & Assert
+            mockMvc.perform(put("/v1/users/{id}", id.toString())
+                    .header("If-Match", UserETag.of(new UserDto(id, null, null, Instant.now(), null, version)))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(userUpdate)))
+                    .andExpect(status().isPreconditionFailed());
+        }
+
+        @Test
+        @DisplayName("Should return 412 without updating when the If-Match ETag is of another user")
+        void updateUserByIdWithForeignIfMatch() throws Exception {
+            //Arrange
+            UUID id = UUID.randomUUID();
+            var other = new UserDto(UUID.randomUUID(), null, null, Instant.now(), null, 0L);
+            UpdateUserDto userUpdate = new UpdateUserDto("Username Novo", null);
+
+            //Act & Assert
+            mockMvc.perform(put("/v1/users/{id}", id.toString())
+                    .header("If-Match", UserETag.of(other))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(userUpdate)))
+                    .andExpect(status().isPreconditionFailed());
+
+            verifyNoInteractions(userService);
+        }
+
+        @Test
+        @DisplayName("Should return 404 not found when updating a user that does not exist")
+        void updateUserByIdWhenUserNotFound() throws Exception {
+            //Arrange
+            UUID id = UUID.randomUUID();
+            UpdateUserDto userUpdate = new UpdateUserDto("Username Novo", "passNew123");
+
+            when(userService.updateUserById(eq(id.toString()), any(UpdateUserDto.class))).thenReturn(false);
+
+            //Act & Assert
+            mockMvc.perform(put("/v1/users/{id}", id.toString())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(userUpdate)))
+                    .andExpect(status().isNotFound());
+        }
+
     }
 
     @Nested
@@ -289,7 +605,7 @@ class UserControllerTest {
             //Arrange
             UUID id = UUID.randomUUID();
 
-            doNothing().when(userService).deleteById(id.toString());
+            when(userService.deleteById(id.toString())).thenReturn(true);
 
             //Act && Assert
             mockMvc.perform(delete("/v1/users/{id}", id.toString())
@@ -298,5 +614,18 @@ class UserControllerTest {
             verify(userService, times(1)).deleteById(eq(id.toString()));
         }
 
+        @Test
+        @DisplayName("Should return 404 not found when deleting a user that does not exist")
+        void deleteByIdWhenUserNotFound() throws Exception {
+            //Arrange
+            UUID id = UUID.randomUUID();
+
+            when(userService.deleteById(id.toString())).thenReturn(false);
+
+            //Act && Assert
+            mockMvc.perform(delete("/v1/users/{id}", id.toString()))
+                    .andExpect(status().isNotFound());
+        }
+
     }
 }
\ No newline at end of file
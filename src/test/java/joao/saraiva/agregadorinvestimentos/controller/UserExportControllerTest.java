@@ -0,0 +1,100 @@
+package joao.saraiva.agregadorinvestimentos.controller;
+
+import joao.saraiva.agregadorinvestimentos.service.UserCsvExporter;
+import joao.saraiva.agregadorinvestimentos.service.UserCursor;
+import joao.saraiva.agregadorinvestimentos.service.UserExportCompression;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(UserExportController.class)
+class UserExportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private UserCsvExporter userCsvExporter;
+
+    @Nested
+    class exportUsers {
+
+        @Test
+        @DisplayName("Should stream the CSV as an attachment")
+        void shouldStreamCsv() throws Exception {
+            //Arrange
+            doAnswer(invocation -> {
+                OutputStream out = invocation.getArgument(0);
+                out.write("user_id,username\n".getBytes(StandardCharsets.UTF_8));
+                return 1L;
+            }).when(userCsvExporter).export(any(), eq(UserExportCompression.NONE), isNull());
+
+            //Act
+            var result = mockMvc.perform(get("/v1/users/export"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            //Assert
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/csv;charset=UTF-8"))
+                    .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.csv\""))
+                    .andExpect(content().string("user_id,username\n"));
+        }
+
+        @Test
+        @DisplayName("Should resume after the given row with the requested compression")
+        void shouldResumeCompressedExport() throws Exception {
+            //Arrange
+            var userId = UUID.randomUUID();
+            var creationTimestamp = Instant.parse("2025-01-02T03:04:05.123456Z");
+
+            //Act
+            var result = mockMvc.perform(get("/v1/users/export")
+                    .param("compression", "zstd")
+                    .param("afterCreationTimestamp", creationTimestamp.toString())
+                    .param("afterUserId", userId.toString()))
+                    .andReturn();
+
+            //Assert
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/zstd"))
+                    .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.csv.zst\""));
+            verify(userCsvExporter).export(any(), eq(UserExportCompression.ZSTD), eq(new UserCursor(creationTimestamp, userId)));
+        }
+
+        @Test
+        @DisplayName("Should return 400 for an unknown compression or an incomplete resume position")
+        void shouldRejectInvalidParameters() throws Exception {
+            //Act & Assert
+            mockMvc.perform(get("/v1/users/export").param("compression", "brotli"))
+                    .andExpect(status().isBadRequest());
+            mockMvc.perform(get("/v1/users/export").param("afterUserId", UUID.randomUUID().toString()))
+                    .andExpect(status().isBadRequest());
+            mockMvc.perform(get("/v1/users/export")
+                    .param("afterCreationTimestamp", "yesterday")
+                    .param("afterUserId", UUID.randomUUID().toString()))
+                    .andExpect(status().isBadRequest());
+            verifyNoInteractions(userCsvExporter);
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package joao.saraiva.agregadorinvestimentos.controller;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import joao.saraiva.agregadorinvestimentos.grpc.CreateUserRequest;
+import joao.saraiva.agregadorinvestimentos.grpc.CreateUsersResponse;
+import joao.saraiva.agregadorinvestimentos.grpc.DeleteUserRequest;
+import joao.saraiva.agregadorinvestimentos.grpc.GetUserRequest;
+import joao.saraiva.agregadorinvestimentos.grpc.ListUsersRequest;
+import joao.saraiva.agregadorinvestimentos.grpc.UpdateUserRequest;
+import joao.saraiva.agregadorinvestimentos.grpc.UserServiceGrpc;
+import joao.saraiva.agregadorinvestimentos.service.UserAlreadyExistsException;
+import joao.saraiva.agregadorinvestimentos.service.UserBatchService;
+import joao.saraiva.agregadorinvestimentos.service.UserService;
+import joao.saraiva.agregadorinvestimentos.service.UserVersionConflictException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+// Chamadas de verdade (serialização, status, streams) por um servidor e canal em memória
+@ExtendWith(MockitoExtension.class)
+class UserGrpcServiceTest {
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private UserBatchService userBatchService;
+
+    private Server server;
+
+    private ManagedChannel channel;
+
+    private UserServiceGrpc.UserServiceBlockingStub blockingStub;
+
+    private UserServiceGrpc.UserServiceStub asyncStub;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+                .addService(new UserGrpcService(userService, userBatchService))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).build();
+        blockingStub = UserServiceGrpc.newBlockingStub(channel).withDeadlineAfter(10, TimeUnit.SECONDS);
+        asyncStub = UserServiceGrpc.newStub(channel).withDeadlineAfter(10, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private static UserDto user(String username) {
+        return new UserDto(UUID.randomUUID(), username, username + "@email.com",
+                Instant.now().truncatedTo(ChronoUnit.MICROS), null, 0L);
+    }
+
+    private static Status.Code codeOf(Runnable call) {
+        return assertThrows(StatusRuntimeException.class, call::run).getStatus().getCode();
+    }
+
+    @Nested
+    class createUser {
+
+        @Test
+        @DisplayName("Should create the user and return its id")
+        void shouldCreateUser() {
+            //Arrange
+            var userId = UUID.randomUUID();
+            doReturn(userId).when(userService).createUser(new CreateUserDto("username", "email@email.com", "123"));
+
+            //Act
+            var response = blockingStub.createUser(CreateUserRequest.newBuilder()
+                    .setUsername("username").setEmail("email@email.com").setPassword("123").build());
+
+            //Assert
+            assertEquals(userId.toString(), response.getUserId());
+        }
+
+        @Test
+        @DisplayName("Should fail with ALREADY_EXISTS for a duplicate username or email")
+        void shouldReturnAlreadyExists() {
+            //Arrange
+            doThrow(new UserAlreadyExistsException()).when(userService).createUser(any());
+
+            //Act & Assert
+            assertEquals(Status.Code.ALREADY_EXISTS, codeOf(() -> blockingStub.createUser(CreateUserRequest.newBuilder()
+                    .setUsername("username").setEmail("email@email.com").setPassword("123").build())));
+        }
+    }
+
+    @Nested
+    class getUser {
+
+        @Test
+        @DisplayName("Should return the user, leaving out fields that are null")
+        void shouldReturnUser() {
+            //Arrange
+            var user = user("username");
+            doReturn(Optional.of(user)).when(userService).getUserById(user.userId().toString());
+
+            //Act
+            var message = blockingStub.getUser(GetUserRequest.newBuilder().setUserId(user.userId().toString()).build());
+
+            //Assert
+            assertEquals(user.userId().toString(), message.getUserId());
+            assertEquals("username", message.getUsername());
+            assertEquals("username@email.com", message.getEmail());
+            assertEquals(user.creationTimestamp(), UserGrpcService.toInstant(message.getCreationTimestamp()));
+            assertFalse(message.hasUpdateTimestamp());
+        }
+
+        @Test
+        @DisplayName("Should return a user without username or email instead of failing")
+        void shouldReturnUserWithNullFields() {
+            //Arrange
+            var user = new UserDto(UUID.randomUUID(), null, null, null, null, null);
+            doReturn(Optional.of(user)).when(userService).getUserById(user.userId().toString());
+
+            //Act
+            var message = blockingStub.getUser(GetUserRequest.newBuilder().setUserId(user.userId().toString()).build());
+
+            //Assert
+            assertEquals(user.userId().toString(), message.getUserId());
+            assertEquals("", message.getUsername());
+            assertEquals("", message.getEmail());
+            assertFalse(message.hasCreationTimestamp());
+        }
+
+        @Test
+        @DisplayName("Should fail with NOT_FOUND when the user does not exist")
+        void shouldReturnNotFound() {
+            //Arrange
+            doReturn(Optional.empty()).when(userService).getUserById(any());
+
+            //Act & Assert
+            assertEquals(Status.Code.NOT_FOUND, codeOf(() -> blockingStub.getUser(
+                    GetUserRequest.newBuilder().setUserId(UUID.randomUUID().toString()).build())));
+        }
+
+        @Test
+        @DisplayName("Should fail with INVALID_ARGUMENT when the id is not a UUID")
+        void shouldReturnInvalidArgument() {
+            //Arrange
+            doThrow(new IllegalArgumentException("Invalid UUID string: abc")).when(userService).getUserById("abc");
+
+            //Act & Assert
+            assertEquals(Status.Code.INVALID_ARGUMENT, codeOf(() -> blockingStub.getUser(
+                    GetUserRequest.newBuilder().setUserId("abc").build())));
+        }
+    }
+
+    @Nested
+    class updateUser {
+
+        @Test
+        @DisplayName("Should update only the fields sent, without a version check")
+        void shouldUpdateWithoutVersion() {
+            //Arrange
+            var userId = UUID.randomUUID().toString();
+            doReturn(true).when(userService).updateUserById(userId, new UpdateUserDto("renamed", null));
+
+            //Act
+            blockingStub.updateUser(UpdateUserRequest.newBuilder().setUserId(userId).setUsername("renamed").build());
+
+            //Assert
+            verify(userService).updateUserById(userId, new UpdateUserDto("renamed", null));
+        }
+
+        @Test
+        @DisplayName("Should fail with ABORTED when the expected version is stale")
+        void shouldReturnAbortedOnVersionConflict() {
+            //Arrange
+            var userId = UUID.randomUUID().toString();
+            var expectedVersion = 3L;
+            doThrow(new UserVersionConflictException()).when(userService)
+                    .updateUserById(eq(userId), any(UpdateUserDto.class), eq(expectedVersion));
+
+            //Act & Assert
+            assertEquals(Status.Code.ABORTED, codeOf(() -> blockingStub.updateUser(UpdateUserRequest.newBuilder()
+                    .setUserId(userId)
+                    .setPassword("456")
+                    .setExpectedVersion(expectedVersion)
+                    .build())));
+        }
+    }
+
+    @Nested
+    class deleteUser {
+
+        @Test
+        @DisplayName("Should fail with NOT_FOUND when there is nothing to delete")
+        void shouldReturnNotFound() {
+            //Arrange
+            doReturn(false).when(userService).deleteById(any());
+
+            //Act & Assert
+            assertEquals(Status.Code.NOT_FOUND, codeOf(() -> blockingStub.deleteUser(
+                    DeleteUserRequest.newBuilder().setUserId(UUID.randomUUID().toString()).build())));
+        }
+    }
+
+    @Nested
+    class listUsers {
+
+        @Test
+        @DisplayName("Should stream every user from the service, in order")
+        void shouldStreamUsers() {
+            //Arrange
+            var users = new ArrayList<UserDto>();
+            for (int i = 0; i < 1000; i++) {
+                users.add(user("user-" + i));
+            }
+            doAnswer(invocation -> {
+                Consumer<UserDto> consumer = invocation.getArgument(0);
+                users.forEach(consumer);
+                return null;
+            }).when(userService).streamUsers(any());
+
+            //Act
+            var received = new ArrayList<String>();
+            blockingStub.listUsers(ListUsersRequest.getDefaultInstance())
+                    .forEachRemaining(message -> received.add(message.getUsername()));
+
+            //Assert
+            assertEquals(users.stream().map(UserDto::username).toList(), received);
+        }
+
+        @Test
+        @DisplayName("Should stop reading from the database when the client cancels")
+        void shouldStopWhenCancelled() throws Exception {
+            //Arrange
+            var streamed = new CompletableFuture<Integer>();
+            doAnswer(invocation -> {
+                Consumer<UserDto> consumer = invocation.getArgument(0);
+                var count = 0;
+                try {
+                    // Bem mais do que cabe nos buffers do transporte
+                    for (; count < 1_000_000; count++) {
+                        consumer.accept(user("user-" + count));
+                    }
+                } finally {
+                    streamed.complete(count);
+                }
+                return null;
+            }).when(userService).streamUsers(any());
+
+            //Act
+            var iterator = blockingStub.listUsers(ListUsersRequest.getDefaultInstance());
+            iterator.next();
+            channel.shutdownNow();
+
+            //Assert
+            assertTrue(streamed.get(10, TimeUnit.SECONDS) < 1_000_000);
+        }
+    }
+
+    @Nested
+    class createUsers {
+
+        @Test
+        @DisplayName("Should feed the client stream to the batch service and send one response per chunk")
+        void shouldCreateUsersFromStream() throws Exception {
+            //Arrange
+            var userId = UUID.randomUUID();
+            var received = new ArrayList<CreateUserDto>();
+            doAnswer(invocation -> {
+                Iterator<CreateUserDto> users = invocation.getArgument(0);
+                Consumer<List<BatchUserResultDto>> onChunk = invocation.getArgument(1);
+                users.forEachRemaining(received::add);
+                onChunk.accept(List.of(BatchUserResultDto.created(0, userId)));
+                onChunk.accept(List.of(BatchUserResultDto.failed(1, "Username or email already exists")));
+                return null;
+            }).when(userBatchService).createUsers(any(), any());
+
+            //Act
+            var responses = new ArrayList<CreateUsersResponse>();
+            var completed = new CompletableFuture<List<CreateUsersResponse>>();
+            var requests = asyncStub.createUsers(new StreamObserver<>() {
+                @Override
+                public void onNext(CreateUsersResponse value) {
+                    responses.add(value);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    completed.completeExceptionally(t);
+                }
+
+                @Override
+                public void onCompleted() {
+                    completed.complete(responses);
+                }
+            });
+            requests.onNext(CreateUserRequest.newBuilder().setUsername("first").setEmail("first@email.com").setPassword("1").build());
+            requests.onNext(CreateUserRequest.newBuilder().setUsername("second").setEmail("second@email.com").setPassword("2").build());
+            requests.onCompleted();
+
+            //Assert
+            var chunks = completed.get(10, TimeUnit.SECONDS);
+            assertEquals(List.of(
+                    new CreateUserDto("first", "first@email.com", "1"),
+                    new CreateUserDto("second", "second@email.com", "2")), received);
+            assertEquals(2, chunks.size());
+            assertEquals(1, chunks.get(0).getResultsCount());
+            assertEquals(userId.toString(), chunks.get(0).getResults(0).getUserId());
+            assertEquals("", chunks.get(0).getResults(0).getError());
+            assertEquals(1, chunks.get(1).getResults(0).getIndex());
+            assertEquals("Username or email already exists", chunks.get(1).getResults(0).getError());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package joao.saraiva.agregadorinvestimentos.entity;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidV7GeneratorTest {
+
+    @Test
+    @DisplayName("Should generate version 7 UUIDs with the RFC variant")
+    void shouldGenerateVersion7() {
+        //Act
+        var uuid = UuidV7Generator.generate();
+
+        //Assert
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+    }
+
+    @Test
+    @DisplayName("Should carry the current time in the first 48 bits")
+    void shouldCarryTimestamp() {
+        //Arrange
+        var before = System.currentTimeMillis();
+
+        //Act
+        var uuid = UuidV7Generator.generate();
+
+        //Assert
+        var timestamp = uuid.getMostSignificantBits() >>> 16;
+        assertTrue(timestamp >= before);
+        assertTrue(timestamp <= System.currentTimeMillis() + 1);
+    }
+
+    @Test
+    @DisplayName("Should generate unique and increasing UUIDs even within the same millisecond")
+    void shouldBeMonotonic() {
+        //Arrange
+        var uuids = new ArrayList<UUID>();
+
+        //Act
+        for (int i = 0; i < 100_000; i++) {
+            uuids.add(UuidV7Generator.generate());
+        }
+
+        //Assert
+        // Compara como bytes sem sinal, que é a ordem do BINARY(16) no MySQL
+        for (int i = 1; i < uuids.size(); i++) {
+            assertTrue(Long.compareUnsigned(uuids.get(i - 1).getMostSignificantBits(),
+                    uuids.get(i).getMostSignificantBits()) < 0);
+        }
+        assertEquals(uuids.size(), new HashSet<>(uuids).size());
+    }
+}
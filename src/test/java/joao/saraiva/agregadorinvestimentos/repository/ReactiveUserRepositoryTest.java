@@ -0,0 +1,223 @@
+package joao.saraiva.agregadorinvestimentos.repository;
+
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// SQL do stack reativo contra o H2 via r2dbc-h2, com o schema das migrations de db/migration/h2
+@DataR2dbcTest
+@ActiveProfiles("reactive")
+@Import(ReactiveUserRepository.class)
+@TestPropertySource(properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive-users;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:db/migration/h2/V1__create_tb_users.sql,"
+                + "classpath:db/migration/h2/V2__right_size_tb_users.sql,"
+                + "classpath:db/migration/h2/V3__covering_index_users_keyset.sql"
+})
+class ReactiveUserRepositoryTest {
+
+    @Autowired
+    private ReactiveUserRepository userRepository;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    private final Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+
+    @BeforeEach
+    void setUp() {
+        databaseClient.sql("delete from tb_users").then().block();
+    }
+
+    private UUID insert(String username, Instant creationTimestamp) {
+        var userId = UUID.randomUUID();
+        userRepository.insert(userId, username, username + "@email.com", "hash", creationTimestamp).block();
+        return userId;
+    }
+
+    @Nested
+    class findById {
+
+        @Test
+        @DisplayName("Should read back an inserted user as UserDto")
+        void shouldFindInsertedUser() {
+            //Arrange
+            var userId = insert("username", now);
+
+            //Act & Assert
+            StepVerifier.create(userRepository.findById(userId))
+                    .expectNext(new UserDto(userId, "username", "username@email.com", now, null, 0L))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should complete empty when the user does not exist")
+        void shouldBeEmptyWhenMissing() {
+            StepVerifier.create(userRepository.findById(UUID.randomUUID()))
+                    .verifyComplete();
+        }
+    }
+
+    @Nested
+    class findAllById {
+
+        @Test
+        @DisplayName("Should return only the users that exist among the given ids")
+        void shouldFindExistingUsers() {
+            //Arrange
+            var first = insert("first", now);
+            var second = insert("second", now);
+            insert("other", now);
+
+            //Act & Assert
+            StepVerifier.create(userRepository.findAllById(List.of(first, second, UUID.randomUUID())).map(UserDto::userId))
+                    .recordWith(HashSet::new)
+                    .expectNextCount(2)
+                    .consumeRecordedWith(found -> assertEquals(Set.of(first, second), found))
+                    .verifyComplete();
+        }
+    }
+
+    @Nested
+    class insert {
+
+        @Test
+        @DisplayName("Should fail with DataIntegrityViolationException on a duplicate username")
+        void shouldRejectDuplicateUsername() {
+            //Arrange
+            insert("username", now);
+
+            //Act & Assert
+            StepVerifier.create(userRepository.insert(UUID.randomUUID(), "username", "other@email.com", "hash", now))
+                    .verifyError(DataIntegrityViolationException.class);
+        }
+    }
+
+    @Nested
+    class findByUsernameStartingWith {
+
+        @Test
+        @DisplayName("Should match the prefix literally, escaping LIKE wildcards")
+        void shouldEscapeWildcards() {
+            //Arrange
+            insert("jo_ao", now);
+            insert("joana", now);
+            insert("jo!x", now);
+
+            //Act & Assert
+            StepVerifier.create(userRepository.findByUsernameStartingWith("jo_", 10).map(UserDto::username))
+                    .expectNext("jo_ao")
+                    .verifyComplete();
+            StepVerifier.create(userRepository.findByUsernameStartingWith("jo!", 10).map(UserDto::username))
+                    .expectNext("jo!x")
+                    .verifyComplete();
+        }
+    }
+
+    @Nested
+    class findPageAfter {
+
+        @Test
+        @DisplayName("Should page in (creationTimestamp, userId) order after the cursor")
+        void shouldPageByKeyset() {
+            //Arrange
+            var first = insert("first", now);
+            insert("second", now.plusSeconds(1));
+            insert("third", now.plusSeconds(2));
+
+            //Act & Assert
+            StepVerifier.create(userRepository.findFirstPage(1).map(UserDto::userId))
+                    .expectNext(first)
+                    .verifyComplete();
+            StepVerifier.create(userRepository.findPageAfter(now, first, 10).map(UserDto::username))
+                    .expectNext("second", "third")
+                    .verifyComplete();
+        }
+    }
+
+    @Nested
+    class streamAll {
+
+        @Test
+        @DisplayName("Should emit only as many rows as requested")
+        void shouldRespectBackpressure() {
+            //Arrange
+            for (int i = 0; i < 5; i++) {
+                insert("user-" + i, now.plusSeconds(i));
+            }
+
+            //Act & Assert
+            StepVerifier.create(userRepository.streamAll().map(UserDto::username), 2)
+                    .expectNext("user-0", "user-1")
+                    .thenRequest(3)
+                    .expectNext("user-2", "user-3", "user-4")
+                    .verifyComplete();
+        }
+    }
+
+    @Nested
+    class updateUserById {
+
+        @Test
+        @DisplayName("Should update only when the version matches and bump the version column")
+        void shouldUpdateIfVersion() {
+            //Arrange
+            var userId = insert("username", now);
+            var later = now.plusSeconds(10);
+
+            //Act & Assert
+            StepVerifier.create(userRepository.updateUserByIdIfVersion(userId, "other", null, later, 1L))
+                    .expectNext(0L)
+                    .verifyComplete();
+            StepVerifier.create(userRepository.updateUserByIdIfVersion(userId, "renamed", null, later, 0L))
+                    .expectNext(1L)
+                    .verifyComplete();
+            StepVerifier.create(userRepository.findById(userId))
+                    .expectNext(new UserDto(userId, "renamed", "username@email.com", now, later, 1L))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should return 0 rows for a missing user and delete existing ones")
+        void shouldReportMissingUser() {
+            //Arrange
+            var userId = insert("username", now);
+
+            //Act & Assert
+            StepVerifier.create(userRepository.updateUserById(UUID.randomUUID(), "x", null, now))
+                    .expectNext(0L)
+                    .verifyComplete();
+            StepVerifier.create(userRepository.existsById(userId))
+                    .expectNext(true)
+                    .verifyComplete();
+            StepVerifier.create(userRepository.deleteUserById(userId))
+                    .expectNext(1L)
+                    .verifyComplete();
+            StepVerifier.create(userRepository.existsById(userId))
+                    .expectNext(false)
+                    .verifyComplete();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package joao.saraiva.agregadorinvestimentos.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
+import joao.saraiva.agregadorinvestimentos.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Usa o H2 do @DataJpaTest com a configuração de cache do application.properties.
+// Sem a transação do teste, cada chamada ao repositório abre sua própria sessão,
+// então uma leitura repetida só escapa do banco se vier do cache de segundo nível.
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserRepositoryCacheTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAllInBatch();
+        var sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+    }
+
+    @Test
+    @DisplayName("Should serve repeated findById from the second-level cache without SQL")
+    void shouldServeRepeatedFindByIdFromCache() {
+        //Arrange
+        var user = userRepository.save(new User("username", "email@email.com", "password"));
+        userRepository.findById(user.getUserId()); // carrega o cache, se o save não carregou
+        statistics.clear();
+
+        //Act
+        var first = userRepository.findById(user.getUserId());
+        var second = userRepository.findById(user.getUserId());
+
+        //Assert
+        assertTrue(first.isPresent());
+        assertTrue(second.isPresent());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(2, statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    @DisplayName("Should read the updated user back exactly as the database has it")
+    void shouldRefreshCacheOnUpdate() {
+        //Arrange
+        var user = userRepository.save(new User("username", "email@email.com", "password"));
+        userRepository.findById(user.getUserId());
+
+        //Act
+        userRepository.updateUserById(user.getUserId(), "newUsername", null);
+        var cached = userRepository.findById(user.getUserId()).orElseThrow();
+        entityManagerFactory.getCache().evict(User.class, user.getUserId());
+        var stored = userRepository.findById(user.getUserId()).orElseThrow();
+
+        //Assert
+        assertEquals("newUsername", cached.getUsername());
+        assertEquals(UserDto.from(stored), UserDto.from(cached));
+    }
+
+    @Test
+    @DisplayName("Should keep the other users cached after an update")
+    void shouldEvictOnlyTheUpdatedUser() {
+        //Arrange
+        var user = userRepository.save(new User("username", "email@email.com", "password"));
+        var other = userRepository.save(new User("other", "other@email.com", "password"));
+        userRepository.findById(user.getUserId());
+        userRepository.findById(other.getUserId());
+
+        //Act
+        userRepository.updateUserById(user.getUserId(), "newUsername", null);
+
+        //Assert
+        // Um update em massa limparia a região "users" inteira
+        assertTrue(userRepository.isCached(other.getUserId()));
+        statistics.clear();
+        assertEquals("other", userRepository.findById(other.getUserId()).orElseThrow().getUsername());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Should update and delete in a single statement, without loading the entity")
+    void shouldWriteWithoutLoadingEntity() {
+        //Arrange
+        var user = userRepository.save(new User("username", "email@email.com", "password"));
+        entityManagerFactory.getCache().evict(User.class, user.getUserId());
+        statistics.clear();
+
+        //Act
+        var updated = userRepository.updateUserById(user.getUserId(), "newUsername", null);
+        var deleted = userRepository.deleteUserById(user.getUserId());
+        var deletedAgain = userRepository.deleteUserById(user.getUserId());
+
+        //Assert
+        assertEquals(1, updated);
+        assertEquals(1, deleted);
+        assertEquals(0, deletedAgain);
+        // Os statements saem pelo JdbcTemplate; o Hibernate não carregou nem gravou nada
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Should not serve a cached page from before an update")
+    void shouldEvictPagesOnUpdate() {
+        //Arrange
+        var user = userRepository.save(new User("username", "email@email.com", "password"));
+        userRepository.findFirstPage(Limit.of(10));
+
+        //Act
+        userRepository.updateUserById(user.getUserId(), "newUsername", null);
+        var page = userRepository.findFirstPage(Limit.of(10));
+
+        //Assert
+        assertEquals("newUsername", page.get(0).username());
+    }
+
+    @Test
+    @DisplayName("Should not overwrite a concurrent update while the cache still has the old version")
+    void shouldNotUpdateStaleCachedVersion() throws SQLException {
+        //Arrange
+        // O cache fica com a versão velha, como se outro nó tivesse gravado por fora
+        var user = userRepository.save(new User("username", "email@email.com", "password"));
+        userRepository.findById(user.getUserId());
+        try (var connection = dataSource.getConnection(); var statement = connection.createStatement()) {
+            statement.executeUpdate("update tb_users set version = version + 1");
+        }
+
+        var cachedVersion = UserDto.from(userRepository.findById(user.getUserId()).orElseThrow()).version();
+
+        //Act
+        var updated = userRepository.updateUserByIdIfVersion(user.getUserId(), "newUsername", null, cachedVersion);
+
+        //Assert
+        assertEquals(0, updated);
+        entityManagerFactory.getCache().evict(User.class, user.getUserId());
+        assertEquals("username", userRepository.findById(user.getUserId()).orElseThrow().getUsername());
+    }
+
+    @Test
+    @DisplayName("Should compare with the database, not the cache, when the client has a newer version")
+    void shouldRecheckLaggingCachedVersion() throws SQLException {
+        //Arrange
+        // O cliente leu a versão nova (de outro nó, ou da réplica); o cache ainda tem a velha
+        var user = userRepository.save(new User("username", "email@email.com", "password"));
+        var cachedVersion = userRepository.findById(user.getUserId()).orElseThrow().getVersion();
+        try (var connection = dataSource.getConnection(); var statement = connection.createStatement()) {
+            statement.executeUpdate("update tb_users set version = version + 1");
+        }
+
+        //Act
+        var updated = userRepository.updateUserByIdIfVersion(user.getUserId(), "newUsername", null, cachedVersion + 1);
+
+        //Assert
+        assertEquals(1, updated);
+        assertEquals("newUsername", userRepository.findById(user.getUserId()).orElseThrow().getUsername());
+    }
+
+    @Test
+    @DisplayName("Should update only while the version read from the cache is still current")
+    void shouldUpdateOnlyMatchingVersion() {
+        //Arrange
+        // A versão sai do cache de segundo nível (o que o save deixou lá), não do banco
+        var user = userRepository.save(new User("username", "email@email.com", "password"));
+        var version = UserDto.from(userRepository.findById(user.getUserId()).orElseThrow()).version();
+
+        //Act
+        var first = userRepository.updateUserByIdIfVersion(user.getUserId(), "first", null, version);
+        var second = userRepository.updateUserByIdIfVersion(user.getUserId(), "second", null, version);
+
+        //Assert
+        assertEquals(1, first);
+        assertEquals(0, second);
+        var saved = userRepository.findById(user.getUserId()).orElseThrow();
+        assertEquals("first", saved.getUsername());
+        assertNotEquals(version, UserDto.from(saved).version());
+    }
+
+    @Test
+    @DisplayName("Should not find the user in the cache after a delete")
+    void shouldEvictOnDelete() {
+        //Arrange
+        var user = userRepository.save(new User("username", "email@email.com", "password"));
+        userRepository.findById(user.getUserId());
+
+        //Act
+        userRepository.deleteUserById(user.getUserId());
+
+        //Assert
+        assertTrue(userRepository.findById(user.getUserId()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should multi-get cached users without SQL and the others in one query that fills the cache")
+    void shouldMultiGetThroughSecondLevelCache() {
+        //Arrange
+        var cached = userRepository.save(new User("cached", "cached@email.com", "password"));
+        var first = userRepository.save(new User("first", "first@email.com", "password"));
+        var second = userRepository.save(new User("second", "second@email.com", "password"));
+        userRepository.findById(cached.getUserId());
+        entityManagerFactory.getCache().evict(User.class, first.getUserId());
+        entityManagerFactory.getCache().evict(User.class, second.getUserId());
+        var ids = List.of(cached.getUserId(), first.getUserId(), second.getUserId(), UUID.randomUUID());
+        statistics.clear();
+
+        //Act
+        var output = transactionTemplate.execute(status -> userRepository.findAllUsersById(ids));
+
+        //Assert
+        assertEquals(List.of("cached", "first", "second"), output.stream().map(UserDto::username).toList());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertTrue(userRepository.isCached(cached.getUserId()));
+        assertTrue(userRepository.isCached(first.getUserId()));
+        assertTrue(userRepository.isCached(second.getUserId()));
+    }
+
+    @Test
+    @DisplayName("Should serve a repeated page from the query cache without SQL")
+    void shouldServeRepeatedPageFromQueryCache() {
+        //Arrange
+        userRepository.save(new User("user1", "user1@email.com", "password"));
+        userRepository.save(new User("user2", "user2@email.com", "password"));
+        userRepository.findFirstPage(Limit.of(10));
+        statistics.clear();
+
+        //Act
+        var output = userRepository.findFirstPage(Limit.of(10));
+
+        //Assert
+        assertEquals(2, output.size());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+}
@@ -0,0 +1,141 @@
+package joao.saraiva.agregadorinvestimentos.repository;
+
+import joao.saraiva.agregadorinvestimentos.entity.User;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Roda as buscas por username/email no H2 (modo MySQL, texto case-insensitive como
+// a collation _ci do MySQL), captura o SQL que o Hibernate gerou e confere com
+// EXPLAIN que o banco usa um índice em vez de varrer a tabela.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lookup;MODE=MySQL;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "joao.saraiva.agregadorinvestimentos.repository.UserRepositoryLookupTest$SqlCapture"
+})
+class UserRepositoryLookupTest {
+
+    private static final Pattern INDEX_CONDITION = Pattern.compile("/\\* \\S+: (USERNAME|EMAIL) ");
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.save(new User("Joao", "Joao@Email.com", "password"));
+        userRepository.save(new User("joana", "joana@email.com", "password"));
+        userRepository.save(new User("maria", "maria@email.com", "password"));
+        userRepository.flush();
+        SqlCapture.STATEMENTS.clear();
+    }
+
+    @Test
+    @DisplayName("Should find by username ignoring case using the unique index")
+    void shouldFindByUsernameUsingIndex() {
+        //Act
+        var output = userRepository.findByUsername("JOAO");
+
+        //Assert
+        assertTrue(output.isPresent());
+        assertEquals("Joao", output.get().username());
+        assertUsesIndex(explain(SqlCapture.last(), "JOAO"));
+    }
+
+    @Test
+    @DisplayName("Should find by email ignoring case using the unique index")
+    void shouldFindByEmailUsingIndex() {
+        //Act
+        var output = userRepository.findByEmail("joao@email.com");
+
+        //Assert
+        assertTrue(output.isPresent());
+        assertEquals("Joao", output.get().username());
+        assertUsesIndex(explain(SqlCapture.last(), "joao@email.com"));
+    }
+
+    @Test
+    @DisplayName("Should search by username prefix with an index range scan")
+    void shouldSearchByPrefixUsingIndex() {
+        //Act
+        var output = userRepository.findByUsernameStartingWithOrderByUsername("jo", Limit.of(10));
+
+        //Assert
+        assertEquals(List.of("joana", "Joao"), output.stream().map(user -> user.username()).toList());
+        var plan = explain(SqlCapture.last(), "jo%", 10);
+        assertUsesIndex(plan);
+        assertTrue(plan.contains("index sorted"), plan); // ORDER BY sai do índice, sem sort
+    }
+
+    @Test
+    @DisplayName("Should treat LIKE wildcards in the prefix as literal characters")
+    void shouldEscapeWildcardsInPrefix() {
+        //Act
+        var output = userRepository.findByUsernameStartingWithOrderByUsername("%", Limit.of(10));
+
+        //Assert
+        assertTrue(output.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should check username/email existence ignoring case, excluding the user being renamed")
+    void shouldCheckExistence() {
+        //Arrange
+        var joao = userRepository.findByUsername("joao").orElseThrow();
+
+        //Act & Assert
+        assertTrue(userRepository.existsByUsername("JOAO"));
+        assertUsesIndex(explain(SqlCapture.last(), "JOAO"));
+        assertTrue(userRepository.existsByEmail("maria@email.com"));
+        assertFalse(userRepository.existsByEmail("nobody@email.com"));
+        assertFalse(userRepository.existsByUsernameAndUserIdNot("joao", joao.userId()));
+        assertTrue(userRepository.existsByUsernameAndUserIdNot("joana", joao.userId()));
+    }
+
+    private String explain(String sql, Object... args) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, args);
+    }
+
+    // O H2 comenta no plano o índice escolhido e a condição usada nele,
+    // ex.: /* PUBLIC.CONSTRAINT_INDEX_6: USERNAME = ?1 */. Sem índice aparece "tableScan".
+    private static void assertUsesIndex(String plan) {
+        assertFalse(plan.contains("tableScan"), plan);
+        assertTrue(INDEX_CONDITION.matcher(plan).find(), plan);
+    }
+
+    public static class SqlCapture implements StatementInspector {
+
+        static final List<String> STATEMENTS = new ArrayList<>();
+
+        static String last() {
+            return STATEMENTS.get(STATEMENTS.size() - 1);
+        }
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package joao.saraiva.agregadorinvestimentos.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Roda as migrations de db/migration/h2 direto pelo Flyway, sem Spring. A validação
+// das entidades contra o schema migrado acontece nos @DataJpaTest (ddl-auto=validate).
+class UserSchemaMigrationTest {
+
+    private static DriverManagerDataSource dataSource(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private static Flyway flyway(DriverManagerDataSource dataSource) {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/h2")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+    }
+
+    private static Map<String, Object> columnSizes(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForMap("""
+                select max(case when column_name = 'USERNAME' then character_maximum_length end) as username,
+                       max(case when column_name = 'EMAIL' then character_maximum_length end) as email,
+                       max(case when column_name = 'PASSWORD' then character_maximum_length end) as password
+                  from information_schema.columns
+                 where table_name = 'TB_USERS'""");
+    }
+
+    private static long indexCount(JdbcTemplate jdbcTemplate, String indexName) {
+        return jdbcTemplate.queryForObject(
+                "select count(*) from information_schema.indexes where index_name = ?", Long.class, indexName);
+    }
+
+    private static List<String> indexColumns(JdbcTemplate jdbcTemplate, String indexName) {
+        return jdbcTemplate.queryForList("""
+                select column_name from information_schema.index_columns
+                 where index_name = ? order by ordinal_position""", String.class, indexName);
+    }
+
+    @Test
+    @DisplayName("Should create tb_users with right-sized columns and the covering keyset index")
+    void shouldCreateSchemaFromScratch() {
+        //Arrange
+        var dataSource = dataSource("migration-empty");
+        var jdbcTemplate = new JdbcTemplate(dataSource);
+
+        //Act
+        var result = flyway(dataSource).migrate();
+
+        //Assert
+        assertEquals(4, result.migrationsExecuted);
+        var sizes = columnSizes(jdbcTemplate);
+        assertEquals(64L, ((Number) sizes.get("USERNAME")).longValue());
+        assertEquals(254L, ((Number) sizes.get("EMAIL")).longValue());
+        assertEquals(100L, ((Number) sizes.get("PASSWORD")).longValue());
+        assertEquals(List.of("CREATION_TIMESTAMP", "USER_ID", "USERNAME", "EMAIL", "UPDATE_TIMESTAMP", "VERSION"),
+                indexColumns(jdbcTemplate, "IDX_USERS_KEYSET"));
+        assertEquals(0, indexCount(jdbcTemplate, "IDX_USERS_CREATION_TIMESTAMP_USER_ID"));
+        assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update(
+                "insert into tb_users (user_id, username, version) values (random_uuid(), ?, 0)", "u".repeat(65)));
+    }
+
+    @Test
+    @DisplayName("Should baseline a schema created by ddl-auto and apply only the later versions")
+    void shouldBaselineExistingSchema() {
+        //Arrange
+        var dataSource = dataSource("migration-existing");
+        var jdbcTemplate = new JdbcTemplate(dataSource);
+        // tb_users como o ddl-auto=update deixava, já com dados
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/h2")
+                .target("1")
+                .table("ddl_auto_history")
+                .load()
+                .migrate();
+        jdbcTemplate.execute("drop table \"ddl_auto_history\"");
+        jdbcTemplate.update("insert into tb_users (user_id, username, email, password, version) "
+                + "values (random_uuid(), 'username', 'email@email.com', 'password', 0)");
+
+        //Act
+        var result = flyway(dataSource).migrate();
+
+        //Assert
+        assertEquals(3, result.migrationsExecuted);
+        assertEquals("4", result.targetSchemaVersion);
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from tb_users", Long.class));
+        assertEquals(64L, ((Number) columnSizes(jdbcTemplate).get("USERNAME")).longValue());
+        assertEquals(1, indexCount(jdbcTemplate, "IDX_USERS_KEYSET"));
+    }
+}
@@ -0,0 +1,42 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentBloomFilterTest {
+
+    @Test
+    @DisplayName("Should size bits and hash functions from the expected insertions and false positive rate")
+    void shouldUseOptimalSize() {
+        //Act
+        var filter = new ConcurrentBloomFilter(1_000_000, 0.01);
+
+        //Assert
+        // ~9.59 bits e ~7 hashes por chave para 1%
+        assertEquals(9_585_088, filter.bitCount());
+        assertEquals(7, filter.hashFunctions());
+    }
+
+    @Test
+    @DisplayName("Should reject an invalid size")
+    void shouldRejectInvalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentBloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentBloomFilter(100, 1));
+    }
+
+    @Test
+    @DisplayName("Should contain what was put and not an unrelated key")
+    void shouldContainPutKeys() {
+        //Arrange
+        var filter = new ConcurrentBloomFilter(100, 0.001);
+
+        //Act
+        filter.put("username");
+
+        //Assert
+        assertTrue(filter.mightContain("username"));
+        assertFalse(filter.mightContain("other"));
+    }
+}
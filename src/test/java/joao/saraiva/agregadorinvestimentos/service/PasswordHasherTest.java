@@ -0,0 +1,168 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private PasswordHasher passwordHasher;
+
+    @AfterEach
+    void tearDown() {
+        passwordHasher.close();
+    }
+
+    @Test
+    @DisplayName("Should hash with BCrypt and record the hash time")
+    void shouldHashPassword() {
+        //Arrange
+        var encoder = new BCryptPasswordEncoder(4); // custo mínimo, só para o teste ser rápido
+        passwordHasher = new PasswordHasher(encoder, 2, 10, Duration.ofSeconds(1), meterRegistry);
+
+        //Act
+        var output = passwordHasher.hash("password");
+
+        //Assert
+        assertTrue(output.startsWith("$2a$04$"));
+        assertTrue(encoder.matches("password", output));
+        assertEquals(1, meterRegistry.get(PasswordHasher.METRIC_NAME).timer().count());
+        assertNotNull(meterRegistry.get("executor.queued").tag("name", "password.hasher").gauge());
+    }
+
+    @Test
+    @DisplayName("Should keep null passwords null")
+    void shouldKeepNullPassword() {
+        //Arrange
+        passwordHasher = new PasswordHasher(new BCryptPasswordEncoder(4), 1, 1, Duration.ofSeconds(1), meterRegistry);
+
+        //Act & Assert
+        assertNull(passwordHasher.hash(null));
+        assertEquals(0, meterRegistry.get(PasswordHasher.METRIC_NAME).timer().count());
+    }
+
+    @Test
+    @DisplayName("Should refuse passwords longer than 72 bytes before using the pool")
+    void shouldRejectTooLongPassword() {
+        //Arrange
+        // Com BCrypt de verdade: é o limite que o BCryptPasswordEncoder impõe
+        passwordHasher = new PasswordHasher(new BCryptPasswordEncoder(4), 1, 1, Duration.ofSeconds(1), meterRegistry);
+        var longest = "a".repeat(PasswordHasher.MAX_PASSWORD_BYTES);
+        var tooLong = "é".repeat(37); // 37 caracteres, 74 bytes em UTF-8
+
+        //Act & Assert
+        assertNotNull(passwordHasher.hash(longest));
+        assertThrows(PasswordTooLongException.class, () -> passwordHasher.hash(tooLong));
+        var async = assertThrows(ExecutionException.class, () -> passwordHasher.hashAsync(tooLong).get());
+        assertInstanceOf(PasswordTooLongException.class, async.getCause());
+        assertThrows(PasswordTooLongException.class, () -> passwordHasher.hashAll(List.of(longest, tooLong)));
+        assertEquals(1, meterRegistry.get(PasswordHasher.METRIC_NAME).timer().count());
+    }
+
+    @Test
+    @DisplayName("Should hash a batch keeping the input order")
+    void shouldHashAllInOrder() {
+        //Arrange
+        passwordHasher = new PasswordHasher(new PrefixEncoder(), 2, 0, Duration.ofSeconds(1), meterRegistry);
+        var input = Arrays.asList("a", null, "c", "d", "e");
+
+        //Act
+        var output = passwordHasher.hashAll(input);
+
+        //Assert
+        assertEquals(Arrays.asList("hash:a", null, "hash:c", "hash:d", "hash:e"), output);
+        assertEquals(4, meterRegistry.get(PasswordHasher.METRIC_NAME).timer().count());
+    }
+
+    @Test
+    @DisplayName("Should refuse with PasswordHashingBusyException when the pool and queue are full")
+    void shouldRejectWhenFull() throws Exception {
+        //Arrange
+        // 1 worker e fila de 0: um hash travado ocupa a única vaga
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        PasswordEncoder blocking = new PrefixEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.encode(rawPassword);
+            }
+        };
+        passwordHasher = new PasswordHasher(blocking, 1, 0, Duration.ofMillis(50), meterRegistry);
+        var first = Thread.ofVirtual().start(() -> passwordHasher.hash("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        //Act & Assert
+        assertThrows(PasswordHashingBusyException.class, () -> passwordHasher.hash("second"));
+        assertEquals(1, meterRegistry.get(PasswordHasher.METRIC_NAME + ".rejected").counter().count());
+
+        // Liberada a vaga, volta a aceitar
+        release.countDown();
+        first.join();
+        assertEquals("hash:third", passwordHasher.hash("third"));
+    }
+
+    @Test
+    @DisplayName("Should fail the async hash right away when there is no free slot")
+    void shouldRejectAsyncWithoutWaiting() throws Exception {
+        //Arrange
+        var release = new CountDownLatch(1);
+        PasswordEncoder blocking = new PrefixEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.encode(rawPassword);
+            }
+        };
+        // acquireTimeout longo: o hashAsync não pode esperar por ele
+        passwordHasher = new PasswordHasher(blocking, 1, 0, Duration.ofSeconds(30), meterRegistry);
+        var first = passwordHasher.hashAsync("first");
+
+        //Act
+        var second = passwordHasher.hashAsync("second");
+
+        //Assert
+        var error = assertThrows(ExecutionException.class, () -> second.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(PasswordHashingBusyException.class, error.getCause());
+        release.countDown();
+        assertEquals("hash:first", first.get(5, TimeUnit.SECONDS));
+        assertEquals("hash:third", passwordHasher.hashAsync("third").get(5, TimeUnit.SECONDS));
+        assertNull(passwordHasher.hashAsync(null).get());
+    }
+
+    private static class PrefixEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import joao.saraiva.agregadorinvestimentos.controller.CreateUserDto;
+import joao.saraiva.agregadorinvestimentos.controller.UpdateUserDto;
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
+import joao.saraiva.agregadorinvestimentos.repository.ReactiveUserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveUserServiceTest {
+
+    @Mock
+    private ReactiveUserRepository userRepository;
+
+    @Mock
+    private PasswordHasher passwordHasher;
+
+    @InjectMocks
+    private ReactiveUserService userService;
+
+    private static UserDto user(String username, Instant creationTimestamp) {
+        return new UserDto(UUID.randomUUID(), username, username + "@email.com", creationTimestamp, null, 0L);
+    }
+
+    @Nested
+    class createUser {
+
+        @Test
+        @DisplayName("Should hash the password without blocking and insert with a UUID v7")
+        void shouldCreateUser() {
+            //Arrange
+            doReturn(CompletableFuture.completedFuture("hash")).when(passwordHasher).hashAsync("123");
+            doReturn(Mono.empty()).when(userRepository).insert(any(), eq("username"), eq("email@email.com"), eq("hash"), any());
+
+            //Act & Assert
+            StepVerifier.create(userService.createUser(new CreateUserDto("username", "email@email.com", "123")))
+                    .assertNext(userId -> assertEquals(7, userId.version()))
+                    .verifyComplete();
+            verify(passwordHasher, never()).hash(any());
+        }
+
+        @Test
+        @DisplayName("Should not insert when the hasher is busy")
+        void shouldFailWhenHasherBusy() {
+            //Arrange
+            doReturn(CompletableFuture.failedFuture(new PasswordHashingBusyException())).when(passwordHasher).hashAsync("123");
+
+            //Act & Assert
+            StepVerifier.create(userService.createUser(new CreateUserDto("username", "email@email.com", "123")))
+                    .verifyError(PasswordHashingBusyException.class);
+            verifyNoInteractions(userRepository);
+        }
+
+        @Test
+        @DisplayName("Should fail with UserAlreadyExistsException when the unique index rejects the username")
+        void shouldFailWhenUsernameTaken() {
+            //Arrange
+            doReturn(CompletableFuture.completedFuture("hash")).when(passwordHasher).hashAsync("123");
+            doReturn(Mono.error(new DuplicateKeyException("duplicate"))).when(userRepository)
+                    .insert(any(), eq("username"), eq("email@email.com"), eq("hash"), any());
+            doReturn(Mono.just(user("username", Instant.now()))).when(userRepository).findByUsername("username");
+            doReturn(Mono.empty()).when(userRepository).findByEmail("email@email.com");
+
+            //Act & Assert
+            StepVerifier.create(userService.createUser(new CreateUserDto("username", "email@email.com", "123")))
+                    .verifyError(UserAlreadyExistsException.class);
+        }
+
+        @Test
+        @DisplayName("Should propagate an integrity violation that is not a duplicate username or email")
+        void shouldPropagateOtherViolations() {
+            //Arrange
+            doReturn(CompletableFuture.completedFuture("hash")).when(passwordHasher).hashAsync("123");
+            doReturn(Mono.error(new DataIntegrityViolationException("too long"))).when(userRepository)
+                    .insert(any(), eq("username"), eq("email@email.com"), eq("hash"), any());
+            doReturn(Mono.empty()).when(userRepository).findByUsername("username");
+            doReturn(Mono.empty()).when(userRepository).findByEmail("email@email.com");
+
+            //Act & Assert
+            StepVerifier.create(userService.createUser(new CreateUserDto("username", "email@email.com", "123")))
+                    .verifyError(DataIntegrityViolationException.class);
+        }
+    }
+
+    @Nested
+    class getUsersByIds {
+
+        @Test
+        @DisplayName("Should return the users in the requested order, without duplicates or missing ids")
+        void shouldKeepRequestedOrder() {
+            //Arrange
+            var first = user("first", Instant.now());
+            var second = user("second", Instant.now());
+            var missing = UUID.randomUUID();
+            doReturn(Flux.just(first, second)).when(userRepository)
+                    .findAllById(List.of(second.userId(), missing, first.userId()));
+
+            //Act & Assert
+            StepVerifier.create(userService.getUsersByIds(List.of(second.userId().toString(), missing.toString(),
+                            first.userId().toString(), second.userId().toString())))
+                    .expectNext(List.of(second, first))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should fail with IllegalArgumentException for an invalid id without querying")
+        void shouldRejectInvalidId() {
+            StepVerifier.create(userService.getUsersByIds(List.of("not-a-uuid")))
+                    .verifyError(IllegalArgumentException.class);
+            verifyNoInteractions(userRepository);
+        }
+    }
+
+    @Nested
+    class listUsers {
+
+        @Test
+        @DisplayName("Should return a next cursor when there are more rows than the limit")
+        void shouldReturnNextCursor() {
+            //Arrange
+            var now = Instant.now();
+            var first = user("first", now);
+            var second = user("second", now.plusSeconds(1));
+            doReturn(Flux.just(first, second)).when(userRepository).findFirstPage(2);
+
+            //Act & Assert
+            StepVerifier.create(userService.listUsers(null, 1))
+                    .assertNext(page -> {
+                        assertEquals(1, page.users().size());
+                        assertEquals(new UserCursor(first.creationTimestamp(), first.userId()).encode(), page.nextCursor());
+                    })
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should fail with IllegalArgumentException for a tampered cursor")
+        void shouldRejectInvalidCursor() {
+            StepVerifier.create(userService.listUsers("not-a-cursor", 10))
+                    .verifyError(IllegalArgumentException.class);
+            verifyNoInteractions(userRepository);
+        }
+    }
+
+    @Nested
+    class updateUserById {
+
+        @Test
+        @DisplayName("Should retry a transient lock failure and then succeed")
+        void shouldRetryOnConcurrencyFailure() {
+            //Arrange
+            var userId = UUID.randomUUID();
+            var attempts = new int[1];
+            doReturn(Mono.defer(() -> ++attempts[0] == 1
+                    ? Mono.error(new CannotAcquireLockException("deadlock"))
+                    : Mono.just(1L)))
+                    .when(userRepository).updateUserById(eq(userId), eq("renamed"), isNull(), any());
+
+            //Act & Assert
+            StepVerifier.create(userService.updateUserById(userId.toString(), new UpdateUserDto("renamed", null)))
+                    .expectNext(true)
+                    .verifyComplete();
+            assertEquals(2, attempts[0]);
+        }
+
+        @Test
+        @DisplayName("Should fail with UserAlreadyExistsException when the new username belongs to another user")
+        void shouldFailWhenUsernameTaken() {
+            //Arrange
+            var userId = UUID.randomUUID();
+            doReturn(Mono.error(new DuplicateKeyException("duplicate"))).when(userRepository)
+                    .updateUserById(eq(userId), eq("renamed"), isNull(), any());
+            doReturn(Mono.just(user("renamed", Instant.now()))).when(userRepository).findByUsername("renamed");
+
+            //Act & Assert
+            StepVerifier.create(userService.updateUserById(userId.toString(), new UpdateUserDto("renamed", null)))
+                    .verifyError(UserAlreadyExistsException.class);
+        }
+
+        @Test
+        @DisplayName("Should fail with UserVersionConflictException when the user exists in another version")
+        void shouldFailOnVersionConflict() {
+            //Arrange
+            var userId = UUID.randomUUID();
+            var expectedVersion = 3L;
+            doReturn(Mono.just(0L)).when(userRepository)
+                    .updateUserByIdIfVersion(eq(userId), eq("renamed"), isNull(), any(), eq(expectedVersion));
+            doReturn(Mono.just(true)).when(userRepository).existsById(userId);
+
+            //Act & Assert
+            StepVerifier.create(userService.updateUserById(userId.toString(), new UpdateUserDto("renamed", null), expectedVersion))
+                    .verifyError(UserVersionConflictException.class);
+        }
+
+        @Test
+        @DisplayName("Should return false when the user does not exist")
+        void shouldReturnFalseWhenMissing() {
+            //Arrange
+            var userId = UUID.randomUUID();
+            var expectedVersion = 3L;
+            doReturn(Mono.just(0L)).when(userRepository)
+                    .updateUserByIdIfVersion(eq(userId), any(), any(), any(), eq(expectedVersion));
+            doReturn(Mono.just(false)).when(userRepository).existsById(userId);
+
+            //Act & Assert
+            StepVerifier.create(userService.updateUserById(userId.toString(), new UpdateUserDto("renamed", null), expectedVersion))
+                    .expectNext(false)
+                    .verifyComplete();
+        }
+    }
+}
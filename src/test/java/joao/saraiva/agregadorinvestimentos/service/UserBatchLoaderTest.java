@@ -0,0 +1,224 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
+import joao.saraiva.agregadorinvestimentos.entity.User;
+import joao.saraiva.agregadorinvestimentos.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserBatchLoaderTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Captor
+    private ArgumentCaptor<Collection<UUID>> idsCaptor;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private UserBatchLoader loader;
+
+    @AfterEach
+    void tearDown() {
+        loader.close();
+    }
+
+    private UserBatchLoader loader(Duration window, int maxBatchSize) {
+        return loader(window, maxBatchSize, 10);
+    }
+
+    private UserBatchLoader loader(Duration window, int maxBatchSize, int maxConcurrentBatches) {
+        loader = new UserBatchLoader(userRepository, transactionManager, window, maxBatchSize, maxConcurrentBatches, meterRegistry);
+        return loader;
+    }
+
+    private static UserDto user(UUID userId) {
+        return new UserDto(userId, "user-" + userId, userId + "@email.com", Instant.now(), null, 0L);
+    }
+
+    // Responde com um UserDto para cada ID pedido
+    private void repositoryReturnsAll() {
+        doAnswer(invocation -> {
+            Collection<UUID> ids = invocation.getArgument(0);
+            return ids.stream().map(UserBatchLoaderTest::user).toList();
+        }).when(userRepository).findAllUsersById(anyCollection());
+    }
+
+    @Nested
+    class load {
+
+        @Test
+        @DisplayName("Should coalesce lookups arriving within the window into one IN query")
+        void shouldBatchWithinWindow() {
+            //Arrange
+            repositoryReturnsAll();
+            var loader = loader(Duration.ofMillis(200), 100);
+            var ids = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+
+            //Act
+            var futures = ids.stream().map(loader::load).toList();
+            var users = futures.stream().map(UserBatchLoader::await).toList();
+
+            //Assert
+            for (int i = 0; i < ids.size(); i++) {
+                assertEquals(ids.get(i), users.get(i).orElseThrow().userId());
+            }
+            verify(userRepository, times(1)).findAllUsersById(idsCaptor.capture());
+            assertEquals(Set.copyOf(ids), Set.copyOf(idsCaptor.getValue()));
+        }
+
+        @Test
+        @DisplayName("Should read a user in the second-level cache right away, outside any batch")
+        void shouldReadCachedUserDirectly() {
+            //Arrange
+            var user = new User(UUID.randomUUID(), "username", "email@email.com", "password", Instant.now(), null);
+            doReturn(true).when(userRepository).isCached(user.getUserId());
+            doReturn(Optional.of(user)).when(userRepository).findById(user.getUserId());
+            var loader = loader(Duration.ofHours(1), 100);
+
+            //Act
+            var output = loader.load(user.getUserId());
+
+            //Assert
+            assertTrue(output.isDone());
+            assertEquals("username", output.join().orElseThrow().username());
+            verify(userRepository, never()).findAllUsersById(any());
+        }
+
+        @Test
+        @DisplayName("Should dispatch a full batch right away, without waiting for the window")
+        void shouldDispatchFullBatch() {
+            //Arrange
+            repositoryReturnsAll();
+            var loader = loader(Duration.ofHours(1), 2);
+
+            //Act
+            var first = loader.load(UUID.randomUUID());
+            var second = loader.load(UUID.randomUUID());
+
+            //Assert
+            assertTrue(UserBatchLoader.await(first).isPresent());
+            assertTrue(UserBatchLoader.await(second).isPresent());
+            assertEquals(2, meterRegistry.get("user.loader.batch.size").summary().totalAmount());
+        }
+
+        @Test
+        @DisplayName("Should share one future for the same id requested twice in a batch")
+        void shouldCoalesceDuplicateIds() {
+            //Arrange
+            repositoryReturnsAll();
+            var loader = loader(Duration.ofMillis(50), 100);
+            var userId = UUID.randomUUID();
+
+            //Act
+            var first = loader.load(userId);
+            var second = loader.load(userId);
+
+            //Assert
+            assertSame(first, second);
+            assertEquals(userId, UserBatchLoader.await(first).orElseThrow().userId());
+            assertEquals(1, meterRegistry.get("user.loader.coalesced").counter().count());
+        }
+
+        @Test
+        @DisplayName("Should complete with an empty Optional for ids the database did not return")
+        void shouldReturnEmptyForMissingUser() {
+            //Arrange
+            doReturn(List.of()).when(userRepository).findAllUsersById(anyCollection());
+            var loader = loader(Duration.ZERO, 100);
+
+            //Act
+            var output = UserBatchLoader.await(loader.load(UUID.randomUUID()));
+
+            //Assert
+            assertEquals(Optional.empty(), output);
+        }
+
+        @Test
+        @DisplayName("Should run the query on a platform thread, even for virtual thread callers")
+        void shouldNotQueryOnVirtualThread() throws Exception {
+            //Arrange
+            var queryThreadIsVirtual = new CompletableFuture<Boolean>();
+            doAnswer(invocation -> {
+                queryThreadIsVirtual.complete(Thread.currentThread().isVirtual());
+                return List.of();
+            }).when(userRepository).findAllUsersById(anyCollection());
+            var loader = loader(Duration.ZERO, 100);
+
+            //Act
+            Thread.ofVirtual().start(() -> UserBatchLoader.await(loader.load(UUID.randomUUID()))).join();
+
+            //Assert
+            // A query não depende de haver carrier livre para rodar
+            assertFalse(queryThreadIsVirtual.get());
+        }
+
+        @Test
+        @DisplayName("Should run at most maxConcurrentBatches loader threads and push overflow back to the dispatcher")
+        void shouldBoundDispatchThreads() {
+            //Arrange
+            var queryThreads = ConcurrentHashMap.<String>newKeySet();
+            doAnswer(invocation -> {
+                queryThreads.add(Thread.currentThread().getName());
+                Thread.sleep(5);
+                return List.of();
+            }).when(userRepository).findAllUsersById(anyCollection());
+            var loader = loader(Duration.ofHours(1), 1, 2);
+
+            //Act
+            var futures = IntStream.range(0, 50).mapToObj(i -> loader.load(UUID.randomUUID())).toList();
+            futures.forEach(UserBatchLoader::await);
+
+            //Assert
+            // Lote cheio (1 ID) com a fila cheia roda em quem chamou load()
+            assertTrue(queryThreads.remove(Thread.currentThread().getName()));
+            assertTrue(queryThreads.size() <= 2, () -> "Loader threads: " + queryThreads);
+        }
+
+        @Test
+        @DisplayName("Should fail every caller of the batch with the original exception")
+        void shouldPropagateQueryFailure() {
+            //Arrange
+            doThrow(new DataAccessResourceFailureException("down")).when(userRepository).findAllUsersById(any());
+            var loader = loader(Duration.ofMillis(50), 100);
+
+            //Act
+            CompletableFuture<Optional<UserDto>> first = loader.load(UUID.randomUUID());
+            CompletableFuture<Optional<UserDto>> second = loader.load(UUID.randomUUID());
+
+            //Assert
+            assertThrows(DataAccessResourceFailureException.class, () -> UserBatchLoader.await(first));
+            assertThrows(DataAccessResourceFailureException.class, () -> UserBatchLoader.await(second));
+        }
+    }
+}
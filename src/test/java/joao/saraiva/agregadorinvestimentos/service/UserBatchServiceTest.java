@@ -0,0 +1,190 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import jakarta.persistence.EntityManager;
+import joao.saraiva.agregadorinvestimentos.controller.BatchUserResultDto;
+import joao.saraiva.agregadorinvestimentos.controller.CreateUserDto;
+import joao.saraiva.agregadorinvestimentos.entity.User;
+import joao.saraiva.agregadorinvestimentos.repository.UserRepository;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserBatchServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PasswordHasher passwordHasher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private UserBatchService userBatchService;
+
+    private final List<User> savedUsers = new ArrayList<>();
+
+    @Mock
+    private Session session;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(entityManager.unwrap(Session.class)).thenReturn(session);
+        // "Hash" previsível para conferir que só ele chega ao banco
+        lenient().when(passwordHasher.hashAll(anyList())).thenAnswer(invocation -> {
+            List<String> passwords = invocation.getArgument(0);
+            return passwords.stream().map(password -> "hash:" + password).toList();
+        });
+        userBatchService = new UserBatchService(userRepository, entityManager, passwordHasher, transactionManager, 2, null);
+    }
+
+    //Simula o Hibernate gerando o ID de cada usuário salvo
+    private void saveAllAssignsIds() {
+        doAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.forEach(user -> user.setUserId(UUID.randomUUID()));
+            savedUsers.addAll(users);
+            return users;
+        }).when(userRepository).saveAll(anyList());
+    }
+
+    // Junta os blocos entregues ao consumer, guardando também o tamanho de cada um
+    private final List<Integer> chunkSizes = new ArrayList<>();
+
+    private List<BatchUserResultDto> createUsers(Iterator<CreateUserDto> users) {
+        var results = new ArrayList<BatchUserResultDto>();
+        userBatchService.createUsers(users, chunk -> {
+            chunkSizes.add(chunk.size());
+            results.addAll(chunk);
+        });
+        return results;
+    }
+
+    @Test
+    @DisplayName("Should insert users in chunks and return one result per row")
+    void shouldInsertUsersInChunks() {
+        //Arrange
+        saveAllAssignsIds();
+        var input = List.of(
+                new CreateUserDto("user1", "user1@email.com", "123"),
+                new CreateUserDto("user2", "user2@email.com", "123"),
+                new CreateUserDto("user3", "user3@email.com", "123"));
+
+        //Act
+        var output = createUsers(input.iterator());
+
+        //Assert
+        assertEquals(3, output.size());
+        for (int i = 0; i < output.size(); i++) {
+            assertEquals(i, output.get(i).index());
+            assertNotNull(output.get(i).userId());
+            assertNull(output.get(i).error());
+        }
+        // chunk-size = 2: um bloco com 2 e outro com 1, cada um entregue ao ser gravado
+        assertEquals(List.of(2, 1), chunkSizes);
+        verify(userRepository, times(2)).saveAll(anyList());
+        verify(entityManager, times(2)).clear();
+        // Um hashAll por bloco e só o hash vai para o banco
+        verify(passwordHasher, times(2)).hashAll(anyList());
+        assertTrue(savedUsers.stream().allMatch(user -> user.getPassword().equals("hash:123")));
+    }
+
+    @Test
+    @DisplayName("Should retry the chunk row by row and report the duplicated user")
+    void shouldReportDuplicatedUser() {
+        //Arrange
+        var input = List.of(
+                new CreateUserDto("user1", "user1@email.com", "123"),
+                new CreateUserDto("user1", "user1@email.com", "123"));
+
+        doAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            if (users.size() > 1) {
+                throw new DataIntegrityViolationException("duplicate");
+            }
+            users.forEach(user -> user.setUserId(UUID.randomUUID()));
+            return users;
+        }).doAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.forEach(user -> user.setUserId(UUID.randomUUID()));
+            return users;
+        }).doThrow(new DataIntegrityViolationException("duplicate"))
+                .when(userRepository).saveAll(anyList());
+
+        //Act
+        var output = createUsers(input.iterator());
+
+        //Assert
+        assertEquals(2, output.size());
+        assertNotNull(output.get(0).userId());
+        assertNull(output.get(1).userId());
+        assertNotNull(output.get(1).error());
+        verify(userRepository, times(3)).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("Should fail only the row whose password is too long for BCrypt")
+    void shouldReportTooLongPassword() {
+        //Arrange
+        saveAllAssignsIds();
+        var input = List.of(
+                new CreateUserDto("user1", "user1@email.com", "123"),
+                new CreateUserDto("user2", "user2@email.com", "x".repeat(PasswordHasher.MAX_PASSWORD_BYTES + 1)),
+                new CreateUserDto("user3", "user3@email.com", "123"));
+
+        //Act
+        var output = createUsers(input.iterator());
+
+        //Assert
+        assertEquals(List.of(0, 1, 2), output.stream().map(BatchUserResultDto::index).toList());
+        assertNotNull(output.get(0).userId());
+        assertNull(output.get(1).userId());
+        assertEquals(PasswordTooLongException.MESSAGE, output.get(1).error());
+        assertNotNull(output.get(2).userId());
+        assertEquals(List.of("user1", "user3"), savedUsers.stream().map(User::getUsername).toList());
+        // Um hashAll por bloco, nenhum com a senha longa
+        verify(passwordHasher, times(2)).hashAll(List.of("123"));
+    }
+
+    @Test
+    @DisplayName("Should keep previous rows and stop when input is malformed")
+    void shouldStopWhenInputIsMalformed() {
+        //Arrange
+        saveAllAssignsIds();
+        @SuppressWarnings("unchecked")
+        Iterator<CreateUserDto> iterator = mock(Iterator.class);
+        when(iterator.hasNext()).thenReturn(true);
+        when(iterator.next())
+                .thenReturn(new CreateUserDto("user1", "user1@email.com", "123"))
+                .thenThrow(new IllegalStateException("malformed"));
+
+        //Act
+        var output = createUsers(iterator);
+
+        //Assert
+        assertEquals(2, output.size());
+        assertNotNull(output.get(0).userId());
+        assertEquals(1, output.get(1).index());
+        assertNotNull(output.get(1).error());
+    }
+}
@@ -0,0 +1,142 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import com.github.luben.zstd.ZstdInputStream;
+import joao.saraiva.agregadorinvestimentos.entity.User;
+import joao.saraiva.agregadorinvestimentos.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Exporta do H2 do @DataJpaTest, com o schema das migrations
+@DataJpaTest
+@Import(UserCsvExporter.class)
+class UserCsvExporterTest {
+
+    @Autowired
+    private UserCsvExporter userCsvExporter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+
+    private User first;
+
+    private User second;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAllInBatch();
+        // Fora da ordem de inserção, para conferir a ordem do keyset
+        second = userRepository.save(new User("second", "second@email.com", "secret"));
+        first = userRepository.save(new User("first, \"quoted\"", "first@email.com", "secret"));
+        userRepository.flush();
+        setTimestamps(second, now.plusSeconds(1), now.plusSeconds(2));
+        setTimestamps(first, now, null);
+    }
+
+    // O @CreationTimestamp não deixa escolher o horário pelo save
+    private void setTimestamps(User user, Instant creationTimestamp, Instant updateTimestamp) {
+        jdbcTemplate.update("update tb_users set creation_timestamp = ?, update_timestamp = ? where username = ?",
+                creationTimestamp.atOffset(ZoneOffset.UTC),
+                updateTimestamp == null ? null : updateTimestamp.atOffset(ZoneOffset.UTC),
+                user.getUsername());
+    }
+
+    private List<String> export(UserExportCompression compression, UserCursor after) throws IOException {
+        var out = new ByteArrayOutputStream();
+        var rows = userCsvExporter.export(out, compression, after);
+
+        var input = switch (compression) {
+            case NONE -> new ByteArrayInputStream(out.toByteArray());
+            case GZIP -> new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()));
+            case ZSTD -> new ZstdInputStream(new ByteArrayInputStream(out.toByteArray()));
+        };
+        var lines = new String(input.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        assertEquals(rows, lines.size() - 1); // menos o cabeçalho
+        return lines;
+    }
+
+    @Nested
+    class export {
+
+        @Test
+        @DisplayName("Should write a header and every user in keyset order, without the password")
+        void shouldExportInKeysetOrder() throws IOException {
+            //Act
+            var lines = export(UserExportCompression.NONE, null);
+
+            //Assert
+            assertEquals(List.of(
+                    UserCsvExporter.HEADER,
+                    first.getUserId() + ",\"first, \"\"quoted\"\"\",first@email.com," + now + ",",
+                    second.getUserId() + ",second,second@email.com," + now.plusSeconds(1) + "," + now.plusSeconds(2)
+            ), lines);
+            assertFalse(String.join("\n", lines).contains("secret"));
+        }
+
+        @Test
+        @DisplayName("Should resume after the given row")
+        void shouldResumeAfterCursor() throws IOException {
+            //Act
+            var lines = export(UserExportCompression.NONE, new UserCursor(now, first.getUserId()));
+
+            //Assert
+            assertEquals(2, lines.size());
+            assertTrue(lines.get(1).startsWith(second.getUserId() + ",second,"));
+        }
+
+        @Test
+        @DisplayName("Should produce the same CSV compressed with gzip and zstd")
+        void shouldCompress() throws IOException {
+            //Arrange
+            var plain = export(UserExportCompression.NONE, null);
+
+            //Act & Assert
+            assertEquals(plain, export(UserExportCompression.GZIP, null));
+            assertEquals(plain, export(UserExportCompression.ZSTD, null));
+        }
+    }
+
+    @Nested
+    class writeField {
+
+        @Test
+        @DisplayName("Should quote only fields with separators, quotes or line breaks")
+        void shouldQuoteWhenNeeded() throws IOException {
+            //Arrange
+            var writer = new StringWriter();
+
+            //Act
+            UserCsvExporter.writeField(writer, "plain");
+            writer.write('|');
+            UserCsvExporter.writeField(writer, "a\nb");
+            writer.write('|');
+            UserCsvExporter.writeField(writer, null);
+
+            //Assert
+            assertEquals("plain|\"a\nb\"|", writer.toString());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import joao.saraiva.agregadorinvestimentos.config.CacheConfig;
+import joao.saraiva.agregadorinvestimentos.controller.UpdateUserDto;
+import joao.saraiva.agregadorinvestimentos.entity.User;
+import joao.saraiva.agregadorinvestimentos.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Testa o cache de getUserById com o proxy do Spring de verdade,
+// mas com o repositório mockado (sem banco)
+@SpringJUnitConfig(classes = {CacheConfig.class, UserService.class})
+class UserServiceCacheTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockitoBean
+    private UserRepository userRepository;
+
+    @MockitoBean
+    private PasswordHasher passwordHasher;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(CacheConfig.USERS_CACHE).clear();
+    }
+
+    @Test
+    @DisplayName("Should hit the repository only once for repeated reads")
+    void shouldCacheUserById() {
+        //Arrange
+        var user = new User(UUID.randomUUID(), "username", "email@email.com", "password", Instant.now(), null);
+        doReturn(Optional.of(user)).when(userRepository).findById(user.getUserId());
+
+        //Act
+        var first = userService.getUserById(user.getUserId().toString());
+        var second = userService.getUserById(user.getUserId().toString());
+
+        //Assert
+        assertTrue(first.isPresent());
+        assertSame(first.get(), second.get());
+        verify(userRepository, times(1)).findById(user.getUserId());
+    }
+
+    @Test
+    @DisplayName("Should cache unknown ids (negative lookup)")
+    void shouldCacheNegativeLookup() {
+        //Arrange
+        var userId = UUID.randomUUID();
+        doReturn(Optional.empty()).when(userRepository).findById(userId);
+
+        //Act
+        userService.getUserById(userId.toString());
+        var output = userService.getUserById(userId.toString());
+
+        //Assert
+        assertTrue(output.isEmpty());
+        verify(userRepository, times(1)).findById(userId);
+    }
+
+    @Test
+    @DisplayName("Should evict the cached user on update and delete")
+    void shouldEvictOnUpdateAndDelete() {
+        //Arrange
+        var user = new User(UUID.randomUUID(), "username", "email@email.com", "password", Instant.now(), null);
+        var userId = user.getUserId().toString();
+        doReturn(Optional.of(user)).when(userRepository).findById(user.getUserId());
+        doReturn(1).when(userRepository).updateUserById(any(), any(), any());
+        doReturn(1).when(userRepository).deleteUserById(any());
+
+        //Act
+        userService.getUserById(userId);
+        userService.updateUserById(userId, new UpdateUserDto("newUsername", null));
+        userService.getUserById(userId);
+        userService.deleteById(userId);
+        userService.getUserById(userId);
+
+        //Assert
+        // Cada leitura depois de um update/delete volta ao banco
+        verify(userRepository, times(3)).findById(user.getUserId());
+    }
+
+    @Test
+    @DisplayName("Should load on a virtual thread, so a waiting caller does not pin its carrier")
+    void shouldLoadOutsideTheCaller() {
+        //Arrange
+        var user = new User(UUID.randomUUID(), "username", "email@email.com", "password", Instant.now(), null);
+        var loadedOnVirtualThread = new AtomicBoolean();
+        doAnswer(invocation -> {
+            loadedOnVirtualThread.set(Thread.currentThread().isVirtual());
+            return Optional.of(user);
+        }).when(userRepository).findById(user.getUserId());
+
+        //Act
+        var output = userService.getUserById(user.getUserId().toString());
+
+        //Assert
+        assertTrue(output.isPresent());
+        assertTrue(loadedOnVirtualThread.get());
+    }
+
+    @Test
+    @DisplayName("Should still throw IllegalArgumentException for an id that is not a UUID")
+    void shouldPropagateLoadFailure() {
+        assertThrows(IllegalArgumentException.class, () -> userService.getUserById("not-a-uuid"));
+    }
+}
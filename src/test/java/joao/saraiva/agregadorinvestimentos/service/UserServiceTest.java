@@ -2,6 +2,7 @@ package joao.saraiva.agregadorinvestimentos.service;
 
 import joao.saraiva.agregadorinvestimentos.controller.CreateUserDto;
 import joao.saraiva.agregadorinvestimentos.controller.UpdateUserDto;
+import joao.saraiva.agregadorinvestimentos.controller.UserDto;
 import joao.saraiva.agregadorinvestimentos.entity.User;
 import joao.saraiva.agregadorinvestimentos.repository.UserRepository;
 import org.junit.jupiter.api.DisplayName;
@@ -13,14 +14,24 @@ import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,6 +48,12 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private PasswordHasher passwordHasher;
+
+    @Mock
+    private UserUniquenessFilter uniquenessFilter;
+
     @InjectMocks
     private UserService userService;
 
@@ -69,6 +86,7 @@ class UserServiceTest {
 //            "numa caixinha transparente (userArgumentCaptor.capture()) "
 //            "o que foi que te pediram para guardar!"
             doReturn(user).when(userRepository).save(userArgumentCaptor.capture());
+            doReturn("hashedPassword").when(passwordHasher).hash("123");
             var input = new CreateUserDto("username",
                                             "email@email.com",
                                             "123"
@@ -83,7 +101,7 @@ class UserServiceTest {
             var userCaptured = userArgumentCaptor.getValue();
             assertEquals(input.username(), userCaptured.getUsername());
             assertEquals(input.email(), userCaptured.getEmail());
-            assertEquals(input.password(), userCaptured.getPassword());
+            assertEquals("hashedPassword", userCaptured.getPassword()); // nunca a senha em texto puro
         }
 
         @Test
@@ -104,6 +122,79 @@ class UserServiceTest {
             assertThrows(RuntimeException.class, () -> userService.createUser(input));
 
         }
+
+        @Test
+        @DisplayName("Should not query the database when the filter says the keys are new")
+        void shouldSkipExistsQueriesWhenFilterMisses() {
+            //Arrange
+            var input = new CreateUserDto("username", "email@email.com", "123");
+            doReturn(new User("username", "email@email.com", "hash")).when(userRepository).save(any());
+
+            //Act
+            userService.createUser(input);
+
+            //Assert
+            verify(userRepository, never()).existsByUsername(any());
+            verify(userRepository, never()).existsByEmail(any());
+            verify(uniquenessFilter).put("username", "email@email.com");
+        }
+
+        @Test
+        @DisplayName("Should throw UserAlreadyExistsException before hashing when the username is taken")
+        void shouldRejectTakenUsername() {
+            //Arrange
+            var input = new CreateUserDto("username", "email@email.com", "123");
+            doReturn(true).when(uniquenessFilter).mightContainUsername("username");
+            doReturn(true).when(userRepository).existsByUsername("username");
+
+            //Act & Assert
+            assertThrows(UserAlreadyExistsException.class, () -> userService.createUser(input));
+            verify(uniquenessFilter).recordCheck(true);
+            verifyNoInteractions(passwordHasher);
+            verify(userRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("Should throw PasswordTooLongException before touching the database when the password exceeds 72 bytes")
+        void shouldRejectTooLongPassword() {
+            //Arrange
+            var input = new CreateUserDto("username", "email@email.com", "x".repeat(PasswordHasher.MAX_PASSWORD_BYTES + 1));
+
+            //Act & Assert
+            assertThrows(PasswordTooLongException.class, () -> userService.createUser(input));
+            verifyNoInteractions(passwordHasher, userRepository);
+        }
+
+        @Test
+        @DisplayName("Should record a false positive and create the user when the filter was wrong")
+        void shouldCreateUserOnFalsePositive() {
+            //Arrange
+            var input = new CreateUserDto("username", "email@email.com", "123");
+            doReturn(true).when(uniquenessFilter).mightContainEmail("email@email.com");
+            doReturn(false).when(userRepository).existsByEmail("email@email.com");
+            doReturn(new User("username", "email@email.com", "hash")).when(userRepository).save(any());
+
+            //Act
+            userService.createUser(input);
+
+            //Assert
+            verify(uniquenessFilter).recordCheck(false);
+            verify(userRepository).save(any());
+        }
+
+        @Test
+        @DisplayName("Should map a unique key violation from a concurrent signup to UserAlreadyExistsException")
+        void shouldMapUniqueViolation() {
+            //Arrange
+            var input = new CreateUserDto("username", "email@email.com", "123");
+            doThrow(new DataIntegrityViolationException("uk_users_email")).when(userRepository).save(any());
+            doReturn(false).when(userRepository).existsByUsername("username");
+            doReturn(true).when(userRepository).existsByEmail("email@email.com");
+
+            //Act & Assert
+            assertThrows(UserAlreadyExistsException.class, () -> userService.createUser(input));
+            verify(uniquenessFilter, never()).put(any(), any());
+        }
     }
 
     @Nested
@@ -136,6 +227,7 @@ class UserServiceTest {
 
             //Assert
             assertTrue(output.isPresent()); // Como a função é Optional, devemos ver se ele retorna um True
+            assertEquals(UserDto.from(user), output.get()); // Só o DTO, sem a senha
             assertEquals(user.getUserId(), uuidArgumentCaptor.getValue()); // Verifica se:
             // "O ID que ele usou para buscar é o ID do nosso usuário de exemplo?"
 
@@ -164,38 +256,207 @@ class UserServiceTest {
 
     }
 
+    @Nested
+    class lookups {
+
+        @Test
+        @DisplayName("Should get user by username using the derived query")
+        void shouldGetUserByUsername() {
+            //Arrange
+            var user = new UserDto(UUID.randomUUID(), "username", "email@email.com", Instant.now(), null, 0L);
+            doReturn(Optional.of(user))
+                    .when(userRepository)
+                    .findByUsername("username");
+
+            //Act
+            var output = userService.getUserByUsername("username");
+
+            //Assert
+            assertEquals(Optional.of(user), output);
+        }
+
+        @Test
+        @DisplayName("Should get user by email using the derived query")
+        void shouldGetUserByEmail() {
+            //Arrange
+            doReturn(Optional.empty())
+                    .when(userRepository)
+                    .findByEmail("email@email.com");
+
+            //Act
+            var output = userService.getUserByEmail("email@email.com");
+
+            //Assert
+            assertTrue(output.isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should search by username prefix and clamp page size")
+        void shouldSearchByUsernamePrefix() {
+            //Arrange
+            doReturn(List.of())
+                    .when(userRepository)
+                    .findByUsernameStartingWithOrderByUsername("jo", Limit.of(UserService.MAX_PAGE_SIZE));
+
+            //Act
+            var output = userService.searchByUsernamePrefix("jo", 100_000);
+
+            //Assert
+            assertTrue(output.isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should throw exception when prefix is blank")
+        void shouldThrowExceptionWhenPrefixIsBlank() {
+            assertThrows(IllegalArgumentException.class, () -> userService.searchByUsernamePrefix(" ", 10));
+            verify(userRepository, times(0)).findByUsernameStartingWithOrderByUsername(any(), any());
+        }
+    }
+
+    @Nested
+    class getUsersByIds {
+
+        @Test
+        @DisplayName("Should return existing users in the requested order, without duplicates")
+        void shouldReturnUsersInRequestedOrder() {
+            //Arrange
+            var first = new User(UUID.randomUUID(), "first", "first@email.com", "password", Instant.now(), null);
+            var second = new User(UUID.randomUUID(), "second", "second@email.com", "password", Instant.now(), null);
+            var missing = UUID.randomUUID();
+            // Sem o UserBatchLoader: uma query só, com cada ID uma vez
+            doReturn(List.of(UserDto.from(first), UserDto.from(second))).when(userRepository)
+                    .findAllUsersById(List.of(second.getUserId(), missing, first.getUserId()));
+
+            //Act
+            var output = userService.getUsersByIds(List.of(
+                    second.getUserId().toString(), missing.toString(), first.getUserId().toString(), second.getUserId().toString()));
+
+            //Assert
+            assertEquals(List.of("second", "first"), output.stream().map(UserDto::username).toList());
+            verify(userRepository, never()).findById(any());
+        }
+
+        @Test
+        @DisplayName("Should throw IllegalArgumentException for more ids than the page limit")
+        void shouldRejectTooManyIds() {
+            //Arrange
+            var ids = Stream.generate(() -> UUID.randomUUID().toString()).limit(UserService.MAX_PAGE_SIZE + 1).toList();
+
+            //Act & Assert
+            assertThrows(IllegalArgumentException.class, () -> userService.getUsersByIds(ids));
+            verifyNoInteractions(userRepository);
+        }
+    }
+
     @Nested
     class listUsers {
 
         @Test
-        @DisplayName("Should return all users with succes")
-        void shouldReturnAllUserWithSucces() {
+        @DisplayName("Should return first page without next cursor when there are no more users")
+        void shouldReturnFirstPageWithoutNextCursor() {
             //Arrange
-            var user = new User(
+            var user = new UserDto(
                     UUID.randomUUID(),
                     "username",
                     "email@email.com",
-                    "password",
                     Instant.now(),
                     null
-            );
+            , 0L);
             var outputList = List.of(user);
-            //Quando alguém pedir para o userRepository encontrar
-            //todos (findAll()), eu vou devolver essa lista que eu preparei
+            //Pedimos sempre uma linha a mais (limit + 1) para saber se existe próxima página
             doReturn(outputList)
                     .when(userRepository)
-                    .findAll();
+                    .findFirstPage(Limit.of(11));
 
             //Act
-            var output = userService.listUsers();
+            var output = userService.listUsers(null, 10);
 
             //Assert
             assertNotNull(output);
-            assertEquals(outputList.size(), output.size());
+            assertEquals(outputList.size(), output.users().size());
+            assertNull(output.nextCursor());
+        }
 
+        @Test
+        @DisplayName("Should return next cursor pointing to the last user of the page")
+        void shouldReturnNextCursorWhenThereAreMoreUsers() {
+            //Arrange
+            var now = Instant.now();
+            var user1 = new UserDto(UUID.randomUUID(), "user1", "user1@email.com", now, null, 0L);
+            var user2 = new UserDto(UUID.randomUUID(), "user2", "user2@email.com", now.plusSeconds(1), null, 0L);
+            doReturn(List.of(user1, user2))
+                    .when(userRepository)
+                    .findFirstPage(Limit.of(2));
+
+            //Act
+            var output = userService.listUsers(null, 1);
+
+            //Assert
+            assertEquals(1, output.users().size());
+            var cursor = UserCursor.decode(output.nextCursor());
+            assertEquals(user1.creationTimestamp(), cursor.creationTimestamp());
+            assertEquals(user1.userId(), cursor.userId());
+        }
+
+        @Test
+        @DisplayName("Should continue after the cursor and clamp page size")
+        void shouldContinueAfterCursor() {
+            //Arrange
+            var cursor = new UserCursor(Instant.now(), UUID.randomUUID());
+            doReturn(List.of())
+                    .when(userRepository)
+                    .findPageAfter(cursor.creationTimestamp(), cursor.userId(), Limit.of(UserService.MAX_PAGE_SIZE + 1));
+
+            //Act
+            var output = userService.listUsers(cursor.encode(), 100_000);
+
+            //Assert
+            assertTrue(output.users().isEmpty());
+            verify(userRepository, times(0)).findFirstPage(any());
+        }
+
+        @Test
+        @DisplayName("Should throw exception when cursor is invalid")
+        void shouldThrowExceptionWhenCursorIsInvalid() {
+            assertThrows(IllegalArgumentException.class, () -> userService.listUsers("não-é-cursor", 10));
+        }
+
+        @Test
+        @DisplayName("Should throw IllegalArgumentException when the cursor timestamp is out of range")
+        void shouldThrowExceptionWhenCursorTimestampIsOutOfRange() {
+            //Arrange
+            var encoder = Base64.getUrlEncoder().withoutPadding();
+            var tooLarge = encoder.encodeToString((Long.MAX_VALUE + ":0:" + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8));
+            var overflow = encoder.encodeToString((Long.MAX_VALUE + ":" + Long.MAX_VALUE + ":" + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8));
+
+            //Act & Assert
+            assertThrows(IllegalArgumentException.class, () -> userService.listUsers(tooLarge, 10));
+            assertThrows(IllegalArgumentException.class, () -> userService.listUsers(overflow, 10));
+        }
+    }
+
+    @Nested
+    class streamUsers {
+
+        @Test
+        @DisplayName("Should hand every user to the consumer")
+        void shouldStreamUsers() {
+            //Arrange
+            var user1 = new UserDto(UUID.randomUUID(), "user1", "user1@email.com", Instant.now(), null, 0L);
+            var user2 = new UserDto(UUID.randomUUID(), "user2", "user2@email.com", Instant.now(), null, 0L);
+            doReturn(Stream.of(user1, user2))
+                    .when(userRepository)
+                    .streamAll();
+            var consumed = new ArrayList<UserDto>();
+
+            //Act
+            userService.streamUsers(consumed::add);
+
+            //Assert
+            assertEquals(List.of(user1, user2), consumed);
         }
     }
-    
+
     @Nested
     class deleteById {
 
@@ -204,25 +465,23 @@ class UserServiceTest {
         void shouldDeleteUserWithSuccesWhenUserExist() {
 
             //Arrange
-            doReturn(true)
-                    .when(userRepository)
-                    .existsById(uuidArgumentCaptor.capture());
-            doNothing()
+            doReturn(1)
                     .when(userRepository)
-                    .deleteById(uuidArgumentCaptor.capture());
+                    .deleteUserById(uuidArgumentCaptor.capture());
 
             var userId = UUID.randomUUID();
 
             //Act
-            userService.deleteById(userId.toString());
+            var output = userService.deleteById(userId.toString());
 
             //Assert
-            var idList = uuidArgumentCaptor.getAllValues();
-            assertEquals(userId, idList.get(0));
-            assertEquals(userId, idList.get(1));
+            assertTrue(output);
+            assertEquals(userId, uuidArgumentCaptor.getValue());
 
-            verify(userRepository, times(1)).existsById(idList.get(0));
-            verify(userRepository, times(1)).deleteById(idList.get(1));
+            // Um único DELETE, sem consultar antes se o usuário existe
+            verify(userRepository, times(1)).deleteUserById(userId);
+            verify(userRepository, times(0)).existsById(any());
+            verify(userRepository, times(0)).findById(any());
         }
 
         @Test
@@ -230,28 +489,38 @@ class UserServiceTest {
         void shouldNotDeleteUserWhenUserNotExist() {
 
             //Arrange
-            doReturn(false)
+            doReturn(0)
                     .when(userRepository)
-                    .existsById(uuidArgumentCaptor.capture());
+                    .deleteUserById(uuidArgumentCaptor.capture());
 
             var userId = UUID.randomUUID();
 
             //Act
-            userService.deleteById(userId.toString());
+            var output = userService.deleteById(userId.toString());
 
             //Assert
+            assertFalse(output);
             assertEquals(userId, uuidArgumentCaptor.getValue());
-
-            verify(userRepository, times(1))
-                    .existsById(uuidArgumentCaptor.getValue());
-            verify(userRepository, times(0))
-                    .deleteById(any());
         }
     }
 
     @Nested
     class updateUserById {
 
+        @Test
+        @DisplayName("Should throw UserAlreadyExistsException when renaming to another user's username")
+        void shouldRejectTakenUsername() {
+            //Arrange
+            var userId = UUID.randomUUID();
+            doReturn(true).when(uniquenessFilter).mightContainUsername("taken");
+            doReturn(true).when(userRepository).existsByUsernameAndUserIdNot("taken", userId);
+
+            //Act & Assert
+            assertThrows(UserAlreadyExistsException.class,
+                    () -> userService.updateUserById(userId.toString(), new UpdateUserDto("taken", null)));
+            verify(userRepository, never()).updateUserById(any(), any(), any());
+        }
+
         @Test
         @DisplayName("Should update user by id when user exist and username and password is filled")
         void shouldUpdateUserByIdWhenUserExistAndUsernameAndPasswordIsFilled() {
@@ -261,37 +530,23 @@ class UserServiceTest {
                     "newUsername",
                     "newPassword"
             );
-            var user = new User(
-                    UUID.randomUUID(),
-                    "username",
-                    "email@email.com",
-                    "password",
-                    Instant.now(),
-                    null
-            );
-            //mockar findById
-            doReturn(Optional.of(user))
-                    .when(userRepository)
-                    .findById(uuidArgumentCaptor.capture());
-            //mockar save
-            doReturn(user)
+            var userId = UUID.randomUUID();
+            doReturn("hashedPassword").when(passwordHasher).hash("newPassword");
+            //mockar o UPDATE direto no banco
+            doReturn(1)
                     .when(userRepository)
-                    .save(userArgumentCaptor.capture());
+                    .updateUserById(uuidArgumentCaptor.capture(), eq("newUsername"), eq("hashedPassword"));
 
             //Act
-            userService.updateUserById(user.getUserId().toString(), updateUserDto);
+            var output = userService.updateUserById(userId.toString(), updateUserDto);
 
             //Assert
-            assertEquals(user.getUserId(), uuidArgumentCaptor.getValue());
-
-            var userCaptured = userArgumentCaptor.getValue();
-
-            assertEquals(updateUserDto.username(), userCaptured.getUsername());
-            assertEquals(updateUserDto.password(), userCaptured.getPassword());
+            assertTrue(output);
+            assertEquals(userId, uuidArgumentCaptor.getValue());
 
-            verify(userRepository, times(1))
-                    .findById(uuidArgumentCaptor.getValue());
-            verify(userRepository, times(1)).save(user);
+            // Uma ida só ao banco: nada de findById + save
+            verify(userRepository, times(0)).findById(any());
+            verify(userRepository, times(0)).save(any());
         }
 
         @Test
@@ -304,22 +559,17 @@ class UserServiceTest {
                     "newPassword"
             );
             var userId = UUID.randomUUID();
-            //mockar findById
-            doReturn(Optional.empty())
+            //Nenhuma linha afetada: o usuário não existe
+            doReturn(0)
                     .when(userRepository)
-                    .findById(uuidArgumentCaptor.capture());
-
+                    .updateUserById(uuidArgumentCaptor.capture(), any(), any());
 
             //Act
-            userService.updateUserById(userId.toString(), updateUserDto);
+            var output = userService.updateUserById(userId.toString(), updateUserDto);
 
             //Assert
+            assertFalse(output);
             assertEquals(userId, uuidArgumentCaptor.getValue());
-
-            verify(userRepository, times(1))
-                    .findById(uuidArgumentCaptor.getValue());
-            //Como é senário negativo, não deve salvar nada, ou seja, o save não deve ser chamado
-            verify(userRepository, times(0)).save(any());
         }
 
         @Test
@@ -331,37 +581,17 @@ class UserServiceTest {
                     "newUsername",
                     null
             );
-            var user = new User(
-                    UUID.randomUUID(),
-                    "username",
-                    "email@email.com",
-                    "password",
-                    Instant.now(),
-                    null
-            );
-
-            //mockar findById
-            doReturn(Optional.of(user))
-                    .when(userRepository)
-                    .findById(uuidArgumentCaptor.capture());
-            //mockar save
-            doReturn(user)
+            var userId = UUID.randomUUID();
+            //password null = não altera (coalesce na query)
+            doReturn(1)
                     .when(userRepository)
-                    .save(userArgumentCaptor.capture());
+                    .updateUserById(eq(userId), eq("newUsername"), isNull());
 
             //Act
-            userService.updateUserById(user.getUserId().toString(), updateUserDto);
+            var output = userService.updateUserById(userId.toString(), updateUserDto);
 
             //Assert
-            assertEquals(user.getUserId(), uuidArgumentCaptor.getValue());
-
-            var userCaptured = userArgumentCaptor.getValue();
-            assertEquals(updateUserDto.username(), userCaptured.getUsername());
-            assertEquals(user.getPassword(), userCaptured.getPassword());
-            verify(userRepository, times(1))
-                    .findById(uuidArgumentCaptor.getValue());
-            verify(userRepository, times(1)).save(user);
-
+            assertTrue(output);
         }
 
         @Test
@@ -373,41 +603,103 @@ class UserServiceTest {
                     null,
                     "newPassword"
             );
-            var user = new User(
-                    UUID.randomUUID(),
-                    "username",
-                    "email@email.com",
-                    "password",
-                    Instant.now(),
-                    null
-            );
+            var userId = UUID.randomUUID();
+            doReturn("hashedPassword").when(passwordHasher).hash("newPassword");
+            //username null = não altera (coalesce na query)
+            doReturn(1)
+                    .when(userRepository)
+                    .updateUserById(eq(userId), isNull(), eq("hashedPassword"));
 
-            //mockar findById
-            doReturn(Optional.of(user))
+            //Act
+            var output = userService.updateUserById(userId.toString(), updateUserDto);
+
+            //Assert
+            assertTrue(output);
+        }
+
+        @Test
+        @DisplayName("Should update user when the expected version is still current")
+        void shouldUpdateUserWhenVersionMatches() {
+            //Arrange
+            var userId = UUID.randomUUID();
+            var version = 3L;
+            doReturn(1)
                     .when(userRepository)
-                    .findById(uuidArgumentCaptor.capture());
-            //mockar save
-            doReturn(user)
+                    .updateUserByIdIfVersion(eq(userId), eq("newUsername"), any(), eq(version));
+
+            //Act
+            var output = userService.updateUserById(userId.toString(), new UpdateUserDto("newUsername", null), version);
+
+            //Assert
+            assertTrue(output);
+            verify(userRepository, times(0)).updateUserById(any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("Should throw when the user changed since the expected version")
+        void shouldThrowWhenVersionChanged() {
+            //Arrange
+            var userId = UUID.randomUUID();
+            var version = 3L;
+            doReturn(0)
                     .when(userRepository)
-                    .save(userArgumentCaptor.capture());
+                    .updateUserByIdIfVersion(eq(userId), any(), any(), eq(version));
+            doReturn(true).when(userRepository).existsForWrite(userId);
+
+            //Act & Assert
+            assertThrows(UserVersionConflictException.class,
+                    () -> userService.updateUserById(userId.toString(), new UpdateUserDto("newUsername", null), version));
+        }
+
+        @Test
+        @DisplayName("Should return false on a conditional update when the user does not exist")
+        void shouldReturnFalseWhenConditionalUserNotExist() {
+            //Arrange
+            var userId = UUID.randomUUID();
+            var version = 3L;
+            doReturn(0)
+                    .when(userRepository)
+                    .updateUserByIdIfVersion(eq(userId), any(), any(), eq(version));
+            doReturn(false).when(userRepository).existsForWrite(userId);
 
             //Act
-            userService.updateUserById(user.getUserId().toString(), updateUserDto);
+            var output = userService.updateUserById(userId.toString(), new UpdateUserDto("newUsername", null), version);
 
             //Assert
-            assertEquals(user.getUserId(), uuidArgumentCaptor.getValue());
+            assertFalse(output);
+        }
 
-            var userCaptured = userArgumentCaptor.getValue();
+        @Test
+        @DisplayName("Should retry the update after losing a race in the database")
+        void shouldRetryOnConcurrencyFailure() {
+            //Arrange
+            var userId = UUID.randomUUID();
+            doThrow(new CannotAcquireLockException("Deadlock found when trying to get lock"))
+                    .doReturn(1)
+                    .when(userRepository)
+                    .updateUserById(eq(userId), eq("newUsername"), any());
 
-            assertEquals(user.getUsername(), userCaptured.getUsername());
-            assertEquals(updateUserDto.password(), userCaptured.getPassword());
+            //Act
+            var output = userService.updateUserById(userId.toString(), new UpdateUserDto("newUsername", null));
+
+            //Assert
+            assertTrue(output);
+            verify(userRepository, times(2)).updateUserById(eq(userId), eq("newUsername"), any());
+        }
 
-            verify(userRepository, times(1))
-                    .findById(uuidArgumentCaptor.getValue());
-            verify(userRepository, times(1))
-                    .save(user);
+        @Test
+        @DisplayName("Should give up after the maximum number of attempts")
+        void shouldGiveUpAfterMaxAttempts() {
+            //Arrange
+            var userId = UUID.randomUUID();
+            doThrow(new OptimisticLockingFailureException("Row was updated by another transaction"))
+                    .when(userRepository)
+                    .updateUserById(eq(userId), any(), any());
 
+            //Act & Assert
+            assertThrows(OptimisticLockingFailureException.class,
+                    () -> userService.updateUserById(userId.toString(), new UpdateUserDto("newUsername", null)));
+            verify(userRepository, times(UserService.UPDATE_MAX_ATTEMPTS)).updateUserById(eq(userId), any(), any());
         }
     }
 }
-
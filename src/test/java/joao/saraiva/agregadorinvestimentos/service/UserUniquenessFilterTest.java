@@ -0,0 +1,139 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import joao.saraiva.agregadorinvestimentos.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserUniquenessFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final UserUniquenessFilter filter = new UserUniquenessFilter(10_000, 0.01, meterRegistry);
+
+    private static UserRepository.UniqueKeys keys(String username, String email) {
+        return new UserRepository.UniqueKeys() {
+            @Override
+            public String getUsername() {
+                return username;
+            }
+
+            @Override
+            public String getEmail() {
+                return email;
+            }
+        };
+    }
+
+    private double count(String result) {
+        return meterRegistry.get(UserUniquenessFilter.METRIC_NAME).tag("result", result).counter().count();
+    }
+
+    @Nested
+    class mightContain {
+
+        @Test
+        @DisplayName("Should answer 'might exist' for everything until the rebuild finishes")
+        void shouldFallBackToDatabaseUntilReady() {
+            //Act & Assert
+            assertFalse(filter.isReady());
+            assertTrue(filter.mightContainUsername("anyone"));
+            assertTrue(filter.mightContainEmail("anyone@email.com"));
+            assertEquals(2, count("checked"));
+        }
+
+        @Test
+        @DisplayName("Should never miss a loaded key, ignoring case and accents like the column collation")
+        void shouldHaveNoFalseNegatives() {
+            //Arrange
+            filter.rebuild(IntStream.range(0, 5_000).mapToObj(i -> keys("user-" + i, "user-" + i + "@email.com")));
+            filter.put("João", "JOAO@Email.com");
+
+            //Act & Assert
+            assertTrue(filter.isReady());
+            for (int i = 0; i < 5_000; i++) {
+                assertTrue(filter.mightContainUsername("user-" + i));
+                assertTrue(filter.mightContainEmail("user-" + i + "@email.com"));
+            }
+            assertTrue(filter.mightContainUsername("joao"));
+            assertTrue(filter.mightContainUsername("JOÃO"));
+            assertTrue(filter.mightContainEmail("joao@email.com"));
+        }
+
+        @Test
+        @DisplayName("Should skip the database for most new keys, within the configured false positive rate")
+        void shouldSkipMostNewKeys() {
+            //Arrange
+            filter.rebuild(IntStream.range(0, 10_000).mapToObj(i -> keys("user-" + i, "user-" + i + "@email.com")));
+
+            //Act
+            var falsePositives = IntStream.range(0, 100_000)
+                    .filter(i -> filter.mightContainUsername("new-user-" + i))
+                    .count();
+
+            //Assert
+            // 1% esperado; folga para a variação do hash
+            assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+            assertEquals(100_000 - falsePositives, count("skipped"));
+        }
+
+        @Test
+        @DisplayName("Should answer false for a null key")
+        void shouldIgnoreNull() {
+            filter.rebuild(Stream.empty());
+
+            assertFalse(filter.mightContainEmail(null));
+        }
+    }
+
+    @Nested
+    class put {
+
+        @Test
+        @DisplayName("Should keep every key added concurrently by several threads")
+        void shouldBeThreadSafe() throws Exception {
+            //Arrange
+            filter.rebuild(Stream.empty());
+
+            //Act
+            try (var executor = Executors.newFixedThreadPool(4)) {
+                for (int t = 0; t < 4; t++) {
+                    var thread = t;
+                    executor.submit(() -> IntStream.range(0, 2_000)
+                            .forEach(i -> filter.put("user-" + thread + "-" + i, null)));
+                }
+            }
+
+            //Assert
+            for (int t = 0; t < 4; t++) {
+                for (int i = 0; i < 2_000; i++) {
+                    assertTrue(filter.mightContainUsername("user-" + t + "-" + i));
+                }
+            }
+        }
+    }
+
+    @Nested
+    class recordCheck {
+
+        @Test
+        @DisplayName("Should count a false positive only when the filter was ready")
+        void shouldCountFalsePositives() {
+            //Act
+            filter.recordCheck(false);
+            filter.rebuild(Stream.empty());
+            filter.recordCheck(false);
+            filter.recordCheck(true);
+
+            //Assert
+            assertEquals(1, count("false_positive"));
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import joao.saraiva.agregadorinvestimentos.config.CacheConfig;
+import joao.saraiva.agregadorinvestimentos.controller.UpdateUserDto;
+import joao.saraiva.agregadorinvestimentos.entity.User;
+import joao.saraiva.agregadorinvestimentos.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+// Várias threads atualizando as mesmas poucas linhas ao mesmo tempo, no H2 do @DataJpaTest.
+// Update perdido aparece nos valores gravados: um contador no username que fica abaixo
+// do número de incrementos confirmados, ou um campo que não termina com a última
+// escrita de quem o escreve.
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CacheConfig.class, UserService.class})
+class UserUpdateConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ROWS = 4;
+    private static final int UPDATES_PER_THREAD = 100;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private PasswordHasher passwordHasher;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAllInBatch();
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        doAnswer(invocation -> invocation.getArgument(0) == null ? null : "hash:" + invocation.getArgument(0))
+                .when(passwordHasher).hash(any());
+    }
+
+    private List<UUID> createUsers(IntFunction<String> username) {
+        var userIds = new ArrayList<UUID>();
+        for (int i = 0; i < ROWS; i++) {
+            var user = new User(username.apply(i), "user" + i + "@email.com", "password");
+            userIds.add(userRepository.save(user).getUserId());
+        }
+        return userIds;
+    }
+
+    // Roda work(thread) em THREADS threads que começam juntas; falha se alguma lançar
+    private static void runConcurrently(ThrowingIntConsumer work) throws InterruptedException {
+        var failures = ConcurrentHashMap.<Throwable>newKeySet();
+        var start = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            var thread = t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    work.accept(thread);
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+        assertEquals(List.of(), List.copyOf(failures));
+    }
+
+    @FunctionalInterface
+    private interface ThrowingIntConsumer {
+        void accept(int value) throws Exception;
+    }
+
+    private static int counterOf(String username) {
+        return Integer.parseInt(username.substring(username.lastIndexOf('-') + 1));
+    }
+
+    @Test
+    @DisplayName("Should not lose increments made by concurrent read-modify-write cycles with If-Match")
+    void shouldNotLoseConcurrentIncrements() throws Exception {
+        //Arrange
+        // O username é um contador: cada thread lê, soma 1 e grava com a versão lida
+        var userIds = createUsers(row -> "row" + row + "-0");
+        var confirmed = new ConcurrentHashMap<UUID, AtomicInteger>();
+        var conflicts = new AtomicInteger();
+
+        //Act
+        runConcurrently(thread -> {
+            for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                var userId = userIds.get(ThreadLocalRandom.current().nextInt(ROWS));
+                while (true) {
+                    var user = userRepository.findById(userId).orElseThrow();
+                    var next = "row" + userIds.indexOf(userId) + "-" + (counterOf(user.getUsername()) + 1);
+                    try {
+                        assertTrue(userService.updateUserById(userId.toString(), new UpdateUserDto(next, null), user.getVersion()));
+                        confirmed.computeIfAbsent(userId, id -> new AtomicInteger()).incrementAndGet();
+                        break;
+                    } catch (UserVersionConflictException e) {
+                        conflicts.incrementAndGet();
+                    }
+                }
+            }
+        });
+
+        //Assert
+        var total = 0;
+        for (var user : userRepository.findAllById(userIds)) {
+            var increments = confirmed.getOrDefault(user.getUserId(), new AtomicInteger()).get();
+            assertEquals(increments, counterOf(user.getUsername()), user.getUsername());
+            assertEquals(increments, user.getVersion());
+            total += increments;
+        }
+        assertEquals(THREADS * UPDATES_PER_THREAD, total);
+        assertTrue(conflicts.get() > 0, "threads never raced on the same version");
+    }
+
+    @Test
+    @DisplayName("Should keep the last write of each field when threads update different fields of the same rows")
+    void shouldKeepLastWriteOfEachField() throws Exception {
+        //Arrange
+        // Por linha, uma thread só escreve o username e outra só a senha, sem If-Match
+        var userIds = createUsers(row -> "username" + row);
+
+        //Act
+        runConcurrently(thread -> {
+            var userId = userIds.get(thread % ROWS).toString();
+            for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                var update = thread < ROWS
+                        ? new UpdateUserDto("name-" + thread + "-" + i, null)
+                        : new UpdateUserDto(null, "password-" + i);
+                assertTrue(userService.updateUserById(userId, update));
+            }
+        });
+
+        //Assert
+        var last = UPDATES_PER_THREAD - 1;
+        for (int row = 0; row < ROWS; row++) {
+            var user = userRepository.findById(userIds.get(row)).orElseThrow();
+            assertEquals("name-" + row + "-" + last, user.getUsername());
+            assertEquals("hash:password-" + last, user.getPassword());
+            assertEquals(2L * UPDATES_PER_THREAD, user.getVersion());
+        }
+    }
+
+    @Test
+    @DisplayName("Should answer a conflict, not overwrite, when another node updated a user cached with an old version")
+    void shouldDetectUpdateHiddenByStaleCache() {
+        //Arrange
+        // O cache de segundo nível fica na versão velha: outro nó gravou direto no banco
+        var user = userRepository.save(new User("username", "email@email.com", "password"));
+        var version = userRepository.findById(user.getUserId()).orElseThrow().getVersion();
+        jdbcTemplate.update("update tb_users set username = 'otherNode', version = version + 1");
+
+        //Act & Assert
+        // A versão do cache bate com a do cliente, então só o "where version = ?" do UPDATE
+        // impede a sobrescrita; a nova tentativa lê o banco e vê que a versão mudou
+        assertThrows(UserVersionConflictException.class, () -> userService.updateUserById(
+                user.getUserId().toString(), new UpdateUserDto("mine", null), version));
+        assertEquals("otherNode", jdbcTemplate.queryForObject("select username from tb_users", String.class));
+    }
+
+    @Test
+    @DisplayName("Should reject saving an entity read before someone else updated it")
+    void shouldRejectStaleEntitySave() {
+        //Arrange
+        var user = userRepository.save(new User("username", "email@email.com", "password"));
+        var stale = userRepository.findById(user.getUserId()).orElseThrow();
+        userService.updateUserById(user.getUserId().toString(), new UpdateUserDto("newUsername", null));
+
+        //Act & Assert
+        stale.setUsername("staleUsername");
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> userRepository.save(stale));
+        assertEquals("newUsername", userRepository.findById(user.getUserId()).orElseThrow().getUsername());
+    }
+}
@@ -0,0 +1,320 @@
+package joao.saraiva.agregadorinvestimentos.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import joao.saraiva.agregadorinvestimentos.config.CacheConfig;
+import joao.saraiva.agregadorinvestimentos.config.UserWriteBehindConfig;
+import joao.saraiva.agregadorinvestimentos.controller.UpdateUserDto;
+import joao.saraiva.agregadorinvestimentos.entity.User;
+import joao.saraiva.agregadorinvestimentos.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Write-behind ligado sobre o H2 do @DataJpaTest. O flush automático fica para
+// daqui a uma hora, então cada teste decide quando chamar flush().
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CacheConfig.class, UserWriteBehindConfig.class, UserService.class})
+class UserWriteBehindBufferTest {
+
+    @TempDir
+    static Path journalDir;
+
+    @DynamicPropertySource
+    static void writeBehindProperties(DynamicPropertyRegistry registry) {
+        registry.add("app.users.write-behind.enabled", () -> "true");
+        registry.add("app.users.write-behind.flush-interval", () -> "1h");
+        registry.add("app.users.write-behind.journal", () -> journalDir.resolve("user-updates.journal").toString());
+    }
+
+    @Autowired
+    private UserWriteBehindBuffer writeBehind;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @MockitoBean
+    private PasswordHasher passwordHasher;
+
+    @BeforeEach
+    void setUp() {
+        writeBehind.flush();
+        userRepository.deleteAllInBatch();
+        doAnswer(invocation -> invocation.getArgument(0) == null ? null : "hash:" + invocation.getArgument(0))
+                .when(passwordHasher).hash(any());
+    }
+
+    @Test
+    @DisplayName("Should acknowledge updates, merge them per user and write them in one flush")
+    void shouldCoalesceUpdates() {
+        //Arrange
+        var user = userRepository.save(new User("username", "email@email.com", "password"));
+        var userId = user.getUserId().toString();
+
+        //Act
+        assertTrue(userService.updateUserById(userId, new UpdateUserDto("first", null)));
+        assertTrue(userService.updateUserById(userId, new UpdateUserDto(null, "newPassword")));
+        assertTrue(userService.updateUserById(userId, new UpdateUserDto("second", null)));
+
+        //Assert
+        // Nada foi para o banco ainda
+        assertEquals("username", userRepository.findById(user.getUserId()).orElseThrow().getUsername());
+        assertTrue(writeBehind.hasPending(user.getUserId()));
+
+        writeBehind.flush();
+
+        var saved = userRepository.findById(user.getUserId()).orElseThrow();
+        assertEquals("second", saved.getUsername());
+        assertEquals("hash:newPassword", saved.getPassword());
+        assertFalse(writeBehind.hasPending(user.getUserId()));
+    }
+
+    @Test
+    @DisplayName("Should read its own writes through getUserById before and after the flush")
+    void shouldReadYourWrites() {
+        //Arrange
+        var user = userRepository.save(new User("username", "email@email.com", "password"));
+        var userId = user.getUserId().toString();
+        userService.getUserById(userId); // fica no cache "users" com o username antigo
+
+        //Act
+        userService.updateUserById(userId, new UpdateUserDto("newUsername", null));
+        var beforeFlush = userService.getUserById(userId).orElseThrow();
+        writeBehind.flush();
+        var afterFlush = userService.getUserById(userId).orElseThrow();
+
+        //Assert
+        assertEquals("newUsername", beforeFlush.username());
+        assertEquals("newUsername", afterFlush.username());
+        assertEquals(beforeFlush.updateTimestamp().truncatedTo(ChronoUnit.MILLIS),
+                afterFlush.updateTimestamp().truncatedTo(ChronoUnit.MILLIS));
+        // O ETag dado antes do flush continua valendo depois dele
+        assertEquals(user.getVersion() + 1, beforeFlush.version());
+        assertEquals(beforeFlush.version(), afterFlush.version());
+    }
+
+    @Test
+    @DisplayName("Should check If-Match against the pending version, not only the stored one")
+    void shouldCheckVersionAgainstPendingUpdates() {
+        //Arrange
+        var user = userRepository.save(new User("username", "email@email.com", "password"));
+        var userId = user.getUserId().toString();
+        var stored = userService.getUserById(userId).orElseThrow().version();
+        userService.updateUserById(userId, new UpdateUserDto("first", null), stored);
+        var pending = userService.getUserById(userId).orElseThrow().version();
+
+        //Act & Assert
+        // O banco ainda tem a versão "stored", mas quem leu antes do primeiro update perdeu
+        assertThrows(UserVersionConflictException.class,
+                () -> userService.updateUserById(userId, new UpdateUserDto("stale", null), stored));
+        assertTrue(userService.updateUserById(userId, new UpdateUserDto("second", null), pending));
+
+        writeBehind.flush();
+        var saved = userService.getUserById(userId).orElseThrow();
+        assertEquals("second", saved.username());
+        assertEquals(pending + 1, saved.version());
+        assertThrows(UserVersionConflictException.class,
+                () -> userService.updateUserById(userId, new UpdateUserDto("stale", null), pending));
+    }
+
+    @Test
+    @DisplayName("Should return false without buffering when the user does not exist")
+    void shouldNotBufferUnknownUser() {
+        //Act
+        var output = userService.updateUserById("01890000-0000-7000-8000-000000000000", new UpdateUserDto("x", null));
+
+        //Assert
+        assertFalse(output);
+    }
+
+    @Test
+    @DisplayName("Should still write the other updates when one of them conflicts")
+    void shouldWriteOthersWhenOneConflicts() {
+        //Arrange
+        var taken = userRepository.save(new User("taken", "taken@email.com", "password"));
+        var other = userRepository.save(new User("other", "other@email.com", "password"));
+
+        //Act
+        userService.updateUserById(other.getUserId().toString(), new UpdateUserDto("taken", null));
+        userService.updateUserById(taken.getUserId().toString(), new UpdateUserDto(null, "newPassword"));
+        writeBehind.flush();
+
+        //Assert
+        assertEquals("other", userRepository.findById(other.getUserId()).orElseThrow().getUsername());
+        assertEquals("hash:newPassword", userRepository.findById(taken.getUserId()).orElseThrow().getPassword());
+        assertFalse(writeBehind.hasPending(other.getUserId()));
+    }
+
+    @Test
+    @DisplayName("Should keep the batch and its journal when the database is down during a flush")
+    void shouldNotLoseUpdatesWhenDatabaseIsDown() throws Exception {
+        //Arrange
+        var user = userRepository.save(new User("username", "email@email.com", "password"));
+        var down = new AtomicBoolean(true);
+        var unreliable = new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (down.get()) {
+                    throw new SQLException("Connection refused", "08001");
+                }
+                return super.getConnection();
+            }
+        };
+        var journal = journalDir.resolve("outage.journal");
+        var buffer = new UserWriteBehindBuffer(new UserUpdateJournal(journal), new JdbcTemplate(unreliable),
+                transactionManager, entityManagerFactory, cacheManager, Duration.ofHours(1), 100);
+        buffer.start();
+        buffer.enqueue(new PendingUserUpdate(user.getUserId(), "renamed", null, Instant.now().truncatedTo(ChronoUnit.MICROS), 1));
+
+        //Act
+        assertThrows(DataAccessException.class, buffer::flush);
+
+        //Assert
+        assertTrue(buffer.hasPending(user.getUserId()));
+        assertTrue(Files.size(journalDir.resolve("outage.journal.flushing")) > 0);
+        assertEquals("username", userRepository.findById(user.getUserId()).orElseThrow().getUsername());
+
+        // Banco de volta: o mesmo lote vai no próximo flush
+        down.set(false);
+        buffer.stop();
+        assertEquals("renamed", userRepository.findById(user.getUserId()).orElseThrow().getUsername());
+        assertFalse(buffer.hasPending(user.getUserId()));
+        assertFalse(Files.exists(journalDir.resolve("outage.journal.flushing")));
+    }
+
+    @Test
+    @DisplayName("Should have every concurrently acknowledged update in the journal")
+    void shouldJournalConcurrentUpdates() throws Exception {
+        //Arrange
+        var users = new ArrayList<User>();
+        for (int i = 0; i < 16; i++) {
+            users.add(userRepository.save(new User("user" + i, "user" + i + "@email.com", "password")));
+        }
+        var journal = journalDir.resolve("concurrent.journal");
+        var buffer = new UserWriteBehindBuffer(new UserUpdateJournal(journal), jdbcTemplate,
+                transactionManager, entityManagerFactory, cacheManager, Duration.ofHours(1), 100);
+        buffer.start();
+
+        //Act
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var user : users) {
+                executor.execute(() -> {
+                    for (int i = 0; i < 20; i++) {
+                        buffer.enqueue(new PendingUserUpdate(user.getUserId(), user.getUsername() + "-" + i, null,
+                                Instant.now().truncatedTo(ChronoUnit.MICROS), i + 1));
+                    }
+                });
+            }
+        }
+
+        //Assert
+        // Lido por outro journal, como depois de um crash: cada update confirmado está lá
+        var recovered = new UserUpdateJournal(journal).recover();
+        assertEquals(16 * 20, recovered.size());
+        for (var user : users) {
+            assertEquals(user.getUsername() + "-19", recovered.stream()
+                    .filter(update -> update.userId().equals(user.getUserId()))
+                    .reduce((first, second) -> second).orElseThrow().username());
+        }
+    }
+
+    @Test
+    @DisplayName("Should replay the journal left by a crash and ignore a torn last line")
+    void shouldRecoverFromJournal() throws Exception {
+        //Arrange
+        var user = userRepository.save(new User("username", "email@email.com", "password"));
+        var journal = journalDir.resolve("crashed.journal");
+        Files.writeString(journal, """
+                {"userId":"%s","username":"recovered","password":null,"updateTimestamp":"%s"}
+                {"userId":"%s","username":"torn""".formatted(user.getUserId(), Instant.now(), user.getUserId()));
+        var recovered = new UserWriteBehindBuffer(new UserUpdateJournal(journal), jdbcTemplate,
+                transactionManager, entityManagerFactory, cacheManager, Duration.ofHours(1), 100);
+
+        //Act
+        recovered.start();
+        recovered.stop();
+
+        //Assert
+        var saved = userRepository.findById(user.getUserId()).orElseThrow();
+        assertEquals("recovered", saved.getUsername());
+        // Linha antiga, sem versão: incrementa
+        assertEquals(user.getVersion() + 1, saved.getVersion());
+        assertFalse(Files.exists(journalDir.resolve("crashed.journal.flushing")));
+        assertEquals(0, Files.size(journal));
+    }
+
+    @Test
+    @DisplayName("Should keep the version it already served when the same journal is replayed twice")
+    void shouldReplayIdempotently() throws Exception {
+        //Arrange
+        // O lote foi gravado e o processo caiu antes de apagar o journal: na subida,
+        // o mesmo update vai para o banco de novo
+        var user = userRepository.save(new User("username", "email@email.com", "password"));
+        var journal = journalDir.resolve("replayed.journal");
+        var line = """
+                {"userId":"%s","username":"recovered","password":null,"updateTimestamp":"%s","version":%d}
+                """.formatted(user.getUserId(), Instant.now().truncatedTo(ChronoUnit.MICROS), user.getVersion() + 1);
+
+        //Act
+        for (int replay = 0; replay < 2; replay++) {
+            Files.writeString(journal, line);
+            var buffer = new UserWriteBehindBuffer(new UserUpdateJournal(journal), jdbcTemplate,
+                    transactionManager, entityManagerFactory, cacheManager, Duration.ofHours(1), 100);
+            buffer.start();
+            buffer.stop();
+        }
+
+        //Assert
+        var saved = userRepository.findById(user.getUserId()).orElseThrow();
+        assertEquals("recovered", saved.getUsername());
+        assertEquals(user.getVersion() + 1, saved.getVersion());
+    }
+}